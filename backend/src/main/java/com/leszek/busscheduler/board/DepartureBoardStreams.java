@@ -0,0 +1,158 @@
+package com.leszek.busscheduler.board;
+
+import com.leszek.busscheduler.dto.StopBoardDiffDTO;
+import com.leszek.busscheduler.dto.StopDepartureDTO;
+import com.leszek.busscheduler.exception.StopNotFoundException;
+import com.leszek.busscheduler.service.DepartureBoardService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server-Sent Event subscribers of live departure boards, grouped by (stop, limit).
+ * <p>
+ * An idle emitter is just an open async response, no thread is parked on it. On every
+ * {@link DepartureBoardTicker} tick each group's board is recomputed once, and only groups whose
+ * board changed get a {@link StopBoardDiffDTO}; the sends run on virtual threads so a slow
+ * client cannot hold up the others.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DepartureBoardStreams {
+
+    static final String BOARD_EVENT = "board";
+    static final String DIFF_EVENT = "diff";
+
+    // EventSource reconnects on its own, so a bounded lifetime only costs one reload per client
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(30);
+
+    private record Key(Long stopId, int limit) {}
+
+    private static final class Group {
+        final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+        volatile List<StopDepartureDTO> board;
+
+        Group(List<StopDepartureDTO> board) {
+            this.board = board;
+        }
+    }
+
+    private final DepartureBoardService departureBoardService;
+    private final DepartureBoardTicker departureBoardTicker;
+
+    private final ConcurrentMap<Key, Group> groups = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void register() {
+        departureBoardTicker.subscribe(this::refresh);
+    }
+
+    /**
+     * Opens a stream that starts with the current board ({@value #BOARD_EVENT} event) and then
+     * receives {@value #DIFF_EVENT} events whenever it changes.
+     *
+     * @throws StopNotFoundException when the stop is unknown, before anything is streamed
+     */
+    public SseEmitter open(Long stopId, int limit) {
+        Key key = new Key(stopId, Math.clamp(limit, 1, DepartureBoardService.MAX_LIMIT));
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+        emitter.onCompletion(() -> close(key, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> close(key, emitter));
+
+        Group group;
+        do {
+            // Loaded outside the map and the monitor, so a slow query holds up neither other keys nor refreshes
+            List<StopDepartureDTO> loaded = groups.containsKey(key) ? null : load(key);
+            // Joined and sent its board under the refresh monitor, so no diff can overtake the board it applies to
+            synchronized (this) {
+                group = groups.compute(key, (k, existing) -> {
+                    Group target = existing != null ? existing : loaded != null ? new Group(loaded) : null;
+                    if (target != null) target.emitters.add(emitter);
+                    return target;
+                });
+                if (group != null) send(emitter, SseEmitter.event().name(BOARD_EVENT).data(group.board));
+            }
+            // Null only when the group emptied between the check and the join; go round and load it
+        } while (group == null);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return groups.values().stream().mapToInt(group -> group.emitters.size()).sum();
+    }
+
+    // Synchronized so diffs of consecutive refreshes reach every client in order
+    synchronized void refresh() {
+        if (groups.isEmpty()) return;
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            groups.forEach((key, group) -> {
+                List<StopDepartureDTO> fresh;
+                try {
+                    fresh = load(key);
+                } catch (StopNotFoundException ex) {
+                    group.emitters.forEach(SseEmitter::complete);
+                    return;
+                }
+                List<StopDepartureDTO> previous = group.board;
+                if (fresh.equals(previous)) return;
+
+                group.board = fresh;
+                StopBoardDiffDTO diff = diff(previous, fresh);
+                for (SseEmitter emitter : group.emitters) {
+                    senders.submit(() -> send(emitter, SseEmitter.event().name(DIFF_EVENT).data(diff)));
+                }
+            });
+        }
+    }
+
+    /**
+     * Smallest patch turning {@code previous} into {@code fresh}: departures that left the head of
+     * the board and the ones that appeared at its tail. A board that changed in any other way
+     * (timetable edit) degrades to replacing everything, which is still a valid patch.
+     */
+    static StopBoardDiffDTO diff(List<StopDepartureDTO> previous, List<StopDepartureDTO> fresh) {
+        for (int removed = 0; removed < previous.size(); removed++) {
+            int kept = previous.size() - removed;
+            if (kept <= fresh.size() && previous.subList(removed, previous.size()).equals(fresh.subList(0, kept))) {
+                return new StopBoardDiffDTO(removed, List.copyOf(fresh.subList(kept, fresh.size())));
+            }
+        }
+        return new StopBoardDiffDTO(previous.size(), fresh);
+    }
+
+    private List<StopDepartureDTO> load(Key key) {
+        return departureBoardService.nextDepartures(key.stopId(), LocalTime.now(), LocalDate.now(), key.limit());
+    }
+
+    private void close(Key key, SseEmitter emitter) {
+        groups.computeIfPresent(key, (k, group) -> {
+            group.emitters.remove(emitter);
+            return group.emitters.isEmpty() ? null : group;
+        });
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException ex) {
+            // Client went away; completing triggers onCompletion, which drops it from its group
+            log.debug("Dropping departure board subscriber: {}", ex.getMessage());
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.leszek.busscheduler.board;
+
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import com.leszek.busscheduler.timetable.TimetableReplacedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single clock for live departure boards. Boards only change when the minute turns or the
+ * timetable changes, so watchers register here instead of polling on their own schedule.
+ */
+@Slf4j
+@Component
+public class DepartureBoardTicker {
+
+    private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+
+    public void subscribe(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    public int subscriberCount() {
+        return listeners.size();
+    }
+
+    @Scheduled(cron = "0 * * * * *")
+    public void tick() {
+        fire();
+    }
+
+    // Off the committing thread; database-backed boards change right away
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTimetableChanged(TimetableChangedEvent event) {
+        if (!listeners.isEmpty()) Thread.startVirtualThread(this::fire);
+    }
+
+    // Timetable-backed boards change once the rebuilt copy is published
+    @EventListener
+    public void onTimetableReplaced(TimetableReplacedEvent event) {
+        if (!listeners.isEmpty()) Thread.startVirtualThread(this::fire);
+    }
+
+    private void fire() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException ex) {
+                log.warn("Departure board listener failed", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.leszek.busscheduler.cache;
+
+import com.leszek.busscheduler.geo.RouteShape;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of precomputed route shapes, keyed by route and shape generation.
+ * <p>
+ * Shapes are read from the database, so the cache keeps its own generation instead of following
+ * the timetable version: every committed edit broader than one trip (routes, stops, imports)
+ * starts a new one, so a derived shape never outlives the stop coordinates it was drawn through.
+ * Older generations are dropped at once, and a load that finishes after the edit is not stored.
+ */
+@Component
+public class RouteShapeCache {
+
+    static final int MAX_SIZE = 2_048;
+
+    public record Key(long routeId, long generation) {}
+
+    /** The shape and where it came from ("IMPORTED" geometry or "DERIVED" from the stops). */
+    public record Entry(RouteShape shape, String source) {}
+
+    // Bumped after each commit that can move a shape; nothing older is stored
+    private long generation;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /** Cached entry, or the loader's; a null from the loader (unknown route) is not cached. */
+    public Entry get(Key key, Supplier<Entry> loader) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) return entry;
+        }
+        Entry entry = loader.get();
+        if (entry == null) return null;
+        synchronized (this) {
+            // Loaded before an edit committed: hand it out, keep it out
+            if (key.generation() >= generation) entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /** Generation to key lookups with. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Single-trip edits leave routes and stops alone; fallbackExecution: admin endpoints save outside a transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTimetableChanged(TimetableChangedEvent event) {
+        if (event.change() != null) return;
+        synchronized (this) {
+            generation++;
+            entries.clear();
+        }
+    }
+}
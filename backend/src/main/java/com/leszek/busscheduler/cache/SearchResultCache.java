@@ -0,0 +1,131 @@
+package com.leszek.busscheduler.cache;
+
+import com.leszek.busscheduler.config.SearchCacheProperties;
+import com.leszek.busscheduler.dto.ConnectionDTO;
+import com.leszek.busscheduler.dto.SearchCacheStatsDTO;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import com.leszek.busscheduler.timetable.TimetableReplacedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of search results.
+ * <p>
+ * Entries are futures, so identical concurrent requests share one computation (single-flight).
+ * Every committed timetable change clears the whole cache under the same lock that guards
+ * lookups; a computation still running at that moment answers its waiters but is never stored.
+ * The in-memory timetable is swapped a little later, so the cache is cleared again at that point
+ * to drop results computed from the previous copy in between.
+ */
+@Component
+public class SearchResultCache {
+
+    /** {@code version} is the timetable copy the result is computed from, 0 on the database engine. */
+    public record Key(Long fromId, Long toId, int bucketMinute, String calendarTypes, boolean arriveBy, long version) {}
+
+    private final SearchCacheProperties properties;
+    private final Map<Key, CompletableFuture<List<ConnectionDTO>>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SearchResultCache(SearchCacheProperties properties) {
+        this.properties = properties;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<List<ConnectionDTO>>> eldest) {
+                if (size() <= properties.getMaxSize()) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled() && properties.getMaxSize() > 0;
+    }
+
+    public int bucketMinutes() {
+        return Math.max(1, properties.getBucketMinutes());
+    }
+
+    public List<ConnectionDTO> get(Key key, Supplier<List<ConnectionDTO>> loader) {
+        if (!isEnabled()) return loader.get();
+
+        CompletableFuture<List<ConnectionDTO>> future;
+        CompletableFuture<List<ConnectionDTO>> created = null;
+        synchronized (this) {
+            future = entries.get(key);
+            if (future == null) {
+                created = new CompletableFuture<>();
+                entries.put(key, created);
+            }
+        }
+
+        if (created == null) {
+            if (future.isDone()) hits.increment();
+            else coalesced.increment();
+            return join(future);
+        }
+
+        misses.increment();
+        try {
+            List<ConnectionDTO> result = List.copyOf(loader.get());
+            created.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            // Failures are not cached: the next request retries. Errors too, or waiters would block forever
+            synchronized (this) {
+                entries.remove(key, created);
+            }
+            created.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTimetableChanged(TimetableChangedEvent event) {
+        invalidate();
+    }
+
+    @EventListener
+    public void onTimetableReplaced(TimetableReplacedEvent event) {
+        invalidate();
+    }
+
+    public synchronized void invalidate() {
+        entries.clear();
+        invalidations.increment();
+    }
+
+    public SearchCacheStatsDTO stats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new SearchCacheStatsDTO(isEnabled(), size, properties.getMaxSize(), hits.sum(), coalesced.sum(),
+                misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    private static List<ConnectionDTO> join(CompletableFuture<List<ConnectionDTO>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            if (ex.getCause() instanceof Error cause) throw cause;
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.leszek.busscheduler.cache;
+
+import com.leszek.busscheduler.config.TileProperties;
+import com.leszek.busscheduler.timetable.TimetableReplacedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of encoded vector tiles.
+ * <p>
+ * The key carries the timetable version, so a tile is never served from an older timetable;
+ * entries of replaced versions are dropped when the new timetable is swapped in rather than
+ * waiting to be evicted. Encoding happens outside the lock, and two requests racing for the same
+ * tile just encode it twice. A tile encoded from a timetable replaced meanwhile is returned but
+ * not stored.
+ */
+@Component
+public class StopTileCache {
+
+    public record Key(int z, int x, int y, long version) {}
+
+    private final Map<Key, byte[]> entries;
+    // Version of the latest replacement; keys below it belong to retired timetables
+    private long oldestLiveVersion;
+
+    public StopTileCache(TileProperties properties) {
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                return size() > properties.getCacheSize();
+            }
+        };
+    }
+
+    public byte[] get(Key key, Supplier<byte[]> encoder) {
+        synchronized (this) {
+            byte[] tile = entries.get(key);
+            if (tile != null) return tile;
+        }
+        byte[] tile = encoder.get();
+        synchronized (this) {
+            // A miss that started before the swap must not park an entry no one will ever ask for again
+            if (key.version() >= oldestLiveVersion) entries.put(key, tile);
+        }
+        return tile;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @EventListener
+    public void onTimetableReplaced(TimetableReplacedEvent event) {
+        synchronized (this) {
+            oldestLiveVersion = Math.max(oldestLiveVersion, event.version());
+            entries.keySet().removeIf(key -> key.version() < oldestLiveVersion);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.leszek.busscheduler.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "busscheduler.search-cache")
+public class SearchCacheProperties {
+
+    private boolean enabled = true;
+
+    /** Entries kept before the least recently used one is evicted. */
+    private int maxSize = 10_000;
+
+    /** Requested times are grouped into buckets of this many minutes; one entry serves the whole bucket. */
+    private int bucketMinutes = 15;
+}
@@ -57,6 +57,7 @@ public class SecurityConfig {
                         
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/busstops/**").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/v1/**").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/v1/search/batch").permitAll()
 
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,17 @@
+package com.leszek.busscheduler.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "busscheduler.tiles")
+public class TileProperties {
+
+    /** Encoded tiles kept before the least recently used one is evicted. */
+    private int cacheSize = 4_096;
+
+    /** {@code Cache-Control: max-age} of served tiles; the ETag carries the timetable version for revalidation. */
+    private long maxAgeSeconds = 86_400;
+}
@@ -0,0 +1,57 @@
+package com.leszek.busscheduler.config;
+
+import com.leszek.busscheduler.timetable.JourneyEngine;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "busscheduler.timetable")
+public class TimetableProperties {
+
+    /** Engine answering {@code /api/v1/search}: the departures self-join or the in-memory timetable. */
+    private SearchEngine searchEngine = SearchEngine.JPA;
+
+    /** Engine answering {@code /api/v1/search/journeys} unless the request picks one. */
+    private JourneyEngine.Type journeyEngine = JourneyEngine.Type.RAPTOR;
+
+    /** Default upper bound of vehicle changes for journey planning. */
+    private int maxTransfers = 3;
+
+    /** Default time needed to change vehicles at a stop. */
+    private int minTransferMinutes = 2;
+
+    /** Walking speed used to reach the first stop from a coordinate (~4.8 km/h). */
+    private int walkingMetersPerMinute = 80;
+
+    /** How imported and added trips are stored: a departure row per stop, or a start time plus overrides. */
+    private TripStorage tripStorage = TripStorage.DEPARTURES;
+
+    /**
+     * Binary timetable snapshot. When the file exists it is memory-mapped at startup and served while the
+     * database copy loads in the background; {@code POST /api/v1/admin/timetable/snapshot} writes it.
+     */
+    private String snapshotPath;
+
+    /** Period of the full reload that double-checks the single-trip patches applied in between. */
+    private int fullReloadMinutes = 60;
+
+    /**
+     * Whether searches and boards are answered from the in-memory timetable. Pattern-stored trips
+     * have no departure rows to join, so that storage mode implies the timetable engine.
+     */
+    public boolean isTimetableSearch() {
+        return searchEngine == SearchEngine.TIMETABLE || tripStorage == TripStorage.PATTERN;
+    }
+
+    public enum SearchEngine {
+        JPA,
+        TIMETABLE
+    }
+
+    public enum TripStorage {
+        DEPARTURES,
+        PATTERN
+    }
+}
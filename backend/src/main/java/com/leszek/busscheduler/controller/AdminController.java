@@ -1,15 +1,25 @@
 package com.leszek.busscheduler.controller;
 
+import com.leszek.busscheduler.cache.SearchResultCache;
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.domain.*;
 import com.leszek.busscheduler.dto.ImportBusLineDTO;
+import com.leszek.busscheduler.dto.SearchCacheStatsDTO;
 import com.leszek.busscheduler.repository.*;
 import com.leszek.busscheduler.service.BusLineService;
 import com.leszek.busscheduler.service.DataImportService;
+import com.leszek.busscheduler.timetable.TimetableChange;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import com.leszek.busscheduler.timetable.TimetableSnapshot;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -27,12 +37,29 @@ public class AdminController {
     private final TripRepository tripRepository;
     private final DepartureRepository departureRepository;
     private final RouteRepository routeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SearchResultCache searchResultCache;
+    private final TimetableProperties timetableProperties;
+    private final TimetableProvider timetableProvider;
 
     @GetMapping("/test")
     public String adminTest() {
         return "Admin access granted";
     }
 
+    @GetMapping("/search-cache")
+    public SearchCacheStatsDTO getSearchCacheStats() {
+        return searchResultCache.stats();
+    }
+
+    @PostMapping("/timetable/snapshot")
+    public ResponseEntity<TimetableSnapshot.Info> exportTimetableSnapshot() throws IOException {
+        if (!StringUtils.hasText(timetableProperties.getSnapshotPath())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(timetableProvider.exportSnapshot());
+    }
+
     @PostMapping("/import")
     public void importData(@RequestBody ImportBusLineDTO dto) {
         dataImportService.importBusLine(dto);
@@ -149,14 +176,19 @@ public class AdminController {
                             }
                         }
                     }
-                    return ResponseEntity.ok(busLineService.save(existing));
+                    BusLine saved = busLineService.save(existing);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("line " + id + " updated"));
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/lines/{id}")
     public ResponseEntity<Void> deleteLine(@PathVariable Long id) {
-        if (busLineService.deleteById(id)) return ResponseEntity.ok().build();
+        if (busLineService.deleteById(id)) {
+            eventPublisher.publishEvent(new TimetableChangedEvent("line " + id + " deleted"));
+            return ResponseEntity.ok().build();
+        }
         return ResponseEntity.notFound().build();
     }
 
@@ -164,7 +196,55 @@ public class AdminController {
 
     @GetMapping("/routes/{id}/trips")
     public ResponseEntity<List<Trip>> getTripsByRoute(@PathVariable Long id) {
-        return ResponseEntity.ok(tripRepository.findByRouteIdWithDepartures(id));
+        List<Trip> trips = tripRepository.findByRouteIdWithDepartures(id);
+        if (trips.stream().noneMatch(trip -> trip.getStartTime() != null)) return ResponseEntity.ok(trips);
+        List<RouteStop> routeStops = routeRepository.findByIdWithStops(id)
+                .map(route -> route.getRouteStops().stream()
+                        .sorted(Comparator.comparing(RouteStop::getSequenceNumber))
+                        .toList())
+                .orElse(List.of());
+        return ResponseEntity.ok(trips.stream()
+                .map(trip -> trip.getStartTime() != null ? withDerivedDepartures(trip, routeStops) : trip)
+                .toList());
+    }
+
+    /**
+     * Detached copy of a pattern-stored trip listing every stop, as the timetable compiles it: each
+     * override replaces the first visit of its stop (keeping its id, so PATCH /departures/{id} still
+     * retimes it), the other stops get startTime + offset and no id.
+     */
+    private static Trip withDerivedDepartures(Trip trip, List<RouteStop> routeStops) {
+        Trip copy = Trip.builder()
+                .id(trip.getId())
+                .route(trip.getRoute())
+                .calendarType(trip.getCalendarType())
+                .startTime(trip.getStartTime())
+                .build();
+        List<Departure> overrides = trip.getDepartures().stream()
+                .sorted(Comparator.comparing(Departure::getDepartureTime))
+                .collect(Collectors.toCollection(ArrayList::new));
+        Set<Departure> departures = new LinkedHashSet<>();
+        for (RouteStop rs : routeStops) {
+            Departure override = overrides.stream()
+                    .filter(d -> d.getBusStop().getId().equals(rs.getBusStop().getId()))
+                    .findFirst()
+                    .orElse(null);
+            overrides.remove(override);
+            int offset = rs.getTimeOffsetMinutes() != null ? rs.getTimeOffsetMinutes() : 0;
+            departures.add(Departure.builder()
+                    .id(override != null ? override.getId() : null)
+                    .trip(copy)
+                    .busStop(rs.getBusStop())
+                    .departureTime(override != null ? override.getDepartureTime() : trip.getStartTime().plusMinutes(offset))
+                    .build());
+        }
+        // Overrides at stops the route does not visit are extra stops
+        for (Departure extra : overrides) {
+            departures.add(Departure.builder().id(extra.getId()).trip(copy).busStop(extra.getBusStop())
+                    .departureTime(extra.getDepartureTime()).build());
+        }
+        copy.setDepartures(departures);
+        return copy;
     }
 
     @PostMapping("/routes/{id}/trips")
@@ -178,6 +258,16 @@ public class AdminController {
                     trip.setRoute(route);
                     trip.setCalendarType(calendarType);
 
+                    if (timetableProperties.getTripStorage() == TimetableProperties.TripStorage.PATTERN) {
+                        // Stop times come from the route offsets; departures are only added as overrides
+                        trip.setStartTime(startTime);
+                        trip.setDepartures(new HashSet<>());
+                        Trip saved = tripRepository.save(trip);
+                        eventPublisher.publishEvent(new TimetableChangedEvent("trip " + saved.getId() + " added",
+                                new TimetableChange.TripAdded(saved.getId())));
+                        return ResponseEntity.ok(saved);
+                    }
+
                     Set<Departure> departures = route.getRouteStops().stream()
                             .sorted(Comparator.comparing(RouteStop::getSequenceNumber))
                             .map(rs -> {
@@ -191,7 +281,10 @@ public class AdminController {
                             .collect(Collectors.toSet());
                     trip.setDepartures(departures);
 
-                    return ResponseEntity.ok(tripRepository.save(trip));
+                    Trip saved = tripRepository.save(trip);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("trip " + saved.getId() + " added",
+                            new TimetableChange.TripAdded(saved.getId())));
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -200,6 +293,7 @@ public class AdminController {
     public ResponseEntity<Void> deleteTrip(@PathVariable Long id) {
         if (!tripRepository.existsById(id)) return ResponseEntity.notFound().build();
         tripRepository.deleteById(id);
+        eventPublisher.publishEvent(new TimetableChangedEvent("trip " + id + " deleted", new TimetableChange.TripRemoved(id)));
         return ResponseEntity.noContent().build();
     }
 
@@ -209,11 +303,31 @@ public class AdminController {
                 .map(trip -> {
                     trip.setCalendarType(body.get("calendarType"));
                     tripRepository.save(trip);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("trip " + id + " calendar changed",
+                            new TimetableChange.TripRecalendared(id)));
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Pattern-stored trips keep no row per stop: shifting the start moves every derived stop time at once
+    @PatchMapping("/trips/{id}/start")
+    public ResponseEntity<?> updateTripStart(@PathVariable Long id, @RequestBody Map<String, String> body) {
+        return tripRepository.findById(id)
+                .<ResponseEntity<?>>map(trip -> {
+                    if (trip.getStartTime() == null) {
+                        return ResponseEntity.badRequest()
+                                .body("Trip " + id + " stores a departure per stop; retime them via PATCH /departures/{id}");
+                    }
+                    trip.setStartTime(LocalTime.parse(body.get("startTime")));
+                    tripRepository.save(trip);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("trip " + id + " retimed",
+                            new TimetableChange.TripRetimed(id)));
+                    return ResponseEntity.ok().build();
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/departures")
     public ResponseEntity<Departure> createDeparture(@RequestBody Map<String, String> body) {
         Long tripId = Long.parseLong(body.get("tripId"));
@@ -226,7 +340,10 @@ public class AdminController {
                 dep.setTrip(trip);
                 dep.setBusStop(busStop);
                 dep.setDepartureTime(departureTime);
-                return ResponseEntity.ok(departureRepository.save(dep));
+                Departure saved = departureRepository.save(dep);
+                eventPublisher.publishEvent(new TimetableChangedEvent("departure " + saved.getId() + " added",
+                        new TimetableChange.TripRetimed(trip.getId())));
+                return ResponseEntity.ok(saved);
             })
         ).orElse(ResponseEntity.notFound().build());
     }
@@ -237,6 +354,8 @@ public class AdminController {
                 .map(dep -> {
                     dep.setDepartureTime(LocalTime.parse(body.get("departureTime")));
                     departureRepository.save(dep);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("departure " + id + " retimed",
+                            new TimetableChange.TripRetimed(dep.getTrip().getId())));
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
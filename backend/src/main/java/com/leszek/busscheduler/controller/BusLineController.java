@@ -3,7 +3,9 @@ package com.leszek.busscheduler.controller;
 import com.leszek.busscheduler.domain.BusLine;
 import com.leszek.busscheduler.dto.BusLineDTO;
 import com.leszek.busscheduler.service.BusLineService;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +18,7 @@ import java.util.List;
 public class BusLineController {
 
     private final BusLineService busLineService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @GetMapping
     public ResponseEntity<List<BusLineDTO>> getAllBusLines() {
@@ -47,6 +50,7 @@ public class BusLineController {
                     existingBusLine.setLineNumber(busLineDTO.getLineNumber());
                     existingBusLine.setOperator(busLineDTO.getOperator());
                     BusLine updatedBusLine = busLineService.save(existingBusLine);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("line " + id + " updated"));
                     return ResponseEntity.ok(convertToDto(updatedBusLine));
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -55,6 +59,7 @@ public class BusLineController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBusLine(@PathVariable Long id) {
         if (busLineService.deleteById(id)) {
+            eventPublisher.publishEvent(new TimetableChangedEvent("line " + id + " deleted"));
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
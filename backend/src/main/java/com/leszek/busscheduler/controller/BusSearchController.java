@@ -1,17 +1,26 @@
 package com.leszek.busscheduler.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.leszek.busscheduler.dto.ConnectionDTO;
+import com.leszek.busscheduler.dto.JourneyDTO;
+import com.leszek.busscheduler.dto.JourneyRequest;
+import com.leszek.busscheduler.dto.ProfileRequest;
 import com.leszek.busscheduler.dto.SearchRequest;
 import com.leszek.busscheduler.service.BusSearchService;
+import com.leszek.busscheduler.timetable.JourneyEngine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.format.annotation.DateTimeFormat;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -21,15 +30,57 @@ import java.util.List;
 public class BusSearchController {
 
     private final BusSearchService busSearchService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<List<ConnectionDTO>> search(
             @RequestParam(name = "fromId") Long fromId,
             @RequestParam(name = "toId") Long toId,
             @RequestParam(name = "time") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
-            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        SearchRequest request = new SearchRequest(fromId, toId, time, date);
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "arriveBy", defaultValue = "false") boolean arriveBy) {
+        SearchRequest request = new SearchRequest(fromId, toId, time, date, arriveBy);
         List<ConnectionDTO> results = busSearchService.search(request);
         return ResponseEntity.ok(results);
     }
+
+    @GetMapping("/journeys")
+    public ResponseEntity<List<JourneyDTO>> searchJourneys(
+            @RequestParam(name = "fromId") Long fromId,
+            @RequestParam(name = "toId") Long toId,
+            @RequestParam(name = "time") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "maxTransfers", required = false) Integer maxTransfers,
+            @RequestParam(name = "minTransferMinutes", required = false) Integer minTransferMinutes,
+            @RequestParam(name = "engine", required = false) JourneyEngine.Type engine) {
+        JourneyRequest request = new JourneyRequest(fromId, toId, time, date, maxTransfers, minTransferMinutes, engine);
+        return ResponseEntity.ok(busSearchService.planJourneys(request));
+    }
+
+    @GetMapping("/profile")
+    public ResponseEntity<List<JourneyDTO>> searchProfile(
+            @RequestParam(name = "fromId") Long fromId,
+            @RequestParam(name = "toId") Long toId,
+            @RequestParam(name = "timeFrom") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime timeFrom,
+            @RequestParam(name = "timeTo") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime timeTo,
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "maxTransfers", required = false) Integer maxTransfers,
+            @RequestParam(name = "minTransferMinutes", required = false) Integer minTransferMinutes) {
+        ProfileRequest request = new ProfileRequest(fromId, toId, timeFrom, timeTo, date, maxTransfers, minTransferMinutes);
+        return ResponseEntity.ok(busSearchService.searchProfile(request));
+    }
+
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> searchBatch(@RequestBody List<SearchRequest> requests) {
+        if (requests.size() > BusSearchService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            busSearchService.searchBatch(requests, writer::writeLine);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
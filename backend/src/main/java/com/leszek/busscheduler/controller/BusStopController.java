@@ -1,25 +1,38 @@
 package com.leszek.busscheduler.controller;
 
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.domain.BusStop;
 import com.leszek.busscheduler.dto.BusStopDTO;
+import com.leszek.busscheduler.dto.StopClusterDTO;
 import com.leszek.busscheduler.repository.BusStopRepository;
 import com.leszek.busscheduler.repository.RouteRepository;
+import com.leszek.busscheduler.timetable.StopSpatialIndex;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import com.leszek.busscheduler.timetable.TimetableProvider;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.Comparator;
 
 @RestController
 @RequestMapping("/api/v1/busstops")
 @RequiredArgsConstructor
 public class BusStopController {
 
+    private static final int MAX_NEARBY_STOPS = 100;
+    private static final int MAX_MAP_ZOOM = 22;
+
     private final BusStopRepository busStopRepository;
     private final RouteRepository routeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TimetableProvider timetableProvider;
+    private final TimetableProperties timetableProperties;
 
     @GetMapping
     public ResponseEntity<List<BusStopDTO>> getAllBusStops() {
@@ -41,6 +54,7 @@ public class BusStopController {
     public ResponseEntity<BusStopDTO> createBusStop(@RequestBody BusStopDTO busStopDTO) {
         BusStop busStop = convertToEntity(busStopDTO);
         BusStop savedBusStop = busStopRepository.save(busStop);
+        eventPublisher.publishEvent(new TimetableChangedEvent("stop " + savedBusStop.getId() + " created"));
         return new ResponseEntity<>(convertToDto(savedBusStop), HttpStatus.CREATED);
     }
 
@@ -54,6 +68,7 @@ public class BusStopController {
                     existingBusStop.setLongitude(busStopDTO.getLongitude());
                     existingBusStop.setDirection(busStopDTO.getDirection());
                     BusStop updatedBusStop = busStopRepository.save(existingBusStop);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("stop " + id + " updated"));
                     return ResponseEntity.ok(convertToDto(updatedBusStop));
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -63,6 +78,7 @@ public class BusStopController {
     public ResponseEntity<Void> deleteBusStop(@PathVariable Long id) {
         if (busStopRepository.existsById(id)) {
             busStopRepository.deleteById(id);
+            eventPublisher.publishEvent(new TimetableChangedEvent("stop " + id + " deleted"));
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -98,59 +114,103 @@ public class BusStopController {
                 .build();
     }
 
+    // k nearest stops, optionally within radiusMeters: from the in-memory grid when searches run on the
+    // timetable, otherwise one KNN scan of the PostGIS GiST index
     @GetMapping("/nearby")
     public ResponseEntity<List<BusStopDTO>> getNearbyStops(
             @RequestParam Double lat,
-            @RequestParam Double lon) {
-        // BoundingBox pre-filter (±0.02° ≈ ~2 km)
-        double delta = 0.02;
-        List<Object[]> rawResults = busStopRepository
-                .findWithinBoundingBoxWithDirectionsNative(lat - delta, lat + delta, lon - delta, lon + delta);
-
-        List<BusStopDTO> nearbyStops = rawResults.stream()
-                .map(row -> {
-                    Long id = ((Number) row[0]).longValue();
-                    String name = (String) row[1];
-                    String city = (String) row[2];
-                    Double bLat = row[3] != null ? ((Number) row[3]).doubleValue() : null;
-                    Double bLon = row[4] != null ? ((Number) row[4]).doubleValue() : null;
-                    String direction = (String) row[5];
-                    String directionsStr = (String) row[6];
-
-                    List<String> directions = directionsStr != null 
-                            ? List.of(directionsStr.split(";")) 
-                            : List.of();
-
-                    // If direction is not null/empty, we should prefer it as the only direction or add it
-                    if (direction != null && !direction.isBlank() && directions.isEmpty()) {
-                        directions = List.of(direction);
-                    }
+            @RequestParam Double lon,
+            @RequestParam(defaultValue = "4") int k,
+            @RequestParam(required = false) Double radiusMeters) {
+        int limit = Math.max(1, Math.min(k, MAX_NEARBY_STOPS));
+        return ResponseEntity.ok(timetableProperties.isTimetableSearch()
+                ? nearbyFromTimetable(lat, lon, limit, radiusMeters)
+                : nearbyFromDatabase(lat, lon, limit, radiusMeters));
+    }
 
+    private List<BusStopDTO> nearbyFromTimetable(double lat, double lon, int limit, Double radiusMeters) {
+        Timetable timetable = timetableProvider.get();
+        StopSpatialIndex index = timetable.spatialIndex();
+        double radiusKm = radiusMeters != null ? radiusMeters / 1000 : Double.POSITIVE_INFINITY;
+
+        return index.nearest(lat, lon, limit, radiusKm).stream()
+                .map(hit -> {
+                    int stop = hit.stop();
                     return BusStopDTO.builder()
-                            .id(id)
-                            .name(name)
-                            .city(city)
-                            .latitude(bLat)
-                            .longitude(bLon)
-                            .direction(direction)
-                            .directions(directions)
-                            .distance(haversineKm(lat, lon, bLat, bLon))
+                            .id(timetable.stopId(stop))
+                            .name(timetable.stopName(stop))
+                            .city(timetable.stopCity(stop))
+                            .latitude(timetable.latitude(stop))
+                            .longitude(timetable.longitude(stop))
+                            .direction(timetable.stopDirection(stop))
+                            .directions(index.directions(stop))
+                            .distance(hit.distanceKm())
+                            .areaId(timetable.stopAreas().areaId(timetable.stopAreas().area(stop)))
                             .build();
                 })
-                .sorted(Comparator.comparingDouble(BusStopDTO::getDistance))
-                .limit(4)
                 .toList();
-        return ResponseEntity.ok(nearbyStops);
     }
 
-    /** Haversine formula — returns distance in km */
-    private double haversineKm(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371.0;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        return R * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    private List<BusStopDTO> nearbyFromDatabase(double lat, double lon, int limit, Double radiusMeters) {
+        List<BusStopRepository.NearestBusStop> rows = radiusMeters != null
+                ? busStopRepository.findNearestWithin(lat, lon, radiusMeters, limit)
+                : busStopRepository.findNearest(lat, lon, limit);
+
+        // Areas only exist in the timetable; a stop added since the last rebuild has none yet
+        Timetable timetable = timetableProvider.get();
+        return rows.stream()
+                .map(row -> BusStopDTO.builder()
+                        .id(row.getId())
+                        .name(row.getName())
+                        .city(row.getCity())
+                        .latitude(row.getLatitude())
+                        .longitude(row.getLongitude())
+                        .direction(row.getDirection())
+                        .directions(directions(row))
+                        .distance(row.getDistanceMeters() / 1000)
+                        .areaId(areaId(timetable, row.getId()))
+                        .build())
+                .toList();
+    }
+
+    private static Long areaId(Timetable timetable, Long stopId) {
+        int stop = timetable.stopIndex(stopId);
+        if (stop < 0) return null;
+        return timetable.stopAreas().areaId(timetable.stopAreas().area(stop));
+    }
+
+    // Same precedence as the in-memory index: directions of the routes serving the stop, else its own
+    private static List<String> directions(BusStopRepository.NearestBusStop row) {
+        if (row.getRouteDirections() != null && !row.getRouteDirections().isBlank()) {
+            return Arrays.stream(row.getRouteDirections().split(";")).sorted().toList();
+        }
+        if (row.getDirection() != null && !row.getDirection().isBlank()) {
+            return List.of(row.getDirection());
+        }
+        return List.of();
+    }
+
+    // Map points for bbox=minLon,minLat,maxLon,maxLat: clusters up to StopClusterIndex.MAX_CLUSTER_ZOOM, stops above
+    @GetMapping("/viewport")
+    public ResponseEntity<List<StopClusterDTO>> getViewport(@RequestParam String bbox, @RequestParam int zoom) {
+        double[] box;
+        try {
+            box = Arrays.stream(bbox.split(",")).mapToDouble(Double::parseDouble).toArray();
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (box.length != 4 || box[0] > box[2] || box[1] > box[3] || zoom < 0 || zoom > MAX_MAP_ZOOM) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Timetable timetable = timetableProvider.get();
+        List<StopClusterDTO> points = timetable.stopClusters().viewport(box[1], box[0], box[3], box[2], zoom).stream()
+                .map(cluster -> cluster.stop() < 0
+                        ? new StopClusterDTO(cluster.latitude(), cluster.longitude(), cluster.count(), null, null, null)
+                        : new StopClusterDTO(cluster.latitude(), cluster.longitude(), 1,
+                                timetable.stopId(cluster.stop()), timetable.stopName(cluster.stop()),
+                                timetable.stopCity(cluster.stop())))
+                .toList();
+        return ResponseEntity.ok(points);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,10 @@
 package com.leszek.busscheduler.controller;
 
+import com.leszek.busscheduler.board.DepartureBoardStreams;
+import com.leszek.busscheduler.board.DepartureBoardTicker;
+import com.leszek.busscheduler.dto.DepartureBoardsDTO;
 import com.leszek.busscheduler.dto.StopDepartureDTO;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import org.springframework.format.annotation.DateTimeFormat;
 
@@ -12,23 +16,37 @@ import com.leszek.busscheduler.dto.DepartureDTO;
 import com.leszek.busscheduler.repository.BusStopRepository;
 import com.leszek.busscheduler.repository.DepartureRepository;
 import com.leszek.busscheduler.repository.TripRepository;
+import com.leszek.busscheduler.service.DepartureBoardService;
+import com.leszek.busscheduler.timetable.TimetableChange;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.Comparator;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1/departures")
 @RequiredArgsConstructor
 public class DepartureController {
 
+    private static final int MAX_BOARD_WAIT_SECONDS = 60;
+
     private final DepartureRepository departureRepository;
     private final TripRepository tripRepository;
     private final BusStopRepository busStopRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DepartureBoardService departureBoardService;
+    private final DepartureBoardTicker departureBoardTicker;
+    private final DepartureBoardStreams departureBoardStreams;
 
     @GetMapping
     public ResponseEntity<List<DepartureDTO>> getAllDepartures() {
@@ -62,6 +80,8 @@ public class DepartureController {
                 .build();
 
         Departure savedDeparture = departureRepository.save(departure);
+        eventPublisher.publishEvent(new TimetableChangedEvent("departure " + savedDeparture.getId() + " created",
+                new TimetableChange.TripRetimed(trip.get().getId())));
         return new ResponseEntity<>(convertToDto(savedDeparture), HttpStatus.CREATED);
     }
 
@@ -72,31 +92,86 @@ public class DepartureController {
                 .tripId(departure.getTrip().getId())
                 .busStopId(departure.getBusStop().getId())
                 .build();
-    }    @GetMapping("/stop/{stopId}")
+    }
+
+    @GetMapping("/stop/{stopId}")
     public ResponseEntity<List<StopDepartureDTO>> getDeparturesByStop(
             @PathVariable Long stopId,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time) {
-        
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
         LocalTime searchTime = (time != null) ? time : LocalTime.now();
-        
-        // Najpierw pobieramy nazwę wybranego przystanku
-        BusStop stop = busStopRepository.findById(stopId)
-                .orElseThrow(() -> new IllegalArgumentException("Stop not found"));
-        
-        // Szukamy wszystkich odjazdów z przystanków o tej samej nazwie
-        // To łączy przystanki o różnych ID (stare/nowe po edycji)
-        List<StopDepartureDTO> departures = departureRepository.findAll().stream()
-                .filter(d -> d.getBusStop().getName().equals(stop.getName()))
-                .filter(d -> !d.getDepartureTime().isBefore(searchTime))
-                .map(d -> StopDepartureDTO.builder()
-                        .lineName(d.getTrip().getRoute().getBusLine().getLineNumber())
-                        .departureTime(d.getDepartureTime())
-                        .direction(d.getTrip().getRoute().getDirection())
-                        .build())
-                .sorted(Comparator.comparing(StopDepartureDTO::getDepartureTime))
-                .limit(10)
-                .toList();
-                
-        return ResponseEntity.ok(departures);
+        LocalDate searchDate = (date != null) ? date : LocalDate.now();
+
+        // Covers every stop with the same name (old/new ids after an edit), see DepartureBoardService
+        return ResponseEntity.ok(departureBoardService.nextDepartures(stopId, searchTime, searchDate, limit));
+    }
+
+    /**
+     * Live board of one stop as Server-Sent Events: a {@code board} event with the current
+     * departures, then a {@code diff} event each time the board changes.
+     */
+    @GetMapping(path = "/stop/{stopId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDeparturesByStop(
+            @PathVariable Long stopId,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(departureBoardStreams.open(stopId, limit));
+    }
+
+    /**
+     * Live boards for several stops. A client that sends the last ETag back in If-None-Match is
+     * held until a board changes (next minute or timetable edit) or {@code waitSeconds} pass,
+     * in which case it gets 304 without a body.
+     */
+    @GetMapping("/boards")
+    public DeferredResult<ResponseEntity<DepartureBoardsDTO>> getBoards(
+            @RequestParam List<Long> stopIds,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "30") int waitSeconds,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!isValidLimit(limit) || stopIds.isEmpty() || stopIds.size() > DepartureBoardService.MAX_BOARD_STOPS) {
+            DeferredResult<ResponseEntity<DepartureBoardsDTO>> rejected = new DeferredResult<>();
+            rejected.setResult(ResponseEntity.badRequest().build());
+            return rejected;
+        }
+        Supplier<DepartureBoardsDTO> compute =
+                () -> departureBoardService.boards(stopIds, LocalTime.now(), LocalDate.now(), limit);
+        DepartureBoardsDTO boards = compute.get();
+        String knownVersion = ifNoneMatch != null ? ifNoneMatch.replace("W/", "").replace("\"", "").trim() : null;
+        long timeoutMillis = Math.clamp(waitSeconds, 0, MAX_BOARD_WAIT_SECONDS) * 1000L;
+
+        DeferredResult<ResponseEntity<DepartureBoardsDTO>> result = new DeferredResult<>(timeoutMillis > 0 ? timeoutMillis : null);
+        if (!boards.version().equals(knownVersion)) {
+            result.setResult(boardResponse(boards));
+            return result;
+        }
+        if (timeoutMillis == 0) {
+            result.setResult(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(knownVersion).build());
+            return result;
+        }
+
+        Runnable listener = () -> {
+            DepartureBoardsDTO fresh = compute.get();
+            if (!fresh.version().equals(knownVersion)) result.setResult(boardResponse(fresh));
+        };
+        result.onTimeout(() -> result.setResult(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(knownVersion).build()));
+        result.onCompletion(() -> departureBoardTicker.unsubscribe(listener));
+        departureBoardTicker.subscribe(listener);
+        return result;
+    }
+
+    // Board length goes straight into the page size, so it is bounded here rather than trusted
+    private static boolean isValidLimit(int limit) {
+        return limit >= 1 && limit <= DepartureBoardService.MAX_LIMIT;
+    }
+
+    private ResponseEntity<DepartureBoardsDTO> boardResponse(DepartureBoardsDTO boards) {
+        return ResponseEntity.ok().eTag(boards.version()).body(boards);
     }
-}
\ No newline at end of file
+}
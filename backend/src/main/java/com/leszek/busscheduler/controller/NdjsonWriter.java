@@ -0,0 +1,32 @@
+package com.leszek.busscheduler.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// Lines arrive from worker threads in completion order; each one is written whole and flushed so clients see it immediately
+final class NdjsonWriter {
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+
+    NdjsonWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+
+    void writeLine(Object value) {
+        try {
+            byte[] line = objectMapper.writeValueAsBytes(value);
+            synchronized (out) {
+                out.write(line);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
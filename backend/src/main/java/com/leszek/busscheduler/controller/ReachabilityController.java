@@ -0,0 +1,40 @@
+package com.leszek.busscheduler.controller;
+
+import com.leszek.busscheduler.dto.ReachabilityRequest;
+import com.leszek.busscheduler.dto.ReachableStopDTO;
+import com.leszek.busscheduler.service.ReachabilityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/reachability")
+@RequiredArgsConstructor
+public class ReachabilityController {
+
+    private final ReachabilityService reachabilityService;
+
+    @GetMapping
+    public ResponseEntity<List<ReachableStopDTO>> getReachableStops(
+            @RequestParam(name = "fromId", required = false) Long fromId,
+            @RequestParam(name = "lat", required = false) Double lat,
+            @RequestParam(name = "lon", required = false) Double lon,
+            @RequestParam(name = "time") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+            @RequestParam(name = "maxMinutes") int maxMinutes,
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "minTransferMinutes", required = false) Integer minTransferMinutes) {
+        if (fromId == null && (lat == null || lon == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ReachabilityRequest request = new ReachabilityRequest(fromId, lat, lon, time, date, maxMinutes, minTransferMinutes);
+        return ResponseEntity.ok(reachabilityService.findReachable(request));
+    }
+}
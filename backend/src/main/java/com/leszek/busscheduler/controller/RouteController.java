@@ -2,8 +2,12 @@ package com.leszek.busscheduler.controller;
 
 import com.leszek.busscheduler.domain.Route;        
 import com.leszek.busscheduler.dto.RouteDTO;        
+import com.leszek.busscheduler.dto.RouteShapeDTO;
 import com.leszek.busscheduler.service.RouteService;
+import com.leszek.busscheduler.service.RouteShapeService;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;     
 import org.springframework.web.bind.annotation.*;   
@@ -16,6 +20,8 @@ import java.util.List;
 public class RouteController {
 
     private final RouteService routeService;        
+    private final RouteShapeService routeShapeService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @GetMapping
     public ResponseEntity<List<RouteDTO>> getAllRoutes() {
@@ -33,6 +39,15 @@ public class RouteController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Encoded polyline of the route simplified for the zoom; full resolution without one
+    @GetMapping("/{id}/shape")
+    public ResponseEntity<RouteShapeDTO> getRouteShape(@PathVariable Long id,
+                                                       @RequestParam(required = false) Integer zoom) {
+        return routeShapeService.findShape(id, zoom)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @PostMapping
     public ResponseEntity<RouteDTO> createRoute(@RequestBody RouteDTO routeDTO) {
         try {
@@ -46,6 +61,10 @@ public class RouteController {
     @PutMapping("/{id}")
     public ResponseEntity<RouteDTO> updateRoute(@PathVariable Long id, @RequestBody RouteDTO routeDTO) {
         return routeService.updateRoute(id, routeDTO)
+                .map(route -> {
+                    eventPublisher.publishEvent(new TimetableChangedEvent("route " + id + " updated"));
+                    return route;
+                })
                 .map(this::convertToDto)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -54,6 +73,7 @@ public class RouteController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteRoute(@PathVariable Long id) {
         routeService.deleteRoute(id);
+        eventPublisher.publishEvent(new TimetableChangedEvent("route " + id + " deleted"));
         return ResponseEntity.noContent().build();
     }
 
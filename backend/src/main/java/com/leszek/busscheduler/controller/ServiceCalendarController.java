@@ -0,0 +1,95 @@
+package com.leszek.busscheduler.controller;
+
+import com.leszek.busscheduler.domain.ServiceCalendar;
+import com.leszek.busscheduler.domain.ServiceCalendarException;
+import com.leszek.busscheduler.dto.ServiceCalendarDTO;
+import com.leszek.busscheduler.repository.ServiceCalendarRepository;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/calendars")
+@RequiredArgsConstructor
+public class ServiceCalendarController {
+
+    private final ServiceCalendarRepository serviceCalendarRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @GetMapping
+    @Transactional(readOnly = true)
+    public List<ServiceCalendarDTO> getAllCalendars() {
+        return serviceCalendarRepository.findAll().stream()
+                .map(this::convertToDto)
+                .toList();
+    }
+
+    // Creates or replaces the rule of one calendar type, exceptions included
+    @PostMapping
+    @Transactional
+    public ResponseEntity<ServiceCalendarDTO> saveCalendar(@RequestBody ServiceCalendarDTO dto) {
+        if (dto.getCalendarType() == null || dto.getCalendarType().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ServiceCalendar calendar = serviceCalendarRepository.findByCalendarType(dto.getCalendarType())
+                .orElseGet(() -> ServiceCalendar.builder()
+                        .calendarType(dto.getCalendarType())
+                        .exceptions(new HashSet<>())
+                        .build());
+        calendar.setStartDate(dto.getStartDate());
+        calendar.setEndDate(dto.getEndDate());
+        calendar.setWeekdays(dto.getWeekdays());
+        calendar.getExceptions().clear();
+        if (dto.getExceptions() != null) {
+            for (ServiceCalendarDTO.ExceptionDate exception : dto.getExceptions()) {
+                calendar.getExceptions().add(ServiceCalendarException.builder()
+                        .calendar(calendar)
+                        .date(exception.getDate())
+                        .added(exception.isAdded())
+                        .reason(exception.getReason())
+                        .build());
+            }
+        }
+
+        ServiceCalendar saved = serviceCalendarRepository.save(calendar);
+        eventPublisher.publishEvent(new TimetableChangedEvent("calendar " + saved.getCalendarType() + " saved"));
+        return ResponseEntity.ok(convertToDto(saved));
+    }
+
+    @DeleteMapping("/{calendarType}")
+    @Transactional
+    public ResponseEntity<Void> deleteCalendar(@PathVariable String calendarType) {
+        return serviceCalendarRepository.findByCalendarType(calendarType)
+                .map(calendar -> {
+                    serviceCalendarRepository.delete(calendar);
+                    eventPublisher.publishEvent(new TimetableChangedEvent("calendar " + calendarType + " deleted"));
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ServiceCalendarDTO convertToDto(ServiceCalendar calendar) {
+        return ServiceCalendarDTO.builder()
+                .calendarType(calendar.getCalendarType())
+                .startDate(calendar.getStartDate())
+                .endDate(calendar.getEndDate())
+                .weekdays(calendar.getWeekdays())
+                .exceptions(calendar.getExceptions() == null ? List.of() : calendar.getExceptions().stream()
+                        .sorted(Comparator.comparing(ServiceCalendarException::getDate))
+                        .map(exception -> ServiceCalendarDTO.ExceptionDate.builder()
+                                .date(exception.getDate())
+                                .added(exception.isAdded())
+                                .reason(exception.getReason())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.leszek.busscheduler.controller;
+
+import com.leszek.busscheduler.config.TileProperties;
+import com.leszek.busscheduler.dto.VectorTileDTO;
+import com.leszek.busscheduler.service.StopTileService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/api/v1/tiles")
+@RequiredArgsConstructor
+public class TileController {
+
+    static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+    private static final int MAX_ZOOM = 22;
+
+    private final StopTileService stopTileService;
+    private final TileProperties tileProperties;
+
+    // Stop layer as a Mapbox Vector Tile; the ETag is the timetable version, so revalidation after max-age is a 304
+    @GetMapping("/stops/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getStopTile(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            return ResponseEntity.badRequest().build();
+        }
+        VectorTileDTO tile = stopTileService.stopTile(z, x, y);
+        return ResponseEntity.ok()
+                .contentType(MVT)
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(tileProperties.getMaxAgeSeconds())).cachePublic())
+                .eTag("\"stops-" + tile.version() + "\"")
+                .body(tile.data());
+    }
+}
@@ -0,0 +1,127 @@
+package com.leszek.busscheduler.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leszek.busscheduler.dto.TravelMatrixDTO;
+import com.leszek.busscheduler.dto.TravelMatrixRequest;
+import com.leszek.busscheduler.dto.TravelMatrixRowDTO;
+import com.leszek.busscheduler.service.TravelMatrixService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Stop × stop travel-time matrix (minutes, -1 when unreachable).
+ * <ul>
+ *   <li>{@code format=json} (default) — one {@link TravelMatrixDTO}</li>
+ *   <li>{@code format=ndjson} — header line, then one {@link TravelMatrixRowDTO} per origin as it completes</li>
+ *   <li>{@code format=binary} — big-endian: origin count, destination count (int32), origin ids,
+ *       destination ids (int64), then per origin its row index and minutes (int32)</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/v1/matrix")
+@RequiredArgsConstructor
+public class TravelMatrixController {
+
+    private final TravelMatrixService travelMatrixService;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping
+    public ResponseEntity<TravelMatrixDTO> getMatrix(
+            @RequestParam(name = "fromIds", required = false) List<Long> fromIds,
+            @RequestParam(name = "toIds", required = false) List<Long> toIds,
+            @RequestParam(name = "time") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "minTransferMinutes", required = false) Integer minTransferMinutes) {
+        TravelMatrixRequest request = new TravelMatrixRequest(fromIds, toIds, time, date, minTransferMinutes);
+        return ResponseEntity.ok(travelMatrixService.compute(request));
+    }
+
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamMatrixNdjson(
+            @RequestParam(name = "fromIds", required = false) List<Long> fromIds,
+            @RequestParam(name = "toIds", required = false) List<Long> toIds,
+            @RequestParam(name = "time") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "minTransferMinutes", required = false) Integer minTransferMinutes) {
+        TravelMatrixRequest request = new TravelMatrixRequest(fromIds, toIds, time, date, minTransferMinutes);
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            travelMatrixService.stream(request, new TravelMatrixService.RowSink() {
+                @Override
+                public void header(List<Long> origins, List<Long> destinations) {
+                    writer.writeLine(new TravelMatrixDTO(time, origins, destinations, null));
+                }
+
+                @Override
+                public void row(TravelMatrixRowDTO row) {
+                    writer.writeLine(row);
+                }
+            });
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping(params = "format=binary")
+    public ResponseEntity<StreamingResponseBody> streamMatrixBinary(
+            @RequestParam(name = "fromIds", required = false) List<Long> fromIds,
+            @RequestParam(name = "toIds", required = false) List<Long> toIds,
+            @RequestParam(name = "time") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "minTransferMinutes", required = false) Integer minTransferMinutes) {
+        TravelMatrixRequest request = new TravelMatrixRequest(fromIds, toIds, time, date, minTransferMinutes);
+        StreamingResponseBody body = out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            travelMatrixService.stream(request, new TravelMatrixService.RowSink() {
+                @Override
+                public void header(List<Long> origins, List<Long> destinations) {
+                    writeBinary(data, () -> {
+                        data.writeInt(origins.size());
+                        data.writeInt(destinations.size());
+                        for (Long id : origins) data.writeLong(id);
+                        for (Long id : destinations) data.writeLong(id);
+                    });
+                }
+
+                @Override
+                public void row(TravelMatrixRowDTO row) {
+                    writeBinary(data, () -> {
+                        data.writeInt(row.index());
+                        for (int minutes : row.minutes()) data.writeInt(minutes);
+                    });
+                }
+            });
+            data.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+    }
+
+    private interface BinaryWrite {
+        void write() throws IOException;
+    }
+
+    // Rows come from worker threads; each one is written whole and flushed
+    private void writeBinary(DataOutputStream data, BinaryWrite write) {
+        try {
+            synchronized (data) {
+                write.write();
+                data.flush();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
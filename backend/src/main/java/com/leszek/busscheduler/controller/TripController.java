@@ -5,7 +5,10 @@ import com.leszek.busscheduler.domain.Trip;
 import com.leszek.busscheduler.dto.TripDTO;
 import com.leszek.busscheduler.repository.RouteRepository;
 import com.leszek.busscheduler.repository.TripRepository;
+import com.leszek.busscheduler.timetable.TimetableChange;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +23,7 @@ public class TripController {
 
     private final TripRepository tripRepository;
     private final RouteRepository routeRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @GetMapping
     public ResponseEntity<List<TripDTO>> getAllTrips() {
@@ -50,6 +54,8 @@ public class TripController {
                 .build();
 
         Trip savedTrip = tripRepository.save(trip);
+        eventPublisher.publishEvent(new TimetableChangedEvent("trip " + savedTrip.getId() + " created",
+                new TimetableChange.TripAdded(savedTrip.getId())));
         return new ResponseEntity<>(convertToDto(savedTrip), HttpStatus.CREATED);
     }
 
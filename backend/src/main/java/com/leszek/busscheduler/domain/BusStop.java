@@ -4,9 +4,8 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "bus_stops", indexes = {
-    @Index(name = "idx_bus_stop_lat_lon", columnList = "latitude, longitude")
-})
+// Kolumna geography "location" i jej indeks GiST powstają w schema.sql (PostGIS, poza encją)
+@Table(name = "bus_stops")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -6,7 +6,9 @@ import java.time.LocalTime;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 @Entity
-@Table(name = "departures")
+@Table(name = "departures", indexes = {
+        @Index(name = "idx_departures_stop_time", columnList = "bus_stop_id, departure_time")
+})
 @Getter
 @Setter
 @NoArgsConstructor
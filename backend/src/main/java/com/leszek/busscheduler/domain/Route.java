@@ -24,6 +24,11 @@ public class Route {
     private String variantName;
     private String direction;
 
+    // Imported geometry as an encoded polyline (full resolution); null means the shape is derived from the stops
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT")
+    private String shape;
+
     @JsonBackReference
     @ManyToOne
     @JoinColumn(name = "bus_line_id", nullable = false)
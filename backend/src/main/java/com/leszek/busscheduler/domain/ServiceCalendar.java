@@ -0,0 +1,42 @@
+package com.leszek.busscheduler.domain;
+
+import com.fasterxml.jackson.annotation.JsonManagedReference;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Service pattern behind a {@link Trip#getCalendarType() calendar type}: the weekdays it runs
+ * on within an optional date range, corrected by single-date exceptions.
+ */
+@Entity
+@Table(name = "service_calendars")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ServiceCalendar {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Same code as Trip.calendarType, e.g. "WORKDAYS"
+    @Column(nullable = false, unique = true)
+    private String calendarType;
+
+    // Open-ended when null
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    // Bit 0 = Monday ... bit 6 = Sunday
+    @Column(nullable = false)
+    private int weekdays;
+
+    @JsonManagedReference
+    @OneToMany(mappedBy = "calendar", cascade = CascadeType.ALL, orphanRemoval = true)
+    private Set<ServiceCalendarException> exceptions;
+}
@@ -0,0 +1,40 @@
+package com.leszek.busscheduler.domain;
+
+import com.fasterxml.jackson.annotation.JsonBackReference;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * One date on which a {@link ServiceCalendar} runs although its weekdays say no ({@code added}),
+ * or does not run although they say yes (public holidays, school breaks).
+ */
+@Entity
+@Table(name = "service_calendar_exceptions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_calendar_exception_date", columnNames = {"calendar_id", "service_date"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ServiceCalendarException {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonBackReference
+    @ManyToOne
+    @JoinColumn(name = "calendar_id", nullable = false)
+    private ServiceCalendar calendar;
+
+    @Column(name = "service_date", nullable = false)
+    private LocalDate date;
+
+    @Column(nullable = false)
+    private boolean added;
+
+    private String reason;     // np. "Boże Narodzenie"
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import lombok.*;
+import java.time.LocalTime;
 import java.util.Set;
 
 @Entity
@@ -26,6 +27,10 @@ public class Trip {
 
     private String calendarType;
 
+    // Pattern storage: stop times are startTime + RouteStop.timeOffsetMinutes and the departures
+    // hold only stops that deviate from that. Null when every stop has its own departure row.
+    private LocalTime startTime;
+
     @JsonManagedReference
     @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL)
     private Set<Departure> departures;
@@ -0,0 +1,10 @@
+package com.leszek.busscheduler.dto;
+
+import java.util.List;
+
+// One NDJSON line of /api/v1/search/batch; index points into the request list, error is set instead of connections
+public record BatchSearchResult(
+        int index,
+        List<ConnectionDTO> connections,
+        String error
+) {}
@@ -15,4 +15,6 @@ public class BusStopDTO {
     String direction;
     Double distance;
     List<String> directions;
+    // Stop area (parent station) id from the in-memory timetable, null for stops it does not know yet
+    Long areaId;
 }
@@ -0,0 +1,9 @@
+package com.leszek.busscheduler.dto;
+
+import java.util.List;
+
+// version changes only when some board's content changes; it is sent back as the ETag
+public record DepartureBoardsDTO(
+        String version,
+        List<StopBoardDTO> boards
+) {}
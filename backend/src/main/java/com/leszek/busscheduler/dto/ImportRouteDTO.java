@@ -13,4 +13,6 @@ public class ImportRouteDTO {
     private String direction;
     private List<ImportRouteStopDTO> stops;
     private List<ImportTripDTO> trips;
+    // Optional route geometry as [latitude, longitude] pairs; without it the shape joins the stops
+    private List<List<Double>> shape;
 }
@@ -0,0 +1,13 @@
+package com.leszek.busscheduler.dto;
+
+import java.time.LocalTime;
+import java.util.List;
+
+// Multi-leg variant of ConnectionDTO returned by the journey planner
+public record JourneyDTO(
+        LocalTime departureTime,
+        LocalTime arrivalTime,
+        int durationMinutes,
+        int transfers,
+        List<JourneyLegDTO> legs
+) {}
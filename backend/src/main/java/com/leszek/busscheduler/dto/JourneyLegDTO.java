@@ -0,0 +1,15 @@
+package com.leszek.busscheduler.dto;
+
+import java.time.LocalTime;
+
+// One ride of a journey: board at fromStop, stay on the same trip, alight at toStop
+public record JourneyLegDTO(
+        String lineName,
+        String direction,
+        Long fromStopId,
+        String fromStopName,
+        Long toStopId,
+        String toStopName,
+        LocalTime departureTime,
+        LocalTime arrivalTime
+) {}
@@ -0,0 +1,17 @@
+package com.leszek.busscheduler.dto;
+
+import com.leszek.busscheduler.timetable.JourneyEngine;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// engine / maxTransfers / minTransferMinutes fall back to the configured defaults when null
+public record JourneyRequest(
+        Long fromId,
+        Long toId,
+        LocalTime time,
+        LocalDate date,
+        Integer maxTransfers,
+        Integer minTransferMinutes,
+        JourneyEngine.Type engine
+) {}
@@ -0,0 +1,15 @@
+package com.leszek.busscheduler.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Departures from fromId between timeFrom and timeTo; maxTransfers / minTransferMinutes fall back to the configured defaults when null
+public record ProfileRequest(
+        Long fromId,
+        Long toId,
+        LocalTime timeFrom,
+        LocalTime timeTo,
+        LocalDate date,
+        Integer maxTransfers,
+        Integer minTransferMinutes
+) {}
@@ -0,0 +1,15 @@
+package com.leszek.busscheduler.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Origin is fromId, or lat/lon with every stop within walking distance; minTransferMinutes falls back to the configured default
+public record ReachabilityRequest(
+        Long fromId,
+        Double lat,
+        Double lon,
+        LocalTime time,
+        LocalDate date,
+        int maxMinutes,
+        Integer minTransferMinutes
+) {}
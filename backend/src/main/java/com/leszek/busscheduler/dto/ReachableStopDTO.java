@@ -0,0 +1,14 @@
+package com.leszek.busscheduler.dto;
+
+import java.time.LocalTime;
+
+// Stop reachable within the budget; minutes counts from the requested time, walking included
+public record ReachableStopDTO(
+        Long id,
+        String name,
+        String city,
+        Double latitude,
+        Double longitude,
+        LocalTime arrivalTime,
+        int minutes
+) {}
@@ -0,0 +1,10 @@
+package com.leszek.busscheduler.dto;
+
+// Route line for the map: an encoded polyline simplified for zoom (null zoom = full resolution)
+public record RouteShapeDTO(
+        Long routeId,
+        Integer zoom,
+        String source,
+        int points,
+        String polyline
+) {}
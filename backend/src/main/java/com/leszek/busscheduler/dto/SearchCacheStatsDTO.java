@@ -0,0 +1,13 @@
+package com.leszek.busscheduler.dto;
+
+// coalesced: requests that waited for an identical in-flight computation instead of starting their own
+public record SearchCacheStatsDTO(
+        boolean enabled,
+        int size,
+        int maxSize,
+        long hits,
+        long coalesced,
+        long misses,
+        long evictions,
+        long invalidations
+) {}
@@ -3,9 +3,16 @@ package com.leszek.busscheduler.dto;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+// arriveBy: time is the latest arrival at toId instead of the earliest departure from fromId
 public record SearchRequest(
         Long fromId,
         Long toId,
         LocalTime time,
-        LocalDate date
-) {}
+        LocalDate date,
+        boolean arriveBy
+) {
+    // Depart-after search, the original mode
+    public SearchRequest(Long fromId, Long toId, LocalTime time, LocalDate date) {
+        this(fromId, toId, time, date, false);
+    }
+}
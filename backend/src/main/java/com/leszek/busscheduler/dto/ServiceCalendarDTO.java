@@ -0,0 +1,25 @@
+package com.leszek.busscheduler.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Value
+@Builder
+public class ServiceCalendarDTO {
+    String calendarType;
+    LocalDate startDate;
+    LocalDate endDate;
+    int weekdays;           // bit 0 = Monday ... bit 6 = Sunday
+    List<ExceptionDate> exceptions;
+
+    @Value
+    @Builder
+    public static class ExceptionDate {
+        LocalDate date;
+        boolean added;
+        String reason;
+    }
+}
@@ -0,0 +1,8 @@
+package com.leszek.busscheduler.dto;
+
+import java.util.List;
+
+public record StopBoardDTO(
+        Long stopId,
+        List<StopDepartureDTO> departures
+) {}
@@ -0,0 +1,9 @@
+package com.leszek.busscheduler.dto;
+
+import java.util.List;
+
+// Patch for a live board: drop the first `removed` departures, then append `added`
+public record StopBoardDiffDTO(
+        int removed,
+        List<StopDepartureDTO> added
+) {}
@@ -0,0 +1,11 @@
+package com.leszek.busscheduler.dto;
+
+// Map point of the viewport: a single stop (count 1, id and name set) or the centroid of count stops
+public record StopClusterDTO(
+        double latitude,
+        double longitude,
+        int count,
+        Long id,
+        String name,
+        String city
+) {}
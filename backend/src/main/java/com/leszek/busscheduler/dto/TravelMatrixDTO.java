@@ -0,0 +1,12 @@
+package com.leszek.busscheduler.dto;
+
+import java.time.LocalTime;
+import java.util.List;
+
+// minutes[i][j]: travel time from origins[i] to destinations[j] departing at time, -1 when unreachable
+public record TravelMatrixDTO(
+        LocalTime time,
+        List<Long> origins,
+        List<Long> destinations,
+        int[][] minutes
+) {}
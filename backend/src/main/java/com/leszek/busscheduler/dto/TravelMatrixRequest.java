@@ -0,0 +1,14 @@
+package com.leszek.busscheduler.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// fromIds / toIds default to every stop, minTransferMinutes to the configured default when null
+public record TravelMatrixRequest(
+        List<Long> fromIds,
+        List<Long> toIds,
+        LocalTime time,
+        LocalDate date,
+        Integer minTransferMinutes
+) {}
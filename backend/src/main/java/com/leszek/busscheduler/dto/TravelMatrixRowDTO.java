@@ -0,0 +1,8 @@
+package com.leszek.busscheduler.dto;
+
+// One origin of a streamed travel-time matrix; index is the row in the header's origin list
+public record TravelMatrixRowDTO(
+        int index,
+        Long originId,
+        int[] minutes
+) {}
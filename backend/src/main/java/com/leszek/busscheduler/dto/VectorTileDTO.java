@@ -0,0 +1,7 @@
+package com.leszek.busscheduler.dto;
+
+// Encoded Mapbox Vector Tile and the timetable version it was cut from (used as the ETag)
+public record VectorTileDTO(
+        byte[] data,
+        long version
+) {}
@@ -0,0 +1,24 @@
+package com.leszek.busscheduler.geo;
+
+/**
+ * Distance helpers shared by the stop lookups.
+ */
+public final class GeoUtils {
+
+    /** How far a journey may start on foot from a coordinate. */
+    public static final double WALKING_RADIUS_KM = 2.0;
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private GeoUtils() {}
+
+    /** Haversine formula — returns distance in km */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
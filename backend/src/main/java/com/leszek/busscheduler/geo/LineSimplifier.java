@@ -0,0 +1,74 @@
+package com.leszek.busscheduler.geo;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Douglas–Peucker line simplification on latitude/longitude points.
+ * <p>
+ * Distances are measured on a local equirectangular projection around the line's mean latitude,
+ * which is accurate to well under a metre over the extent of a bus route. The recursion is run
+ * with an explicit stack so long imported shapes cannot overflow the thread stack.
+ */
+public final class LineSimplifier {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private LineSimplifier() {}
+
+    /** Indexes of the points to keep, ascending; the first and last point are always kept. */
+    public static int[] simplify(double[] latitudes, double[] longitudes, double toleranceMeters) {
+        int n = latitudes.length;
+        if (n <= 2) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+        double meanLatitude = 0;
+        for (double latitude : latitudes) meanLatitude += latitude;
+        double xScale = METERS_PER_DEGREE * Math.cos(Math.toRadians(meanLatitude / n));
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = longitudes[i] * xScale;
+            y[i] = latitudes[i] * METERS_PER_DEGREE;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = keep[n - 1] = true;
+        Deque<int[]> segments = new ArrayDeque<>();
+        segments.push(new int[]{0, n - 1});
+        while (!segments.isEmpty()) {
+            int[] segment = segments.pop();
+            int first = segment[0], last = segment[1];
+            int farthest = -1;
+            double maxDistance = toleranceMeters;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistance(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) continue;
+            keep[farthest] = true;
+            segments.push(new int[]{first, farthest});
+            segments.push(new int[]{farthest, last});
+        }
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        int[] indexes = new int[kept];
+        for (int i = 0, j = 0; i < n; i++) if (keep[i]) indexes[j++] = i;
+        return indexes;
+    }
+
+    // Distance from p to the segment a-b (to the nearer end when the projection falls outside it)
+    private static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax, dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        double ex = ax + t * dx - px, ey = ay + t * dy - py;
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+}
@@ -0,0 +1,83 @@
+package com.leszek.busscheduler.geo;
+
+import java.util.Arrays;
+
+/**
+ * Encoded polyline format (precision 1e-5, as used by Google Maps and Leaflet plugins): each
+ * coordinate is the zig-zagged delta from the previous one in 5-bit chunks offset into printable
+ * ASCII, so a route of a few hundred points fits in a couple of kilobytes of text.
+ */
+public final class PolylineCodec {
+
+    private static final double FACTOR = 1e5;
+    // Chunks are offset by 63 into '?'..'~'; a 64-bit value needs at most 13 of them
+    private static final int MIN_CHAR = 63, MAX_CHAR = 126, MAX_SHIFT = 60;
+    private static final long MAX_LATITUDE = 90 * 100_000L, MAX_LONGITUDE = 180 * 100_000L;
+
+    private PolylineCodec() {}
+
+    public static String encode(double[] latitudes, double[] longitudes) {
+        StringBuilder encoded = new StringBuilder(latitudes.length * 8);
+        long previousLatitude = 0, previousLongitude = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            long latitude = Math.round(latitudes[i] * FACTOR);
+            long longitude = Math.round(longitudes[i] * FACTOR);
+            append(encoded, latitude - previousLatitude);
+            append(encoded, longitude - previousLongitude);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Points as {@code [latitudes, longitudes]}.
+     *
+     * @throws IllegalArgumentException on a character outside {@code '?'..'~'}, a truncated or
+     *         overlong value, or a point outside the latitude/longitude range
+     */
+    public static double[][] decode(String encoded) {
+        double[] latitudes = new double[encoded.length() / 2];
+        double[] longitudes = new double[encoded.length() / 2];
+        int points = 0;
+        long latitude = 0, longitude = 0;
+        int[] position = {0};
+        while (position[0] < encoded.length()) {
+            latitude += next(encoded, position);
+            longitude += next(encoded, position);
+            if (Math.abs(latitude) > MAX_LATITUDE || Math.abs(longitude) > MAX_LONGITUDE) {
+                throw new IllegalArgumentException("Polyline point " + points + " out of range");
+            }
+            latitudes[points] = latitude / FACTOR;
+            longitudes[points++] = longitude / FACTOR;
+        }
+        return new double[][]{Arrays.copyOf(latitudes, points), Arrays.copyOf(longitudes, points)};
+    }
+
+    private static void append(StringBuilder encoded, long delta) {
+        long value = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (value >= 0x20) {
+            encoded.append((char) ((0x20 | (value & 0x1f)) + MIN_CHAR));
+            value >>= 5;
+        }
+        encoded.append((char) (value + MIN_CHAR));
+    }
+
+    private static long next(String encoded, int[] position) {
+        long result = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            if (position[0] >= encoded.length()) throw new IllegalArgumentException("Truncated polyline");
+            if (shift > MAX_SHIFT) throw new IllegalArgumentException("Polyline value too long at " + position[0]);
+            char c = encoded.charAt(position[0]++);
+            if (c < MIN_CHAR || c > MAX_CHAR) {
+                throw new IllegalArgumentException("Invalid polyline character at " + (position[0] - 1));
+            }
+            chunk = c - MIN_CHAR;
+            result |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+    }
+}
@@ -0,0 +1,69 @@
+package com.leszek.busscheduler.geo;
+
+/**
+ * Route geometry precomputed for map rendering: the full-resolution line plus one Douglas–Peucker
+ * simplification per zoom level, each already encoded as a polyline.
+ * <p>
+ * The tolerance at zoom {@code z} is one screen pixel on 256 px Web Mercator tiles at the route's
+ * latitude, so a simplified line is indistinguishable from the full one at that zoom. Levels
+ * that keep the same points share one string.
+ */
+public final class RouteShape {
+
+    public static final int MIN_ZOOM = 5;
+    public static final int MAX_ZOOM = 17;
+
+    private static final double EQUATOR_METERS_PER_PIXEL = 156_543.03;
+
+    private final String polyline;
+    private final int points;
+    private final String[] zoomPolylines;
+    private final int[] zoomPoints;
+
+    private RouteShape(String polyline, int points, String[] zoomPolylines, int[] zoomPoints) {
+        this.polyline = polyline;
+        this.points = points;
+        this.zoomPolylines = zoomPolylines;
+        this.zoomPoints = zoomPoints;
+    }
+
+    public static RouteShape of(double[] latitudes, double[] longitudes) {
+        double meanLatitude = 0;
+        for (double latitude : latitudes) meanLatitude += latitude;
+        meanLatitude = latitudes.length > 0 ? meanLatitude / latitudes.length : 0;
+        double cos = Math.cos(Math.toRadians(meanLatitude));
+
+        String[] zoomPolylines = new String[MAX_ZOOM - MIN_ZOOM + 1];
+        int[] zoomPoints = new int[zoomPolylines.length];
+        for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM; zoom++) {
+            double toleranceMeters = EQUATOR_METERS_PER_PIXEL * cos / (1 << zoom);
+            int[] kept = LineSimplifier.simplify(latitudes, longitudes, toleranceMeters);
+            int level = zoom - MIN_ZOOM;
+            if (level > 0 && zoomPoints[level - 1] == kept.length) {
+                // Simplification only adds points as the tolerance shrinks: same count, same points
+                zoomPolylines[level] = zoomPolylines[level - 1];
+            } else {
+                double[] keptLatitudes = new double[kept.length];
+                double[] keptLongitudes = new double[kept.length];
+                for (int i = 0; i < kept.length; i++) {
+                    keptLatitudes[i] = latitudes[kept[i]];
+                    keptLongitudes[i] = longitudes[kept[i]];
+                }
+                zoomPolylines[level] = PolylineCodec.encode(keptLatitudes, keptLongitudes);
+            }
+            zoomPoints[level] = kept.length;
+        }
+        return new RouteShape(PolylineCodec.encode(latitudes, longitudes), latitudes.length, zoomPolylines, zoomPoints);
+    }
+
+    /** Encoded line for the zoom, or the full-resolution line when {@code zoom} is null or above {@link #MAX_ZOOM}. */
+    public String polyline(Integer zoom) {
+        if (zoom == null || zoom > MAX_ZOOM) return polyline;
+        return zoomPolylines[Math.max(zoom, MIN_ZOOM) - MIN_ZOOM];
+    }
+
+    public int points(Integer zoom) {
+        if (zoom == null || zoom > MAX_ZOOM) return points;
+        return zoomPoints[Math.max(zoom, MIN_ZOOM) - MIN_ZOOM];
+    }
+}
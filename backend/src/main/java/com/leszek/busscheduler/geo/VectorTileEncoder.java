@@ -0,0 +1,125 @@
+package com.leszek.busscheduler.geo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal Mapbox Vector Tile (spec 2.1) writer for a single layer of point features with string
+ * attributes. The protobuf wire format is written by hand; only the fields of
+ * {@code vector_tile.proto} that points need are emitted.
+ * <p>
+ * Coordinates are tile-local integers in {@code [0, extent)}; points in the buffer around the
+ * tile may fall slightly outside that range, which the format allows.
+ */
+public final class VectorTileEncoder {
+
+    public static final int DEFAULT_EXTENT = 4096;
+
+    // Field numbers from vector_tile.proto
+    private static final int TILE_LAYERS = 3;
+    private static final int LAYER_NAME = 1, LAYER_FEATURES = 2, LAYER_KEYS = 3, LAYER_VALUES = 4,
+            LAYER_EXTENT = 5, LAYER_VERSION = 15;
+    private static final int FEATURE_ID = 1, FEATURE_TAGS = 2, FEATURE_TYPE = 3, FEATURE_GEOMETRY = 4;
+    private static final int VALUE_STRING = 1;
+    private static final int GEOM_POINT = 1;
+    private static final int COMMAND_MOVE_TO = 1;
+
+    private static final int WIRE_VARINT = 0, WIRE_BYTES = 2;
+
+    private final String layerName;
+    private final int extent;
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+    private final Map<String, Integer> values = new LinkedHashMap<>();
+    private final List<byte[]> features = new ArrayList<>();
+
+    public VectorTileEncoder(String layerName, int extent) {
+        this.layerName = layerName;
+        this.extent = extent;
+    }
+
+    /**
+     * Adds a point at tile-local {@code (x, y)}; null attribute values are left out, and so is a
+     * negative id (the feature then has none).
+     */
+    public VectorTileEncoder addPoint(long id, int x, int y, Map<String, String> attributes) {
+        Buffer tags = new Buffer();
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            if (attribute.getValue() == null) continue;
+            tags.varint(keys.computeIfAbsent(attribute.getKey(), key -> keys.size()));
+            tags.varint(values.computeIfAbsent(attribute.getValue(), value -> values.size()));
+        }
+        Buffer geometry = new Buffer();
+        geometry.varint(command(COMMAND_MOVE_TO, 1));
+        geometry.varint(zigZag(x));
+        geometry.varint(zigZag(y));
+
+        Buffer feature = new Buffer();
+        if (id >= 0) feature.tag(FEATURE_ID, WIRE_VARINT).varint(id);
+        if (tags.size() > 0) feature.tag(FEATURE_TAGS, WIRE_BYTES).bytes(tags.toByteArray());
+        feature.tag(FEATURE_TYPE, WIRE_VARINT).varint(GEOM_POINT);
+        feature.tag(FEATURE_GEOMETRY, WIRE_BYTES).bytes(geometry.toByteArray());
+        features.add(feature.toByteArray());
+        return this;
+    }
+
+    public int featureCount() { return features.size(); }
+
+    /** The encoded tile; a tile with no features has no layer and encodes to zero bytes. */
+    public byte[] encode() {
+        if (features.isEmpty()) return new byte[0];
+        Buffer layer = new Buffer();
+        layer.tag(LAYER_VERSION, WIRE_VARINT).varint(2);
+        layer.tag(LAYER_NAME, WIRE_BYTES).string(layerName);
+        for (byte[] feature : features) layer.tag(LAYER_FEATURES, WIRE_BYTES).bytes(feature);
+        for (String key : keys.keySet()) layer.tag(LAYER_KEYS, WIRE_BYTES).string(key);
+        for (String value : values.keySet()) {
+            Buffer encoded = new Buffer();
+            encoded.tag(VALUE_STRING, WIRE_BYTES).string(value);
+            layer.tag(LAYER_VALUES, WIRE_BYTES).bytes(encoded.toByteArray());
+        }
+        layer.tag(LAYER_EXTENT, WIRE_VARINT).varint(extent);
+
+        Buffer tile = new Buffer();
+        tile.tag(TILE_LAYERS, WIRE_BYTES).bytes(layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    // Protobuf wire-format writer: varints and length-delimited fields
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer tag(int field, int wireType) {
+            return varint((long) field << 3 | wireType);
+        }
+
+        Buffer varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+            return this;
+        }
+
+        Buffer bytes(byte[] value) {
+            varint(value.length);
+            write(value, 0, value.length);
+            return this;
+        }
+
+        Buffer string(String value) {
+            return bytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
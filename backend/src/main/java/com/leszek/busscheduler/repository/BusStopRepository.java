@@ -14,6 +14,11 @@ public interface BusStopRepository extends JpaRepository<BusStop, Long> {
     Optional<BusStop> findByName(String name);
     Optional<BusStop> findByNameAndCity(String name, String city);
 
+    // Candidates for a stop's area: same name and city after trimming and ignoring case, city null as blank
+    @Query("SELECT b FROM BusStop b WHERE LOWER(TRIM(b.name)) = :nameKey " +
+           "AND LOWER(TRIM(COALESCE(b.city, ''))) = :cityKey")
+    List<BusStop> findByNameKey(@Param("nameKey") String nameKey, @Param("cityKey") String cityKey);
+
     @Query("SELECT b FROM BusStop b WHERE b.latitude IS NOT NULL AND b.longitude IS NOT NULL " +
            "AND b.latitude BETWEEN :minLat AND :maxLat " +
            "AND b.longitude BETWEEN :minLon AND :maxLon")
@@ -30,19 +35,44 @@ public interface BusStopRepository extends JpaRepository<BusStop, Long> {
         List<String> getDirections();
     }
 
+    interface NearestBusStop {
+        Long getId();
+        String getName();
+        String getCity();
+        Double getLatitude();
+        Double getLongitude();
+        String getDirection();
+        String getRouteDirections();
+        Double getDistanceMeters();
+    }
+
+    // KNN over the GiST index on the PostGIS location column (see schema.sql): one index scan, nearest first
     @Query(value = """
-            SELECT b.id as id, b.name as name, b.city as city, 
-                   b.latitude as latitude, b.longitude as longitude, 
-                   b.direction as direction,
-                   STRING_AGG(DISTINCT r.direction, ';') as directions_str
+            SELECT b.id AS id, b.name AS name, b.city AS city,
+                   b.latitude AS latitude, b.longitude AS longitude, b.direction AS direction,
+                   (SELECT STRING_AGG(DISTINCT r.direction, ';')
+                    FROM route_stops rs JOIN routes r ON r.id = rs.route_id
+                    WHERE rs.bus_stop_id = b.id) AS "routeDirections",
+                   ST_Distance(b.location, ST_MakePoint(:lon, :lat)::geography) AS "distanceMeters"
             FROM bus_stops b
-            LEFT JOIN route_stops rs ON rs.bus_stop_id = b.id
-            LEFT JOIN routes r ON r.id = rs.route_id
-            WHERE b.latitude BETWEEN :minLat AND :maxLat
-              AND b.longitude BETWEEN :minLon AND :maxLon
-            GROUP BY b.id, b.name, b.city, b.latitude, b.longitude, b.direction
+            WHERE b.location IS NOT NULL
+            ORDER BY b.location <-> ST_MakePoint(:lon, :lat)::geography
+            LIMIT :k
             """, nativeQuery = true)
-    List<Object[]> findWithinBoundingBoxWithDirectionsNative(@Param("minLat") Double minLat, @Param("maxLat") Double maxLat,
-                                                              @Param("minLon") Double minLon, @Param("maxLon") Double maxLon);
-}
+    List<NearestBusStop> findNearest(@Param("lat") double lat, @Param("lon") double lon, @Param("k") int k);
 
+    @Query(value = """
+            SELECT b.id AS id, b.name AS name, b.city AS city,
+                   b.latitude AS latitude, b.longitude AS longitude, b.direction AS direction,
+                   (SELECT STRING_AGG(DISTINCT r.direction, ';')
+                    FROM route_stops rs JOIN routes r ON r.id = rs.route_id
+                    WHERE rs.bus_stop_id = b.id) AS "routeDirections",
+                   ST_Distance(b.location, ST_MakePoint(:lon, :lat)::geography) AS "distanceMeters"
+            FROM bus_stops b
+            WHERE ST_DWithin(b.location, ST_MakePoint(:lon, :lat)::geography, :radiusMeters)
+            ORDER BY b.location <-> ST_MakePoint(:lon, :lat)::geography
+            LIMIT :k
+            """, nativeQuery = true)
+    List<NearestBusStop> findNearestWithin(@Param("lat") double lat, @Param("lon") double lon,
+                                           @Param("radiusMeters") double radiusMeters, @Param("k") int k);
+}
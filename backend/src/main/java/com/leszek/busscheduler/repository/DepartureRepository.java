@@ -2,9 +2,13 @@ package com.leszek.busscheduler.repository;
 
 import com.leszek.busscheduler.domain.Departure;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.Collection;
 import java.util.List;
 import java.time.LocalTime;
 
@@ -21,5 +25,35 @@ public interface DepartureRepository extends JpaRepository<Departure, Long> {
     );
     List<Departure> findByBusStopIdAndDepartureTimeGreaterThanEqualOrderByDepartureTimeAsc(Long busStopId, LocalTime departureTime);
 
+    // Flat projection used to build the in-memory timetable without hydrating entities
+    interface DepartureRow {
+        Long getTripId();
+        Long getBusStopId();
+        LocalTime getDepartureTime();
+    }
+
+    @Query("SELECT d.trip.id AS tripId, d.busStop.id AS busStopId, d.departureTime AS departureTime " +
+           "FROM Departure d ORDER BY d.trip.id, d.departureTime, d.id")
+    List<DepartureRow> findAllRows();
+
+    @Query("SELECT d.trip.id AS tripId, d.busStop.id AS busStopId, d.departureTime AS departureTime " +
+           "FROM Departure d WHERE d.trip.id = :tripId ORDER BY d.departureTime, d.id")
+    List<DepartureRow> findRowsByTripId(@Param("tripId") Long tripId);
+
+    // Departure board row; with a Pageable limit this is a range scan on the (bus_stop_id, departure_time) index
+    interface BoardRow {
+        LocalTime getDepartureTime();
+        String getLineNumber();
+        String getDirection();
+    }
+
+    @Query("SELECT d.departureTime AS departureTime, d.trip.route.busLine.lineNumber AS lineNumber, " +
+           "d.trip.route.direction AS direction FROM Departure d " +
+           "WHERE d.busStop.id IN :stopIds AND d.departureTime >= :time AND d.trip.calendarType IN :calendarTypes " +
+           "ORDER BY d.departureTime ASC")
+    List<BoardRow> findBoardRows(@Param("stopIds") List<Long> stopIds,
+                                 @Param("time") LocalTime time,
+                                 @Param("calendarTypes") Collection<String> calendarTypes,
+                                 Pageable pageable);
 }
 
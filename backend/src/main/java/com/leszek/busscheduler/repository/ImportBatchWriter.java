@@ -0,0 +1,105 @@
+package com.leszek.busscheduler.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC batch writer for the bulk parts of a line import: trips and departures.
+ * <p>
+ * Entities use {@code IDENTITY} ids, which stop Hibernate from batching inserts, so these rows
+ * bypass the persistence context and go out as JDBC batches (rewritten into multi-row INSERTs by
+ * the driver, see {@code reWriteBatchedInserts}). It runs on the caller's transaction and
+ * connection, and nothing here is visible as managed entities in the current session.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportBatchWriter {
+
+    static final int BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record NewTrip(long routeId, String calendarType, LocalTime startTime) {}
+
+    public record NewDeparture(long tripId, long busStopId, LocalTime departureTime) {}
+
+    /**
+     * Inserts the trips and returns their ids, in input order. The ids are drawn from the table's
+     * sequence up front and written explicitly, so the pairing never depends on the order in which
+     * a rewritten multi-row INSERT hands back generated keys.
+     */
+    public long[] insertTrips(List<NewTrip> trips) {
+        long[] ids = new long[trips.size()];
+        for (int from = 0; from < trips.size(); from += BATCH_SIZE) {
+            List<NewTrip> chunk = trips.subList(from, Math.min(from + BATCH_SIZE, trips.size()));
+            List<Long> reserved = jdbcTemplate.queryForList(
+                    "SELECT nextval(pg_get_serial_sequence('trips', 'id')) FROM generate_series(1, ?)",
+                    Long.class, chunk.size());
+            if (reserved.size() != chunk.size()) {
+                throw new IllegalStateException("Reserved " + reserved.size() + " trip ids for " + chunk.size() + " trips");
+            }
+            int[] inserted = jdbcTemplate.batchUpdate(
+                    "INSERT INTO trips (id, route_id, calendar_type, start_time) VALUES (?, ?, ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            NewTrip trip = chunk.get(i);
+                            ps.setLong(1, reserved.get(i));
+                            ps.setLong(2, trip.routeId());
+                            ps.setString(3, trip.calendarType());
+                            if (trip.startTime() != null) ps.setObject(4, trip.startTime());
+                            else ps.setNull(4, Types.TIME);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    });
+            if (inserted.length != chunk.size()) {
+                throw new IllegalStateException("Inserted " + inserted.length + " of " + chunk.size() + " trips");
+            }
+            for (int i = 0; i < chunk.size(); i++) ids[from + i] = reserved.get(i);
+        }
+        return ids;
+    }
+
+    public void insertDepartures(List<NewDeparture> departures) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO departures (trip_id, bus_stop_id, departure_time) VALUES (?, ?, ?)",
+                departures, BATCH_SIZE, (ps, departure) -> {
+                    ps.setLong(1, departure.tripId());
+                    ps.setLong(2, departure.busStopId());
+                    ps.setObject(3, departure.departureTime());
+                });
+    }
+
+    /**
+     * Deletes the departures and trips of the routes with two set-based statements, so the cascade
+     * that follows when the routes themselves are removed finds nothing to delete row by row.
+     */
+    public void deleteTripsOfRoutes(Collection<Long> routeIds) {
+        if (routeIds.isEmpty()) return;
+        Long[] ids = routeIds.toArray(Long[]::new);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM departures WHERE trip_id IN (SELECT id FROM trips WHERE route_id = ANY (?))");
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            return ps;
+        });
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("DELETE FROM trips WHERE route_id = ANY (?)");
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            return ps;
+        });
+    }
+}
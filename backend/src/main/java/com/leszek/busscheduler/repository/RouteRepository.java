@@ -79,4 +79,23 @@ public interface RouteRepository extends JpaRepository<Route, Long> {
 
     @Query("SELECT r FROM Route r LEFT JOIN FETCH r.routeStops rs LEFT JOIN FETCH rs.busStop WHERE r.id = :id")
     Optional<Route> findByIdWithStops(@Param("id") Long id);
-}
\ No newline at end of file
+
+    // Flat projection used to build the in-memory timetable without hydrating entities
+    interface RouteSummary {
+        Long getId();
+        String getLineNumber();
+        String getDirection();
+    }
+
+    @Query("select r.id as id, bl.lineNumber as lineNumber, r.direction as direction from Route r join r.busLine bl")
+    List<RouteSummary> findAllSummaries();
+
+    // Stored geometry only, without loading the route's stops and trips
+    interface RouteShapeRow {
+        Long getId();
+        String getShape();
+    }
+
+    @Query("select r.id as id, r.shape as shape from Route r where r.id = :id")
+    Optional<RouteShapeRow> findShapeRowById(@Param("id") Long id);
+}
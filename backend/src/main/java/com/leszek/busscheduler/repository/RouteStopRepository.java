@@ -2,13 +2,43 @@ package com.leszek.busscheduler.repository;
 
 import com.leszek.busscheduler.domain.RouteStop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RouteStopRepository extends JpaRepository<RouteStop, Long> {
     Optional<RouteStop> findByRouteIdAndBusStopId(Long routeId, Long busStopId);
     Optional<RouteStop> findByBusStopId(Long busStopId);
+
+    // Flat projection used to derive the stop times of pattern-stored trips
+    interface RouteStopRow {
+        Long getRouteId();
+        Long getBusStopId();
+        Integer getSequenceNumber();
+        Integer getTimeOffsetMinutes();
+    }
+
+    @Query("SELECT rs.route.id AS routeId, rs.busStop.id AS busStopId, rs.sequenceNumber AS sequenceNumber, " +
+           "rs.timeOffsetMinutes AS timeOffsetMinutes FROM RouteStop rs ORDER BY rs.route.id, rs.sequenceNumber")
+    List<RouteStopRow> findAllRows();
+
+    @Query("SELECT rs.route.id AS routeId, rs.busStop.id AS busStopId, rs.sequenceNumber AS sequenceNumber, " +
+           "rs.timeOffsetMinutes AS timeOffsetMinutes FROM RouteStop rs WHERE rs.route.id = :routeId " +
+           "ORDER BY rs.sequenceNumber")
+    List<RouteStopRow> findRowsByRouteId(@Param("routeId") Long routeId);
+
+    interface StopPointRow {
+        Double getLatitude();
+        Double getLongitude();
+    }
+
+    // Coordinates of the route's stops in route order, for shapes drawn through them
+    @Query("SELECT rs.busStop.latitude AS latitude, rs.busStop.longitude AS longitude FROM RouteStop rs " +
+           "WHERE rs.route.id = :routeId ORDER BY rs.sequenceNumber")
+    List<StopPointRow> findPointsByRouteId(@Param("routeId") Long routeId);
 }
 
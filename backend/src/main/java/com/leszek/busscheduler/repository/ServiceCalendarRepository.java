@@ -0,0 +1,38 @@
+package com.leszek.busscheduler.repository;
+
+import com.leszek.busscheduler.domain.ServiceCalendar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ServiceCalendarRepository extends JpaRepository<ServiceCalendar, Long> {
+
+    Optional<ServiceCalendar> findByCalendarType(String calendarType);
+
+    // Flat projections used to build the in-memory timetable without hydrating entities
+    interface CalendarRow {
+        String getCalendarType();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        int getWeekdays();
+    }
+
+    @Query("SELECT c.calendarType AS calendarType, c.startDate AS startDate, c.endDate AS endDate, " +
+           "c.weekdays AS weekdays FROM ServiceCalendar c")
+    List<CalendarRow> findAllRows();
+
+    interface ExceptionRow {
+        String getCalendarType();
+        LocalDate getDate();
+        Boolean getAdded();
+    }
+
+    @Query("SELECT e.calendar.calendarType AS calendarType, e.date AS date, e.added AS added " +
+           "FROM ServiceCalendarException e")
+    List<ExceptionRow> findAllExceptionRows();
+}
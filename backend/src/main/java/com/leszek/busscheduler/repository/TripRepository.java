@@ -7,7 +7,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TripRepository extends JpaRepository<Trip, Long> {
@@ -26,10 +28,42 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
            "AND dTo.busStop.id = :toStopId " +
            "AND dFrom.departureTime >= :startTime " +
            "AND dFrom.departureTime < dTo.departureTime " +
-           "AND dFrom.trip.calendarType = :calendarType " +
+           "AND dFrom.trip.calendarType IN :calendarTypes " +
            "ORDER BY dFrom.departureTime ASC")
     List<Object[]> findConnections(@Param("fromStopId") Long fromStopId,
                                    @Param("toStopId") Long toStopId,
                                    @Param("startTime") LocalTime startTime,
-                                   @Param("calendarType") String calendarType);
+                                   @Param("calendarTypes") Collection<String> calendarTypes);
+
+    // Reverse of findConnections, walking the (bus_stop_id, departure_time) index backwards from the arrival limit
+    @Query("SELECT dFrom, dTo, dFrom.trip.route.direction FROM Departure dFrom, Departure dTo " +
+           "WHERE dFrom.trip = dTo.trip " +
+           "AND dFrom.busStop.id = :fromStopId " +
+           "AND dTo.busStop.id = :toStopId " +
+           "AND dTo.departureTime <= :endTime " +
+           "AND dFrom.departureTime < dTo.departureTime " +
+           "AND dFrom.trip.calendarType IN :calendarTypes " +
+           "ORDER BY dFrom.departureTime DESC, dTo.departureTime ASC")
+    List<Object[]> findConnectionsArrivingBy(@Param("fromStopId") Long fromStopId,
+                                             @Param("toStopId") Long toStopId,
+                                             @Param("endTime") LocalTime endTime,
+                                             @Param("calendarTypes") Collection<String> calendarTypes);
+
+    // Flat projection used to build the in-memory timetable without hydrating entities
+    interface TripSummary {
+        Long getId();
+        Long getRouteId();
+        String getCalendarType();
+        LocalTime getStartTime();
+    }
+
+    @Query("SELECT t.id AS id, t.route.id AS routeId, t.calendarType AS calendarType, t.startTime AS startTime FROM Trip t")
+    List<TripSummary> findAllSummaries();
+
+    @Query("SELECT t.id AS id, t.route.id AS routeId, t.calendarType AS calendarType, t.startTime AS startTime " +
+           "FROM Trip t WHERE t.id = :id")
+    Optional<TripSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT t.calendarType FROM Trip t WHERE t.calendarType IS NOT NULL")
+    List<String> findDistinctCalendarTypes();
 }
@@ -1,10 +1,27 @@
 package com.leszek.busscheduler.service;
 
+import com.leszek.busscheduler.dto.BatchSearchResult;
 import com.leszek.busscheduler.dto.ConnectionDTO;
+import com.leszek.busscheduler.dto.JourneyDTO;
+import com.leszek.busscheduler.dto.JourneyRequest;
+import com.leszek.busscheduler.dto.ProfileRequest;
 import com.leszek.busscheduler.dto.SearchRequest;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BusSearchService {
+    // Largest batch the controller accepts; anything above is rejected with 400
+    int MAX_BATCH_SIZE = 500;
+
     List<ConnectionDTO> search(SearchRequest request);
+
+    // Runs each request through search() a few at a time, pushing each result to sink as soon as it is ready
+    void searchBatch(List<SearchRequest> requests, Consumer<BatchSearchResult> sink);
+
+    // Journeys with transfers, always answered from the in-memory timetable
+    List<JourneyDTO> planJourneys(JourneyRequest request);
+
+    // Pareto-optimal journeys departing within a time window, one backward scan for the whole range
+    List<JourneyDTO> searchProfile(ProfileRequest request);
 }
@@ -0,0 +1,23 @@
+package com.leszek.busscheduler.service;
+
+import com.leszek.busscheduler.dto.DepartureBoardsDTO;
+import com.leszek.busscheduler.dto.StopDepartureDTO;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+public interface DepartureBoardService {
+
+    // Largest board a caller may ask for; longer ones are clamped or rejected by the callers
+    int MAX_LIMIT = 100;
+
+    // Most stops one boards request may cover; each is recomputed on every change while the request waits
+    int MAX_BOARD_STOPS = 50;
+
+    // Next departures from the stop's area (all stops sharing its name) at or after time on date's calendar
+    List<StopDepartureDTO> nextDepartures(Long stopId, LocalTime time, LocalDate date, int limit);
+
+    // Boards of several stops computed against one timetable snapshot, versioned by content
+    DepartureBoardsDTO boards(List<Long> stopIds, LocalTime time, LocalDate date, int limit);
+}
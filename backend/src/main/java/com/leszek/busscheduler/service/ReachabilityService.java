@@ -0,0 +1,12 @@
+package com.leszek.busscheduler.service;
+
+import com.leszek.busscheduler.dto.ReachabilityRequest;
+import com.leszek.busscheduler.dto.ReachableStopDTO;
+
+import java.util.List;
+
+public interface ReachabilityService {
+
+    // Every stop reachable within maxMinutes, closest first; one bounded scan over the in-memory timetable
+    List<ReachableStopDTO> findReachable(ReachabilityRequest request);
+}
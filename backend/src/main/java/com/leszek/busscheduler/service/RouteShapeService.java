@@ -0,0 +1,11 @@
+package com.leszek.busscheduler.service;
+
+import com.leszek.busscheduler.dto.RouteShapeDTO;
+
+import java.util.Optional;
+
+public interface RouteShapeService {
+
+    // Imported geometry, or a line through the route's stops; precomputed per zoom and cached until the next route or stop edit
+    Optional<RouteShapeDTO> findShape(Long routeId, Integer zoom);
+}
@@ -0,0 +1,10 @@
+package com.leszek.busscheduler.service;
+
+import com.leszek.busscheduler.dto.VectorTileDTO;
+
+public interface StopTileService {
+
+    // Stops of the tile as a "stops" point layer with id, name, city, directions and count attributes; cached per version.
+    // Up to StopClusterIndex.MAX_CLUSTER_ZOOM nearby stops merge into one id-less point carrying only their count
+    VectorTileDTO stopTile(int z, int x, int y);
+}
@@ -0,0 +1,21 @@
+package com.leszek.busscheduler.service;
+
+import com.leszek.busscheduler.dto.TravelMatrixDTO;
+import com.leszek.busscheduler.dto.TravelMatrixRequest;
+import com.leszek.busscheduler.dto.TravelMatrixRowDTO;
+
+import java.util.List;
+
+public interface TravelMatrixService {
+
+    TravelMatrixDTO compute(TravelMatrixRequest request);
+
+    // Rows are pushed in completion order, after a single header call with the resolved stop ids
+    void stream(TravelMatrixRequest request, RowSink sink);
+
+    interface RowSink {
+        void header(List<Long> origins, List<Long> destinations);
+
+        void row(TravelMatrixRowDTO row);
+    }
+}
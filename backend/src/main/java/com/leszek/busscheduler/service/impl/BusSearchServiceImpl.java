@@ -1,43 +1,105 @@
 package com.leszek.busscheduler.service.impl;
 
+import com.leszek.busscheduler.cache.SearchResultCache;
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.domain.Departure;
-import com.leszek.busscheduler.domain.BusStop;
+import com.leszek.busscheduler.dto.BatchSearchResult;
 import com.leszek.busscheduler.dto.ConnectionDTO;
+import com.leszek.busscheduler.dto.JourneyDTO;
+import com.leszek.busscheduler.dto.JourneyRequest;
+import com.leszek.busscheduler.dto.ProfileRequest;
 import com.leszek.busscheduler.dto.SearchRequest;
 import com.leszek.busscheduler.exception.StopNotFoundException;
 import com.leszek.busscheduler.repository.BusStopRepository;
 import com.leszek.busscheduler.repository.TripRepository;
 import com.leszek.busscheduler.service.BusSearchService;
+import com.leszek.busscheduler.timetable.DirectConnectionSearch;
+import com.leszek.busscheduler.timetable.JourneyEngine;
+import com.leszek.busscheduler.timetable.JourneyQuery;
+import com.leszek.busscheduler.timetable.ProfileConnectionScan;
+import com.leszek.busscheduler.timetable.ProfileQuery;
+import com.leszek.busscheduler.timetable.ServiceCalendarResolver;
+import com.leszek.busscheduler.timetable.ServiceDay;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableProvider;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
+// SUPPORTS: the JPA path still shares one EntityManager, the timetable path never borrows a connection
+@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
 public class BusSearchServiceImpl implements BusSearchService {
 
+    // Each extra round costs one more pass over the touched patterns; nobody wants 9 changes
+    private static final int MAX_TRANSFERS_LIMIT = 8;
+
+    private static final int BATCH_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
     private final BusStopRepository busStopRepository;
     private final TripRepository tripRepository;
+    private final TimetableProvider timetableProvider;
+    private final ServiceCalendarResolver serviceCalendarResolver;
+    private final TimetableProperties timetableProperties;
+    private final List<JourneyEngine> journeyEngines;
+    private final SearchResultCache searchResultCache;
 
     @Override
     public List<ConnectionDTO> search(SearchRequest request) {
+        return search(request, timetableProperties.isTimetableSearch() ? timetableProvider.get() : null);
+    }
+
+    // timetable: the copy to answer from, null on the database engine
+    private List<ConnectionDTO> search(SearchRequest request, Timetable timetable) {
+        if (!searchResultCache.isEnabled()) {
+            return searchUncached(request, timetable);
+        }
+
+        LocalDate date = request.date() != null ? request.date() : LocalDate.now();
+        int bucket = searchResultCache.bucketMinutes();
+        int minute = Timetable.toMinute(request.time());
+        // Compute once for the widest time of the bucket, then narrow down to the requested time
+        int bucketMinute = request.arriveBy()
+                ? Math.min(Timetable.MINUTES_PER_DAY - 1, (minute / bucket + 1) * bucket - 1)
+                : minute / bucket * bucket;
+        SearchRequest bucketRequest = new SearchRequest(request.fromId(), request.toId(),
+                Timetable.toTime(bucketMinute), date, request.arriveBy());
+        SearchResultCache.Key key = new SearchResultCache.Key(request.fromId(), request.toId(),
+                bucketMinute, serviceKey(date, timetable), request.arriveBy(),
+                timetable != null ? timetable.version() : 0);
+
+        return searchResultCache.get(key, () -> searchUncached(bucketRequest, timetable))
+                .stream()
+                .filter(connection -> request.arriveBy()
+                        ? !connection.arrivalTime().isAfter(request.time())
+                        : !connection.departureTime().isBefore(request.time()))
+                .toList();
+    }
+
+    private List<ConnectionDTO> searchUncached(SearchRequest request, Timetable timetable) {
+        if (timetable != null) {
+            return searchTimetable(timetable, request);
+        }
+
         busStopRepository.findById(request.fromId())
                 .orElseThrow(() -> new StopNotFoundException("Stop not found ID: " + request.fromId()));
         busStopRepository.findById(request.toId())
                 .orElseThrow(() -> new StopNotFoundException("Stop not found ID: " + request.toId()));
 
         LocalDate date = request.date() != null ? request.date() : LocalDate.now();
-        String calendarType = determineDayType(date);
+        List<String> calendarTypes = serviceCalendarResolver.calendarTypes(date);
+        if (calendarTypes.isEmpty()) return List.of();
 
-        List<Object[]> rawConnections = tripRepository.findConnections(
-                request.fromId(), request.toId(), request.time(), calendarType);
+        List<Object[]> rawConnections = request.arriveBy()
+                ? tripRepository.findConnectionsArrivingBy(request.fromId(), request.toId(), request.time(), calendarTypes)
+                : tripRepository.findConnections(request.fromId(), request.toId(), request.time(), calendarTypes);
 
         return rawConnections.stream()
                 .map(obj -> {
@@ -58,10 +120,103 @@ public class BusSearchServiceImpl implements BusSearchService {
                 .toList();
     }
 
-    private String determineDayType(LocalDate date) {
-        DayOfWeek day = date.getDayOfWeek();
-        if (day == DayOfWeek.SATURDAY) return "SATURDAYS";
-        if (day == DayOfWeek.SUNDAY)   return "SUNDAYS_HOLIDAYS";
-        return "WORKDAYS";
+    @Override
+    public void searchBatch(List<SearchRequest> requests, Consumer<BatchSearchResult> sink) {
+        // One copy for the whole batch, so a rebuild halfway through cannot mix two networks
+        Timetable timetable = timetableProperties.isTimetableSearch() ? timetableProvider.get() : null;
+        // Virtual threads are cheap, the searches behind them are not: keep at most one per core running
+        ParallelTasks.run(requests.size(), BATCH_PARALLELISM,
+                index -> sink.accept(searchBatchItem(timetable, index, requests.get(index))));
+    }
+
+    private BatchSearchResult searchBatchItem(Timetable timetable, int index, SearchRequest request) {
+        try {
+            return new BatchSearchResult(index, search(request, timetable), null);
+        } catch (RuntimeException ex) {
+            // A bad pair must not fail the rest of the batch
+            String error = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            return new BatchSearchResult(index, null, error);
+        }
+    }
+
+    @Override
+    public List<JourneyDTO> planJourneys(JourneyRequest request) {
+        Timetable timetable = timetableProvider.get();
+        int from = resolveStop(timetable, request.fromId());
+        int to = resolveStop(timetable, request.toId());
+
+        LocalDate date = request.date() != null ? request.date() : LocalDate.now();
+        ServiceDay day = timetable.serviceDay(date);
+        int maxTransfers = maxTransfers(request.maxTransfers());
+        int minTransferMinutes = minTransferMinutes(request.minTransferMinutes());
+
+        JourneyEngine engine = selectEngine(request.engine() != null
+                ? request.engine() : timetableProperties.getJourneyEngine());
+        JourneyQuery query = new JourneyQuery(from, to, Timetable.toMinute(request.time()),
+                day, maxTransfers, minTransferMinutes);
+        return engine.plan(timetable, query)
+                .stream()
+                .map(journey -> journey.toDto(timetable))
+                .toList();
+    }
+
+    @Override
+    public List<JourneyDTO> searchProfile(ProfileRequest request) {
+        Timetable timetable = timetableProvider.get();
+        int from = resolveStop(timetable, request.fromId());
+        int to = resolveStop(timetable, request.toId());
+
+        LocalDate date = request.date() != null ? request.date() : LocalDate.now();
+        ProfileQuery query = new ProfileQuery(from, to,
+                Timetable.toMinute(request.timeFrom()), Timetable.toMinute(request.timeTo()),
+                timetable.serviceDay(date),
+                maxTransfers(request.maxTransfers()), minTransferMinutes(request.minTransferMinutes()));
+        return ProfileConnectionScan.find(timetable, query)
+                .stream()
+                .map(journey -> journey.toDto(timetable))
+                .toList();
+    }
+
+    private int maxTransfers(Integer requested) {
+        return Math.min(MAX_TRANSFERS_LIMIT, requested != null ? requested : timetableProperties.getMaxTransfers());
+    }
+
+    private int minTransferMinutes(Integer requested) {
+        return requested != null ? requested : timetableProperties.getMinTransferMinutes();
+    }
+
+    private List<ConnectionDTO> searchTimetable(Timetable timetable, SearchRequest request) {
+        int from = resolveStop(timetable, request.fromId());
+        int to = resolveStop(timetable, request.toId());
+
+        LocalDate date = request.date() != null ? request.date() : LocalDate.now();
+        ServiceDay day = timetable.serviceDay(date);
+        return request.arriveBy()
+                ? DirectConnectionSearch.findArrivingBy(timetable, from, to, request.time(), day)
+                : DirectConnectionSearch.find(timetable, from, to, request.time(), day);
+    }
+
+    private JourneyEngine selectEngine(JourneyEngine.Type type) {
+        return journeyEngines.stream()
+                .filter(engine -> engine.type() == type)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No journey engine registered for " + type));
+    }
+
+    private int resolveStop(Timetable timetable, Long stopId) {
+        int stop = timetable.stopIndex(stopId);
+        if (stop < 0) throw new StopNotFoundException("Stop not found ID: " + stopId);
+        return stop;
+    }
+
+    // Calendar types running on the date; the database engine resolves them without building the timetable
+    private List<String> calendarTypes(LocalDate date, Timetable timetable) {
+        if (timetable == null) return serviceCalendarResolver.calendarTypes(date);
+        return timetable.calendarTypes(timetable.serviceDay(date));
+    }
+
+    // Dates with the same running calendars share cached results
+    private String serviceKey(LocalDate date, Timetable timetable) {
+        return String.join(",", calendarTypes(date, timetable));
     }
 }
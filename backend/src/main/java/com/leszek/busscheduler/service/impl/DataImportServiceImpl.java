@@ -1,14 +1,18 @@
 package com.leszek.busscheduler.service.impl;
 
 import com.leszek.busscheduler.domain.*;
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.dto.ImportBusLineDTO;
 import com.leszek.busscheduler.dto.ImportRouteDTO;
 import com.leszek.busscheduler.dto.ImportRouteStopDTO;
 import com.leszek.busscheduler.dto.ImportTripDTO;
+import com.leszek.busscheduler.geo.PolylineCodec;
 import com.leszek.busscheduler.repository.*;
 import com.leszek.busscheduler.service.DataImportService;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,8 +30,9 @@ public class DataImportServiceImpl implements DataImportService {
     private final BusStopRepository busStopRepository;
     private final RouteRepository routeRepository;
     private final RouteStopRepository routeStopRepository;
-    private final TripRepository tripRepository;
-    private final DepartureRepository departureRepository;
+    private final ImportBatchWriter importBatchWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TimetableProperties timetableProperties;
 
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("H:mm");
 
@@ -40,6 +45,7 @@ public class DataImportServiceImpl implements DataImportService {
 
         List<Route> existingRoutes = routeRepository.findAllByBusLineId(busLine.getId());
         if (!existingRoutes.isEmpty()) {
+            importBatchWriter.deleteTripsOfRoutes(existingRoutes.stream().map(Route::getId).toList());
             if (busLine.getRoutes() != null) {
                 busLine.getRoutes().clear();
             }
@@ -52,6 +58,8 @@ public class DataImportServiceImpl implements DataImportService {
         for (ImportRouteDTO routeDto : dto.getRoutes()) {
             saveRoute(busLine, routeDto);
         }
+
+        eventPublisher.publishEvent(new TimetableChangedEvent("import of line " + dto.getLineNumber()));
     }
 
     private BusLine getOrCreateBusLine(ImportBusLineDTO dto) {
@@ -76,6 +84,7 @@ public class DataImportServiceImpl implements DataImportService {
         Route route = Route.builder()
                 .variantName(routeDto.getVariantName())
                 .direction(routeDto.getDirection())
+                .shape(encodeShape(routeDto.getShape()))
                 .busLine(busLine)
                 .routeStops(new HashSet<>())
                 .trips(new HashSet<>())
@@ -97,9 +106,26 @@ public class DataImportServiceImpl implements DataImportService {
             routeStopsList.add(routeStopRepository.save(routeStop));
         }
 
-        for (ImportTripDTO tripDto : routeDto.getTrips()) {
-            saveTrips(route, tripDto, routeStopsList);
+        saveTrips(route, routeDto.getTrips(), routeStopsList);
+    }
+
+    private static String encodeShape(List<List<Double>> shape) {
+        if (shape == null || shape.size() < 2) return null;
+        double[] latitudes = new double[shape.size()];
+        double[] longitudes = new double[shape.size()];
+        for (int i = 0; i < shape.size(); i++) {
+            List<Double> point = shape.get(i);
+            if (point == null || point.size() < 2 || point.get(0) == null || point.get(1) == null) {
+                throw new IllegalArgumentException("Shape point " + i + " must be [latitude, longitude]");
+            }
+            // Negated comparisons so NaN fails too
+            if (!(Math.abs(point.get(0)) <= 90) || !(Math.abs(point.get(1)) <= 180)) {
+                throw new IllegalArgumentException("Shape point " + i + " is outside latitude ±90 / longitude ±180");
+            }
+            latitudes[i] = point.get(0);
+            longitudes[i] = point.get(1);
         }
+        return PolylineCodec.encode(latitudes, longitudes);
     }
 
     private BusStop getOrCreateBusStop(ImportRouteStopDTO stopDto) {
@@ -110,30 +136,36 @@ public class DataImportServiceImpl implements DataImportService {
                         .build()));
     }
 
-    private void saveTrips(Route route, ImportTripDTO tripDto, List<RouteStop> routeStops) {
-        for (String startTimeStr : tripDto.getStartTimes()) {
-            try {
-                LocalTime startTime = LocalTime.parse(startTimeStr, TIME_FORMATTER);
-                Trip trip = Trip.builder()
-                        .route(route)
-                        .calendarType(tripDto.getCalendarType())
-                        .departures(new HashSet<>())
-                        .build();
-                trip = tripRepository.save(trip);
-
-                for (RouteStop rs : routeStops) {
-                    int offset = rs.getTimeOffsetMinutes() != null ? rs.getTimeOffsetMinutes() : 0;
-                    Departure departure = Departure.builder()
-                            .trip(trip)
-                            .busStop(rs.getBusStop())
-                            .departureTime(startTime.plusMinutes(offset))
-                            .build();
-                    departureRepository.save(departure);
+    // Trips and departures go out as JDBC batches: a busy line has tens of thousands of departure rows
+    private void saveTrips(Route route, List<ImportTripDTO> tripDtos, List<RouteStop> routeStops) {
+        boolean patternStorage = timetableProperties.getTripStorage() == TimetableProperties.TripStorage.PATTERN;
+        List<ImportBatchWriter.NewTrip> trips = new ArrayList<>();
+        List<LocalTime> startTimes = new ArrayList<>();
+        for (ImportTripDTO tripDto : tripDtos) {
+            for (String startTimeStr : tripDto.getStartTimes()) {
+                try {
+                    LocalTime startTime = LocalTime.parse(startTimeStr, TIME_FORMATTER);
+                    trips.add(new ImportBatchWriter.NewTrip(route.getId(), tripDto.getCalendarType(),
+                            patternStorage ? startTime : null));
+                    startTimes.add(startTime);
+                } catch (DateTimeParseException e) {
+                    log.error("Failed to parse start time: {} for route: {}", startTimeStr, route.getVariantName());
+                    throw e;
                 }
-            } catch (DateTimeParseException e) {
-                log.error("Failed to parse start time: {} for route: {}", startTimeStr, route.getVariantName());
-                throw e;
             }
         }
+        long[] tripIds = importBatchWriter.insertTrips(trips);
+        // Pattern-stored trips take their stop times from the route offsets
+        if (patternStorage) return;
+
+        List<ImportBatchWriter.NewDeparture> departures = new ArrayList<>(tripIds.length * routeStops.size());
+        for (int t = 0; t < tripIds.length; t++) {
+            for (RouteStop rs : routeStops) {
+                int offset = rs.getTimeOffsetMinutes() != null ? rs.getTimeOffsetMinutes() : 0;
+                departures.add(new ImportBatchWriter.NewDeparture(tripIds[t], rs.getBusStop().getId(),
+                        startTimes.get(t).plusMinutes(offset)));
+            }
+        }
+        importBatchWriter.insertDepartures(departures);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import com.leszek.busscheduler.domain.BusStop;
+import com.leszek.busscheduler.dto.DepartureBoardsDTO;
+import com.leszek.busscheduler.dto.StopBoardDTO;
+import com.leszek.busscheduler.dto.StopDepartureDTO;
+import com.leszek.busscheduler.exception.StopNotFoundException;
+import com.leszek.busscheduler.geo.GeoUtils;
+import com.leszek.busscheduler.repository.BusStopRepository;
+import com.leszek.busscheduler.repository.DepartureRepository;
+import com.leszek.busscheduler.service.DepartureBoardService;
+import com.leszek.busscheduler.timetable.DepartureBoardIndex;
+import com.leszek.busscheduler.timetable.ServiceCalendarResolver;
+import com.leszek.busscheduler.timetable.ServiceDay;
+import com.leszek.busscheduler.timetable.StopAreaIndex;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import com.leszek.busscheduler.timetable.TripPattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+public class DepartureBoardServiceImpl implements DepartureBoardService {
+
+    private final DepartureRepository departureRepository;
+    private final BusStopRepository busStopRepository;
+    private final ServiceCalendarResolver serviceCalendarResolver;
+    private final TimetableProvider timetableProvider;
+    private final TimetableProperties timetableProperties;
+
+    @Override
+    public List<StopDepartureDTO> nextDepartures(Long stopId, LocalTime time, LocalDate date, int limit) {
+        if (timetableProperties.isTimetableSearch()) {
+            Timetable timetable = timetableProvider.get();
+            return nextDepartures(timetable, stopId, time, timetable.serviceDay(date), limit);
+        }
+
+        // Database engine: the in-memory timetable is never built, areas and calendars are resolved from the tables
+        BusStop stop = busStopRepository.findById(stopId)
+                .orElseThrow(() -> new StopNotFoundException("Stop not found ID: " + stopId));
+        List<String> calendarTypes = serviceCalendarResolver.calendarTypes(date);
+        if (calendarTypes.isEmpty()) return List.of();
+        Pageable page = PageRequest.of(0, Math.clamp(limit, 1, MAX_LIMIT));
+        return departureRepository.findBoardRows(areaStopIds(stop), time, calendarTypes, page)
+                .stream()
+                .map(row -> StopDepartureDTO.builder()
+                        .lineName(row.getLineNumber())
+                        .departureTime(row.getDepartureTime())
+                        .direction(row.getDirection())
+                        .build())
+                .toList();
+    }
+
+    @Override
+    public DepartureBoardsDTO boards(List<Long> stopIds, LocalTime time, LocalDate date, int limit) {
+        Timetable timetable = timetableProperties.isTimetableSearch()
+                ? timetableProvider.get() : null;
+        ServiceDay day = timetable != null ? timetable.serviceDay(date) : null;
+
+        List<StopBoardDTO> boards = new ArrayList<>(stopIds.size());
+        for (Long stopId : stopIds) {
+            List<StopDepartureDTO> departures = timetable != null
+                    ? nextDepartures(timetable, stopId, time, day, limit)
+                    : nextDepartures(stopId, time, date, limit);
+            boards.add(new StopBoardDTO(stopId, departures));
+        }
+        return new DepartureBoardsDTO(version(boards), boards);
+    }
+
+    // Content digest used as the ETag: equal boards give equal versions, and a collision cannot hide a change
+    private static String version(List<StopBoardDTO> boards) {
+        StringBuilder rows = new StringBuilder();
+        for (StopBoardDTO board : boards) {
+            rows.append(board.stopId()).append('\n');
+            for (StopDepartureDTO departure : board.departures()) {
+                rows.append(departure.getLineName()).append('\t')
+                        .append(departure.getDepartureTime()).append('\t')
+                        .append(departure.getDirection()).append('\n');
+            }
+            rows.append('\n');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rows.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private List<StopDepartureDTO> nextDepartures(Timetable timetable, Long stopId, LocalTime time,
+                                                  ServiceDay day, int limit) {
+        int stop = resolveStop(timetable, stopId);
+        DepartureBoardIndex boards = timetable.departureBoards();
+        return boards.next(boards.area(stop), day, Timetable.toMinute(time), Math.clamp(limit, 1, MAX_LIMIT))
+                .stream()
+                .map(entry -> {
+                    TripPattern pattern = timetable.pattern(entry.pattern());
+                    return StopDepartureDTO.builder()
+                            .lineName(pattern.lineNumber())
+                            .departureTime(Timetable.toTime(entry.minute()))
+                            .direction(pattern.direction())
+                            .build();
+                })
+                .toList();
+    }
+
+    // Platforms sharing the stop's name and city within an area's span of it, like StopAreaIndex groups them
+    private List<Long> areaStopIds(BusStop stop) {
+        if (stop.getName() == null || stop.getName().isBlank()) return List.of(stop.getId());
+        String city = stop.getCity() != null ? stop.getCity().trim().toLowerCase(Locale.ROOT) : "";
+        return busStopRepository.findByNameKey(stop.getName().trim().toLowerCase(Locale.ROOT), city).stream()
+                .filter(other -> other.getId().equals(stop.getId()) || isNear(stop, other))
+                .map(BusStop::getId)
+                .toList();
+    }
+
+    // A stop without coordinates cannot be placed, so it trusts its name
+    private static boolean isNear(BusStop stop, BusStop other) {
+        if (stop.getLatitude() == null || stop.getLongitude() == null
+                || other.getLatitude() == null || other.getLongitude() == null) {
+            return true;
+        }
+        return GeoUtils.haversineKm(stop.getLatitude(), stop.getLongitude(), other.getLatitude(), other.getLongitude())
+                <= StopAreaIndex.MAX_AREA_SPAN_KM;
+    }
+
+    private int resolveStop(Timetable timetable, Long stopId) {
+        int stop = timetable.stopIndex(stopId);
+        if (stop < 0) throw new StopNotFoundException("Stop not found ID: " + stopId);
+        return stop;
+    }
+}
@@ -0,0 +1,64 @@
+package com.leszek.busscheduler.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs {@code task(0) .. task(count - 1)} on virtual threads, at most {@code parallelism} at a time.
+ * <p>
+ * The first task to throw stops the rest: nothing new is submitted, tasks not yet started are
+ * skipped or cancelled, and the failure is rethrown to the caller once the running ones finish.
+ * Streaming endpoints rely on this so a client that went away does not keep every remaining
+ * computation writing into a dead stream.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {}
+
+    static void run(int count, int parallelism, IntConsumer task) {
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(count);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count && !failed.get(); i++) {
+                int index = i;
+                permits.acquireUninterruptibly();
+                futures.add(executor.submit(() -> {
+                    try {
+                        if (!failed.get()) task.accept(index);
+                    } catch (RuntimeException | Error ex) {
+                        failed.set(true);
+                        throw ex;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            awaitAll(futures);
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                futures.forEach(f -> f.cancel(true));
+                if (ex.getCause() instanceof RuntimeException cause) throw cause;
+                if (ex.getCause() instanceof Error cause) throw cause;
+                throw new IllegalStateException(ex.getCause());
+            } catch (InterruptedException ex) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for parallel tasks", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import com.leszek.busscheduler.dto.ReachabilityRequest;
+import com.leszek.busscheduler.dto.ReachableStopDTO;
+import com.leszek.busscheduler.exception.StopNotFoundException;
+import com.leszek.busscheduler.geo.GeoUtils;
+import com.leszek.busscheduler.service.ReachabilityService;
+import com.leszek.busscheduler.timetable.EarliestArrivalScan;
+import com.leszek.busscheduler.timetable.StopSpatialIndex;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class ReachabilityServiceImpl implements ReachabilityService {
+
+    private final TimetableProvider timetableProvider;
+    private final TimetableProperties timetableProperties;
+
+    @Override
+    public List<ReachableStopDTO> findReachable(ReachabilityRequest request) {
+        Timetable timetable = timetableProvider.get();
+        int minute = Timetable.toMinute(request.time());
+        int latestArrival = Math.min(minute + Math.max(0, request.maxMinutes()), Timetable.MINUTES_PER_DAY - 1);
+
+        List<Integer> sources = new ArrayList<>();
+        List<Integer> sourceMinutes = new ArrayList<>();
+        if (request.fromId() != null) {
+            int from = timetable.stopIndex(request.fromId());
+            if (from < 0) throw new StopNotFoundException("Stop not found ID: " + request.fromId());
+            sources.add(from);
+            sourceMinutes.add(minute);
+        } else {
+            addWalkingSources(timetable, request.lat(), request.lon(), minute, latestArrival, sources, sourceMinutes);
+        }
+
+        LocalDate date = request.date() != null ? request.date() : LocalDate.now();
+        int minTransferMinutes = request.minTransferMinutes() != null
+                ? request.minTransferMinutes() : timetableProperties.getMinTransferMinutes();
+        int[] arrival = EarliestArrivalScan.fromStops(timetable,
+                sources.stream().mapToInt(Integer::intValue).toArray(),
+                sourceMinutes.stream().mapToInt(Integer::intValue).toArray(),
+                timetable.serviceDay(date), minTransferMinutes, latestArrival);
+
+        List<ReachableStopDTO> reachable = new ArrayList<>();
+        for (int stop = 0; stop < arrival.length; stop++) {
+            if (arrival[stop] == EarliestArrivalScan.UNREACHED) continue;
+            double lat = timetable.latitude(stop);
+            double lon = timetable.longitude(stop);
+            reachable.add(new ReachableStopDTO(
+                    timetable.stopId(stop),
+                    timetable.stopName(stop),
+                    timetable.stopCity(stop),
+                    Double.isNaN(lat) ? null : lat,
+                    Double.isNaN(lon) ? null : lon,
+                    Timetable.toTime(arrival[stop]),
+                    arrival[stop] - minute));
+        }
+        reachable.sort(Comparator.comparingInt(ReachableStopDTO::minutes));
+        return reachable;
+    }
+
+    // Stops within walking radius, from the spatial index; each starts at the time it takes to walk there
+    private void addWalkingSources(Timetable timetable, double lat, double lon, int minute, int latestArrival,
+                                   List<Integer> sources, List<Integer> sourceMinutes) {
+        int metersPerMinute = Math.max(1, timetableProperties.getWalkingMetersPerMinute());
+        for (StopSpatialIndex.Hit hit : timetable.spatialIndex().withinRadius(lat, lon, GeoUtils.WALKING_RADIUS_KM)) {
+            int walked = minute + (int) Math.ceil(hit.distanceKm() * 1000 / metersPerMinute);
+            if (walked > latestArrival) continue;
+            sources.add(hit.stop());
+            sourceMinutes.add(walked);
+        }
+    }
+}
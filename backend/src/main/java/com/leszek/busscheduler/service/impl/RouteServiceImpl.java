@@ -1,5 +1,6 @@
 package com.leszek.busscheduler.service.impl;
 
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.domain.BusLine;
 import com.leszek.busscheduler.domain.BusStop;
 import com.leszek.busscheduler.domain.Departure;
@@ -11,12 +12,13 @@ import com.leszek.busscheduler.repository.BusLineRepository;
 import com.leszek.busscheduler.repository.BusStopRepository;
 import com.leszek.busscheduler.repository.RouteRepository;
 import com.leszek.busscheduler.repository.TripRepository;
+import com.leszek.busscheduler.service.BusSearchService;
 import com.leszek.busscheduler.service.RouteService;
+import com.leszek.busscheduler.timetable.ServiceCalendarResolver;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
@@ -31,6 +33,9 @@ public class RouteServiceImpl implements RouteService {
     private final BusLineRepository busLineRepository;
     private final BusStopRepository busStopRepository; // Dodano
     private final TripRepository tripRepository;       // Dodano
+    private final ServiceCalendarResolver serviceCalendarResolver;
+    private final TimetableProperties timetableProperties;
+    private final BusSearchService busSearchService;
 
     @Override
     @Transactional(readOnly = true)
@@ -85,6 +90,11 @@ public class RouteServiceImpl implements RouteService {
     @Override
     @Transactional(readOnly = true)
     public List<ConnectionDTO> findConnections(SearchRequest request) {
+        // Pattern-stored trips keep only overrides in departures; their stop times exist in the timetable alone
+        if (timetableProperties.getTripStorage() == TimetableProperties.TripStorage.PATTERN) {
+            return busSearchService.search(request);
+        }
+
         // 1. Znajdź ID przystanków
         BusStop fromStop = busStopRepository.findById(request.fromId())
              .orElseThrow(() -> new IllegalArgumentException("Stop not found ID: " + request.fromId()));
@@ -94,8 +104,9 @@ public class RouteServiceImpl implements RouteService {
         // 2. Pobierz pary odjazdów
         // Używamy zoptymalizowanego zapytania w TripRepository
         LocalDate date = request.date() != null ? request.date() : LocalDate.now();
-        String calendarType = determineDayType(date);
-        List<Object[]> rawConnections = tripRepository.findConnections(fromStop.getId(), toStop.getId(), request.time(), calendarType);
+        List<String> calendarTypes = serviceCalendarResolver.calendarTypes(date);
+        if (calendarTypes.isEmpty()) return List.of();
+        List<Object[]> rawConnections = tripRepository.findConnections(fromStop.getId(), toStop.getId(), request.time(), calendarTypes);
 
                 // 3. Mapuj na DTO
         return rawConnections.stream()
@@ -113,11 +124,4 @@ public class RouteServiceImpl implements RouteService {
             })
             .toList();
     }
-
-    private String determineDayType(LocalDate date) {
-        DayOfWeek day = date.getDayOfWeek();
-        if (day == DayOfWeek.SATURDAY) return "SATURDAYS";
-        if (day == DayOfWeek.SUNDAY)   return "SUNDAYS_HOLIDAYS";
-        return "WORKDAYS";
-    }
 }
@@ -0,0 +1,69 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.cache.RouteShapeCache;
+import com.leszek.busscheduler.dto.RouteShapeDTO;
+import com.leszek.busscheduler.geo.PolylineCodec;
+import com.leszek.busscheduler.geo.RouteShape;
+import com.leszek.busscheduler.repository.RouteRepository;
+import com.leszek.busscheduler.repository.RouteStopRepository;
+import com.leszek.busscheduler.service.RouteShapeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RouteShapeServiceImpl implements RouteShapeService {
+
+    static final String IMPORTED = "IMPORTED";
+    static final String DERIVED = "DERIVED";
+
+    private final RouteRepository routeRepository;
+    private final RouteStopRepository routeStopRepository;
+    private final RouteShapeCache routeShapeCache;
+
+    // Database only: an imported shape needs no stops, and a derived one reads their coordinates with the route
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<RouteShapeDTO> findShape(Long routeId, Integer zoom) {
+        RouteShapeCache.Entry entry = routeShapeCache.get(new RouteShapeCache.Key(routeId, routeShapeCache.generation()),
+                () -> load(routeId));
+        if (entry == null) return Optional.empty();
+        return Optional.of(new RouteShapeDTO(routeId, zoom, entry.source(), entry.shape().points(zoom),
+                entry.shape().polyline(zoom)));
+    }
+
+    private RouteShapeCache.Entry load(Long routeId) {
+        Optional<RouteRepository.RouteShapeRow> route = routeRepository.findShapeRowById(routeId);
+        if (route.isEmpty()) return null;
+        String imported = route.get().getShape();
+        if (imported != null && !imported.isBlank()) {
+            try {
+                double[][] points = PolylineCodec.decode(imported);
+                return new RouteShapeCache.Entry(RouteShape.of(points[0], points[1]), IMPORTED);
+            } catch (IllegalArgumentException ex) {
+                log.warn("Route {} has a corrupt imported shape, drawing it through its stops", routeId, ex);
+            }
+        }
+        return new RouteShapeCache.Entry(throughStops(routeStopRepository.findPointsByRouteId(routeId)), DERIVED);
+    }
+
+    // Straight segments between consecutive stops in route order; stops without coordinates are skipped
+    private static RouteShape throughStops(List<RouteStopRepository.StopPointRow> rows) {
+        double[] latitudes = new double[rows.size()];
+        double[] longitudes = new double[rows.size()];
+        int points = 0;
+        for (RouteStopRepository.StopPointRow row : rows) {
+            if (row.getLatitude() == null || row.getLongitude() == null) continue;
+            latitudes[points] = row.getLatitude();
+            longitudes[points++] = row.getLongitude();
+        }
+        return RouteShape.of(Arrays.copyOf(latitudes, points), Arrays.copyOf(longitudes, points));
+    }
+}
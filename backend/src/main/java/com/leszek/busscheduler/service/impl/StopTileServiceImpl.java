@@ -0,0 +1,86 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.cache.StopTileCache;
+import com.leszek.busscheduler.dto.VectorTileDTO;
+import com.leszek.busscheduler.geo.VectorTileEncoder;
+import com.leszek.busscheduler.service.StopTileService;
+import com.leszek.busscheduler.timetable.StopClusterIndex;
+import com.leszek.busscheduler.timetable.StopSpatialIndex;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class StopTileServiceImpl implements StopTileService {
+
+    static final String LAYER = "stops";
+    // Points this far outside the tile (in tile units) are included so markers on the edge are not cut in half
+    static final int BUFFER = 64;
+
+    private final TimetableProvider timetableProvider;
+    private final StopTileCache tileCache;
+
+    @Override
+    public VectorTileDTO stopTile(int z, int x, int y) {
+        Timetable timetable = timetableProvider.get();
+        byte[] data = tileCache.get(new StopTileCache.Key(z, x, y, timetable.version()),
+                () -> encode(timetable, z, x, y));
+        return new VectorTileDTO(data, timetable.version());
+    }
+
+    private static byte[] encode(Timetable timetable, int z, int x, int y) {
+        int extent = VectorTileEncoder.DEFAULT_EXTENT;
+        double tiles = 1L << z;
+        double buffer = (double) BUFFER / extent;
+        double west = longitude((x - buffer) / tiles);
+        double east = longitude((x + 1 + buffer) / tiles);
+        double north = latitude((y - buffer) / tiles);
+        double south = latitude((y + 1 + buffer) / tiles);
+
+        StopSpatialIndex spatialIndex = timetable.spatialIndex();
+        VectorTileEncoder encoder = new VectorTileEncoder(LAYER, extent);
+        for (StopClusterIndex.Cluster point : timetable.stopClusters().viewport(south, west, north, east, z)) {
+            // A cluster comes back when its cell touches the box; keep only those centred here so no two tiles draw it
+            if (point.latitude() < south || point.latitude() > north
+                    || point.longitude() < west || point.longitude() > east) continue;
+            int px = (int) Math.round((mercatorX(point.longitude()) * tiles - x) * extent);
+            int py = (int) Math.round((mercatorY(point.latitude()) * tiles - y) * extent);
+            Map<String, String> attributes = new LinkedHashMap<>();
+            attributes.put("count", Integer.toString(point.count()));
+            int stop = point.stop();
+            if (stop < 0) {
+                encoder.addPoint(-1, px, py, attributes);
+                continue;
+            }
+            attributes.put("id", Long.toString(timetable.stopId(stop)));
+            attributes.put("name", timetable.stopName(stop));
+            attributes.put("city", timetable.stopCity(stop));
+            attributes.put("directions", String.join("; ", spatialIndex.directions(stop)));
+            encoder.addPoint(timetable.stopId(stop), px, py, attributes);
+        }
+        return encoder.encode();
+    }
+
+    // Web Mercator: map fraction [0, 1] <-> degrees
+    private static double mercatorX(double longitude) {
+        return (longitude + 180.0) / 360.0;
+    }
+
+    private static double mercatorY(double latitude) {
+        double radians = Math.toRadians(latitude);
+        return (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2;
+    }
+
+    private static double longitude(double x) {
+        return x * 360.0 - 180.0;
+    }
+
+    private static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+}
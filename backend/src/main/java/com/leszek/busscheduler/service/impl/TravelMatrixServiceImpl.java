@@ -0,0 +1,94 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import com.leszek.busscheduler.dto.TravelMatrixDTO;
+import com.leszek.busscheduler.dto.TravelMatrixRequest;
+import com.leszek.busscheduler.dto.TravelMatrixRowDTO;
+import com.leszek.busscheduler.exception.StopNotFoundException;
+import com.leszek.busscheduler.service.TravelMatrixService;
+import com.leszek.busscheduler.timetable.EarliestArrivalScan;
+import com.leszek.busscheduler.timetable.ServiceDay;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+@Service
+@RequiredArgsConstructor
+public class TravelMatrixServiceImpl implements TravelMatrixService {
+
+    private static final int ROW_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private final TimetableProvider timetableProvider;
+    private final TimetableProperties timetableProperties;
+
+    // Request resolved against one timetable snapshot
+    private record Plan(Timetable timetable, int[] origins, int[] destinations,
+                        int minute, ServiceDay day, int minTransferMinutes) {
+
+        List<Long> ids(int[] stops) {
+            return IntStream.of(stops).mapToObj(timetable::stopId).toList();
+        }
+    }
+
+    @Override
+    public TravelMatrixDTO compute(TravelMatrixRequest request) {
+        Plan plan = plan(request);
+        int[][] minutes = new int[plan.origins().length][];
+        computeRows(plan, row -> minutes[row.index()] = row.minutes());
+        return new TravelMatrixDTO(request.time(), plan.ids(plan.origins()), plan.ids(plan.destinations()), minutes);
+    }
+
+    @Override
+    public void stream(TravelMatrixRequest request, RowSink sink) {
+        Plan plan = plan(request);
+        sink.header(plan.ids(plan.origins()), plan.ids(plan.destinations()));
+        computeRows(plan, sink::row);
+    }
+
+    private Plan plan(TravelMatrixRequest request) {
+        Timetable timetable = timetableProvider.get();
+        LocalDate date = request.date() != null ? request.date() : LocalDate.now();
+        int minTransferMinutes = request.minTransferMinutes() != null
+                ? request.minTransferMinutes() : timetableProperties.getMinTransferMinutes();
+        return new Plan(timetable, resolveStops(timetable, request.fromIds()), resolveStops(timetable, request.toIds()),
+                Timetable.toMinute(request.time()), timetable.serviceDay(date),
+                minTransferMinutes);
+    }
+
+    // One one-to-all scan per origin; scans are independent, so they run on all cores.
+    // A failed scan or a sink that stopped accepting rows cancels the remaining ones and is rethrown
+    private void computeRows(Plan plan, Consumer<TravelMatrixRowDTO> sink) {
+        ParallelTasks.run(plan.origins().length, ROW_PARALLELISM, index -> sink.accept(computeRow(plan, index)));
+    }
+
+    private TravelMatrixRowDTO computeRow(Plan plan, int index) {
+        int origin = plan.origins()[index];
+        int[] arrival = EarliestArrivalScan.fromStop(plan.timetable(), origin, plan.minute(), plan.day(),
+                plan.minTransferMinutes(), Timetable.MINUTES_PER_DAY - 1);
+        int[] destinations = plan.destinations();
+        int[] minutes = new int[destinations.length];
+        for (int j = 0; j < destinations.length; j++) {
+            int time = arrival[destinations[j]];
+            minutes[j] = time == EarliestArrivalScan.UNREACHED ? -1 : time - plan.minute();
+        }
+        return new TravelMatrixRowDTO(index, plan.timetable().stopId(origin), minutes);
+    }
+
+    private int[] resolveStops(Timetable timetable, List<Long> stopIds) {
+        if (stopIds == null || stopIds.isEmpty()) {
+            return IntStream.range(0, timetable.stopCount()).toArray();
+        }
+        int[] stops = new int[stopIds.size()];
+        for (int i = 0; i < stops.length; i++) {
+            stops[i] = timetable.stopIndex(stopIds.get(i));
+            if (stops[i] < 0) throw new StopNotFoundException("Stop not found ID: " + stopIds.get(i));
+        }
+        return stops;
+    }
+}
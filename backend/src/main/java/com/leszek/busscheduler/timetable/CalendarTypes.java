@@ -0,0 +1,35 @@
+package com.leszek.busscheduler.timetable;
+
+import java.time.LocalDate;
+
+/**
+ * Weekday masks of the built-in {@code Trip.calendarType} codes, used when a code has no
+ * {@code ServiceCalendar} row of its own. Bit 0 is Monday, bit 6 is Sunday.
+ */
+public final class CalendarTypes {
+
+    public static final String WORKDAYS = "WORKDAYS";
+    public static final String SATURDAYS = "SATURDAYS";
+    public static final String SUNDAYS_HOLIDAYS = "SUNDAYS_HOLIDAYS";
+
+    public static final int MONDAY_TO_FRIDAY = 0b0011111;
+    public static final int SATURDAY = 0b0100000;
+    public static final int SUNDAY = 0b1000000;
+
+    private CalendarTypes() {}
+
+    /** Weekdays a built-in code runs on, 0 for codes that only run on explicitly added dates. */
+    public static int defaultWeekdays(String calendarType) {
+        if (calendarType == null) return 0;
+        return switch (calendarType) {
+            case WORKDAYS -> MONDAY_TO_FRIDAY;
+            case SATURDAYS -> SATURDAY;
+            case SUNDAYS_HOLIDAYS -> SUNDAY;
+            default -> 0;
+        };
+    }
+
+    public static int weekdayBit(LocalDate date) {
+        return 1 << (date.getDayOfWeek().getValue() - 1);
+    }
+}
@@ -0,0 +1,119 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.Arrays;
+
+/**
+ * Every elementary connection (two consecutive stops of one trip) of a {@link Timetable},
+ * stored column-wise and sorted by departure time for the Connection Scan Algorithm.
+ * <p>
+ * Connections of the same trip keep their stop order when times tie, so a scan always
+ * sees a trip's connections in travel order.
+ */
+public final class ConnectionIndex {
+
+    private final int[] departureStop;
+    private final int[] arrivalStop;
+    private final int[] departureTime;
+    private final int[] arrivalTime;
+    private final int[] pattern;
+    private final int[] trip;
+    private final int[] position;
+    private final int[] tripOffsets;
+    private final int tripCount;
+
+    private ConnectionIndex(int[] departureStop, int[] arrivalStop, int[] departureTime, int[] arrivalTime,
+                            int[] pattern, int[] trip, int[] position, int[] tripOffsets, int tripCount) {
+        this.departureStop = departureStop;
+        this.arrivalStop = arrivalStop;
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+        this.pattern = pattern;
+        this.trip = trip;
+        this.position = position;
+        this.tripOffsets = tripOffsets;
+        this.tripCount = tripCount;
+    }
+
+    static ConnectionIndex build(Timetable timetable) {
+        int[] tripOffsets = new int[timetable.patternCount()];
+        int trips = 0;
+        int count = 0;
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            TripPattern tp = timetable.pattern(p);
+            tripOffsets[p] = trips;
+            trips += tp.tripCount();
+            count += tp.tripCount() * Math.max(0, tp.stopCount() - 1);
+        }
+
+        // Sort key: departure, arrival, then creation order (trip-major, stop order within a trip)
+        long[] keys = new long[count];
+        int[] sourcePattern = new int[count];
+        int[] sourceTrip = new int[count];
+        int[] sourcePosition = new int[count];
+        int n = 0;
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            TripPattern tp = timetable.pattern(p);
+            for (int t = 0; t < tp.tripCount(); t++) {
+                for (int pos = 0; pos + 1 < tp.stopCount(); pos++) {
+                    keys[n] = ((long) tp.time(t, pos) << 44) | ((long) tp.time(t, pos + 1) << 32) | n;
+                    sourcePattern[n] = p;
+                    sourceTrip[n] = t;
+                    sourcePosition[n] = pos;
+                    n++;
+                }
+            }
+        }
+        Arrays.sort(keys);
+
+        int[] departureStop = new int[count];
+        int[] arrivalStop = new int[count];
+        int[] departureTime = new int[count];
+        int[] arrivalTime = new int[count];
+        int[] pattern = new int[count];
+        int[] trip = new int[count];
+        int[] position = new int[count];
+        for (int c = 0; c < count; c++) {
+            int source = (int) (keys[c] & 0xFFFFFFFFL);
+            TripPattern tp = timetable.pattern(sourcePattern[source]);
+            int t = sourceTrip[source];
+            int pos = sourcePosition[source];
+            departureStop[c] = tp.stop(pos);
+            arrivalStop[c] = tp.stop(pos + 1);
+            departureTime[c] = tp.time(t, pos);
+            arrivalTime[c] = tp.time(t, pos + 1);
+            pattern[c] = sourcePattern[source];
+            trip[c] = t;
+            position[c] = pos;
+        }
+        return new ConnectionIndex(departureStop, arrivalStop, departureTime, arrivalTime,
+                pattern, trip, position, tripOffsets, trips);
+    }
+
+    public int size() { return departureTime.length; }
+
+    /** Number of trips in the timetable; {@link #globalTrip(int)} ranges over {@code [0, tripCount)}. */
+    public int tripCount() { return tripCount; }
+
+    public int departureStop(int c) { return departureStop[c]; }
+    public int arrivalStop(int c) { return arrivalStop[c]; }
+    public int departureTime(int c) { return departureTime[c]; }
+    public int arrivalTime(int c) { return arrivalTime[c]; }
+    public int pattern(int c) { return pattern[c]; }
+    public int trip(int c) { return trip[c]; }
+
+    /** Position of the departure stop within the pattern; the arrival stop is the next one. */
+    public int position(int c) { return position[c]; }
+
+    public int globalTrip(int c) { return tripOffsets[pattern[c]] + trip[c]; }
+
+    /** Index of the first connection departing at or after {@code minute}. */
+    public int firstDepartingAtOrAfter(int minute) {
+        int lo = 0, hi = departureTime.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (departureTime[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
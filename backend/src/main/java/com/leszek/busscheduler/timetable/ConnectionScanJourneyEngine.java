@@ -0,0 +1,117 @@
+package com.leszek.busscheduler.timetable;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Connection Scan Algorithm (CSA) for earliest-arrival queries.
+ * <p>
+ * A single linear pass over {@link ConnectionIndex} starting at the requested time. Labels are
+ * kept per number of rides so the result is the same (arrival, transfers) Pareto set that
+ * {@link RaptorJourneyEngine} returns, while the scan itself stays sequential and cache friendly.
+ */
+@Component
+public class ConnectionScanJourneyEngine implements JourneyEngine {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    @Override
+    public Type type() {
+        return Type.CSA;
+    }
+
+    @Override
+    public List<Journey> plan(Timetable timetable, JourneyQuery query) {
+        int from = query.from();
+        int to = query.to();
+        ServiceDay day = query.day();
+        if (from == to || day.isEmpty()) return List.of();
+
+        ConnectionIndex connections = timetable.connections();
+        int stopCount = timetable.stopCount();
+        int rides = query.maxTransfers() + 1;
+        int transfer = query.minTransferMinutes();
+
+        // arrival[r * stopCount + stop]: earliest arrival using exactly r rides
+        int[] arrival = new int[(rides + 1) * stopCount];
+        Arrays.fill(arrival, UNREACHED);
+        int[] labelIn = new int[(rides + 1) * stopCount];
+        int[] labelEnter = new int[(rides + 1) * stopCount];
+        // tripRides[trip]: fewest rides with which the trip has been boarded so far (0 = not boarded)
+        int[] tripRides = new int[connections.tripCount()];
+        int[] tripEnter = new int[connections.tripCount()];
+
+        arrival[from] = query.minute();
+        // Nothing departing after the single-ride arrival can still improve any label at the target
+        int directAtTarget = UNREACHED;
+
+        for (int c = connections.firstDepartingAtOrAfter(query.minute()); c < connections.size(); c++) {
+            int departure = connections.departureTime(c);
+            if (departure >= directAtTarget) break;
+            TripPattern pattern = timetable.pattern(connections.pattern(c));
+            if (!day.runs(pattern.calendar(connections.trip(c)))) continue;
+
+            int trip = connections.globalTrip(c);
+            int departureStop = connections.departureStop(c);
+            int limit = tripRides[trip] == 0 ? rides : tripRides[trip] - 1;
+            for (int r = 1; r <= limit; r++) {
+                int reached = arrival[(r - 1) * stopCount + departureStop];
+                if (reached != UNREACHED && reached + (r > 1 ? transfer : 0) <= departure) {
+                    tripRides[trip] = r;
+                    tripEnter[trip] = c;
+                    break;
+                }
+            }
+
+            int r = tripRides[trip];
+            if (r == 0) continue;
+            int arrivalStop = connections.arrivalStop(c);
+            int time = connections.arrivalTime(c);
+            if (time < bestUpTo(arrival, stopCount, arrivalStop, r)
+                    && time < bestUpTo(arrival, stopCount, to, r)) {
+                int label = r * stopCount + arrivalStop;
+                arrival[label] = time;
+                labelIn[label] = c;
+                labelEnter[label] = tripEnter[trip];
+                if (arrivalStop == to && r == 1) directAtTarget = time;
+            }
+        }
+
+        List<Journey> journeys = new ArrayList<>();
+        int bestSoFar = UNREACHED;
+        for (int r = 1; r <= rides; r++) {
+            int time = arrival[r * stopCount + to];
+            if (time < bestSoFar) {
+                bestSoFar = time;
+                journeys.add(reconstruct(connections, stopCount, r, to, labelIn, labelEnter));
+            }
+        }
+        return journeys;
+    }
+
+    private static int bestUpTo(int[] arrival, int stopCount, int stop, int rides) {
+        int best = UNREACHED;
+        for (int r = 0; r <= rides; r++) {
+            best = Math.min(best, arrival[r * stopCount + stop]);
+        }
+        return best;
+    }
+
+    private static Journey reconstruct(ConnectionIndex connections, int stopCount, int rides, int target,
+                                       int[] labelIn, int[] labelEnter) {
+        Journey.Leg[] legs = new Journey.Leg[rides];
+        int stop = target;
+        for (int r = rides; r >= 1; r--) {
+            int label = r * stopCount + stop;
+            int in = labelIn[label];
+            int enter = labelEnter[label];
+            legs[r - 1] = new Journey.Leg(connections.pattern(in), connections.trip(in),
+                    connections.position(enter), connections.position(in) + 1);
+            stop = connections.departureStop(enter);
+        }
+        return new Journey(List.of(legs));
+    }
+}
@@ -0,0 +1,154 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Departure boards of a {@link Timetable}.
+ * <p>
+ * Boards cover a whole {@link StopAreaIndex stop area} (old and new ids of an edited stop, both
+ * platforms). Every (pattern, position) serving an area gets one sorted stream of departure
+ * minutes per calendar, so "next N after T" is a binary search per stream plus a k-way merge.
+ */
+public final class DepartureBoardIndex {
+
+    /** One row of a board. */
+    public record Entry(int pattern, int trip, int position, int minute) {}
+
+    private final int[] areaOfStop;
+    private final int calendarCount;
+    // streams of area a, calendar c: streamIds[streamOffsets[a * calendarCount + c] .. next offset)
+    private final int[] streamOffsets;
+    private final int[] streamPatterns;
+    private final int[] streamPositions;
+    private final int[] streamStarts;
+    private final int[] minutes;
+    private final int[] trips;
+
+    private DepartureBoardIndex(int[] areaOfStop, int calendarCount, int[] streamOffsets,
+                                int[] streamPatterns, int[] streamPositions, int[] streamStarts,
+                                int[] minutes, int[] trips) {
+        this.areaOfStop = areaOfStop;
+        this.calendarCount = calendarCount;
+        this.streamOffsets = streamOffsets;
+        this.streamPatterns = streamPatterns;
+        this.streamPositions = streamPositions;
+        this.streamStarts = streamStarts;
+        this.minutes = minutes;
+        this.trips = trips;
+    }
+
+    static DepartureBoardIndex build(Timetable timetable) {
+        int stopCount = timetable.stopCount();
+        StopAreaIndex stopAreas = timetable.stopAreas();
+        int areaCount = stopAreas.areaCount();
+        int[] areaOfStop = new int[stopCount];
+        for (int stop = 0; stop < stopCount; stop++) areaOfStop[stop] = stopAreas.area(stop);
+
+        int calendarCount = 0;
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            TripPattern pattern = timetable.pattern(p);
+            for (int t = 0; t < pattern.tripCount(); t++) calendarCount = Math.max(calendarCount, pattern.calendar(t) + 1);
+        }
+
+        // Group (pattern, position) streams by (area, calendar)
+        List<List<int[]>> groups = new ArrayList<>(areaCount * calendarCount);
+        for (int i = 0; i < areaCount * calendarCount; i++) groups.add(new ArrayList<>());
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            TripPattern pattern = timetable.pattern(p);
+            boolean[] present = new boolean[calendarCount];
+            for (int t = 0; t < pattern.tripCount(); t++) present[pattern.calendar(t)] = true;
+            for (int pos = 0; pos < pattern.stopCount(); pos++) {
+                int area = areaOfStop[pattern.stop(pos)];
+                for (int c = 0; c < calendarCount; c++) {
+                    if (present[c]) groups.get(area * calendarCount + c).add(new int[]{p, pos, c});
+                }
+            }
+        }
+
+        int streamCount = groups.stream().mapToInt(List::size).sum();
+        int[] streamOffsets = new int[groups.size() + 1];
+        int[] streamPatterns = new int[streamCount];
+        int[] streamPositions = new int[streamCount];
+        int[] streamStarts = new int[streamCount + 1];
+        int[] minutes = new int[16];
+        int[] trips = new int[16];
+        int s = 0;
+        int n = 0;
+        for (int g = 0; g < groups.size(); g++) {
+            streamOffsets[g] = s;
+            for (int[] stream : groups.get(g)) {
+                TripPattern pattern = timetable.pattern(stream[0]);
+                streamPatterns[s] = stream[0];
+                streamPositions[s] = stream[1];
+                streamStarts[s] = n;
+                for (int t = 0; t < pattern.tripCount(); t++) {
+                    if (pattern.calendar(t) != stream[2]) continue;
+                    if (n == minutes.length) {
+                        minutes = Arrays.copyOf(minutes, n * 2);
+                        trips = Arrays.copyOf(trips, n * 2);
+                    }
+                    // Patterns never overtake, so the minutes of one position are already sorted
+                    minutes[n] = pattern.time(t, stream[1]);
+                    trips[n] = t;
+                    n++;
+                }
+                s++;
+            }
+        }
+        streamOffsets[groups.size()] = s;
+        streamStarts[s] = n;
+        return new DepartureBoardIndex(areaOfStop, calendarCount, streamOffsets, streamPatterns, streamPositions,
+                streamStarts, Arrays.copyOf(minutes, n), Arrays.copyOf(trips, n));
+    }
+
+    /** Stop area of the stop, see {@link StopAreaIndex}. */
+    public int area(int stop) { return areaOfStop[stop]; }
+
+    /** At most {@code limit} departures from the area at or after {@code minute}, in time order. */
+    public List<Entry> next(int area, ServiceDay day, int minute, int limit) {
+        if (limit <= 0) return List.of();
+        // Streams of every calendar running that day
+        int[] streams = new int[0];
+        for (int calendar : day.calendars()) {
+            if (calendar >= calendarCount) break;
+            int group = area * calendarCount + calendar;
+            int first = streamOffsets[group];
+            int count = streamOffsets[group + 1] - first;
+            streams = Arrays.copyOf(streams, streams.length + count);
+            for (int i = 0; i < count; i++) streams[streams.length - count + i] = first + i;
+        }
+
+        // Heap of (minute << 32 | local stream); ties keep stream order
+        int[] cursor = new int[streams.length];
+        PriorityQueue<Long> heap = new PriorityQueue<>(Math.max(1, streams.length));
+        for (int i = 0; i < streams.length; i++) {
+            int s = streams[i];
+            int at = firstAtOrAfter(streamStarts[s], streamStarts[s + 1], minute);
+            cursor[i] = at;
+            if (at < streamStarts[s + 1]) heap.add(((long) minutes[at] << 32) | i);
+        }
+
+        List<Entry> board = new ArrayList<>(limit);
+        while (board.size() < limit && !heap.isEmpty()) {
+            int i = (int) (heap.poll() & 0xFFFFFFFFL);
+            int s = streams[i];
+            int at = cursor[i]++;
+            board.add(new Entry(streamPatterns[s], trips[at], streamPositions[s], minutes[at]));
+            if (at + 1 < streamStarts[s + 1]) heap.add(((long) minutes[at + 1] << 32) | i);
+        }
+        return board;
+    }
+
+    private int firstAtOrAfter(int lo, int hi, int minute) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minutes[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every direct ride of a {@link Timetable}, grouped by (from stop, to stop, calendar).
+ * <p>
+ * Each group is a slice of three parallel arrays (departure minute, arrival minute, pattern)
+ * sorted by departure then arrival, so "direct connections from A to B after T" is one binary
+ * search over the group keys, one over the departures and a slice copy.
+ */
+public final class DirectConnectionIndex {
+
+    // Packing of one entry while building: departure (11 bits) | arrival (11 bits) | pattern (32 bits)
+    private static final int ARRIVAL_SHIFT = 32;
+    private static final int DEPARTURE_SHIFT = 43;
+    private static final long MINUTE_MASK = (1L << 11) - 1;
+
+    private final int stopCount;
+    private final long[] keys;
+    private final int[] offsets;
+    private final int[] departures;
+    private final int[] arrivals;
+    private final int[] patterns;
+
+    private DirectConnectionIndex(int stopCount, long[] keys, int[] offsets,
+                                  int[] departures, int[] arrivals, int[] patterns) {
+        this.stopCount = stopCount;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.departures = departures;
+        this.arrivals = arrivals;
+        this.patterns = patterns;
+    }
+
+    static DirectConnectionIndex build(Timetable timetable) {
+        Groups groups = new Groups(timetable.stopCount());
+        for (int p = 0; p < timetable.patternCount(); p++) groups.add(timetable.pattern(p));
+
+        long[] keys = groups.sortedKeys();
+        int[] offsets = new int[keys.length + 1];
+        int[] departures = new int[groups.total];
+        int[] arrivals = new int[groups.total];
+        int[] patterns = new int[groups.total];
+        int n = 0;
+        for (int k = 0; k < keys.length; k++) {
+            offsets[k] = n;
+            int size = groups.size(keys[k]);
+            long[] entries = groups.sortedEntries(keys[k]);
+            for (int i = 0; i < size; i++) {
+                departures[n] = unpackDeparture(entries[i]);
+                arrivals[n] = unpackArrival(entries[i]);
+                patterns[n] = (int) entries[i];
+                n++;
+            }
+        }
+        offsets[keys.length] = n;
+        return new DirectConnectionIndex(timetable.stopCount(), keys, offsets, departures, arrivals, patterns);
+    }
+
+    /**
+     * Copy with the entries of the {@code replaced} pattern slots dropped and the rides of {@code added}
+     * merged in, for single-trip patches: one pass over this index plus the added patterns' rides
+     * instead of a full build.
+     */
+    DirectConnectionIndex patch(boolean[] replaced, List<TripPattern> added) {
+        Groups fresh = new Groups(stopCount);
+        added.forEach(fresh::add);
+        long[] freshKeys = fresh.sortedKeys();
+
+        long[] outKeys = new long[keys.length + freshKeys.length];
+        int[] outOffsets = new int[outKeys.length + 1];
+        int[] outDepartures = new int[departures.length + fresh.total];
+        int[] outArrivals = new int[outDepartures.length];
+        int[] outPatterns = new int[outDepartures.length];
+        int groups = 0;
+        int n = 0;
+        for (int k = 0, f = 0; k < keys.length || f < freshKeys.length; ) {
+            long key = f == freshKeys.length || (k < keys.length && keys[k] <= freshKeys[f]) ? keys[k] : freshKeys[f];
+            boolean inOld = k < keys.length && keys[k] == key;
+            boolean inFresh = f < freshKeys.length && freshKeys[f] == key;
+            int i = inOld ? offsets[k] : 0, end = inOld ? offsets[k + 1] : 0;
+            long[] extra = inFresh ? fresh.sortedEntries(key) : null;
+            int j = 0, size = inFresh ? fresh.size(key) : 0;
+            int start = n;
+            while (i < end || j < size) {
+                if (i < end && replaced[patterns[i]]) {
+                    i++;
+                } else if (j == size || (i < end && pack(departures[i], arrivals[i], patterns[i]) <= extra[j])) {
+                    outDepartures[n] = departures[i];
+                    outArrivals[n] = arrivals[i];
+                    outPatterns[n++] = patterns[i++];
+                } else {
+                    outDepartures[n] = unpackDeparture(extra[j]);
+                    outArrivals[n] = unpackArrival(extra[j]);
+                    outPatterns[n++] = (int) extra[j++];
+                }
+            }
+            if (n > start) {
+                outKeys[groups] = key;
+                outOffsets[groups++] = start;
+            }
+            if (inOld) k++;
+            if (inFresh) f++;
+        }
+        outOffsets[groups] = n;
+        return new DirectConnectionIndex(stopCount, Arrays.copyOf(outKeys, groups), Arrays.copyOf(outOffsets, groups + 1),
+                Arrays.copyOf(outDepartures, n), Arrays.copyOf(outArrivals, n), Arrays.copyOf(outPatterns, n));
+    }
+
+    private static long pack(int departure, int arrival, int pattern) {
+        return ((long) departure << DEPARTURE_SHIFT) | ((long) arrival << ARRIVAL_SHIFT) | pattern;
+    }
+
+    private static int unpackDeparture(long entry) {
+        return (int) ((entry >>> DEPARTURE_SHIFT) & MINUTE_MASK);
+    }
+
+    private static int unpackArrival(long entry) {
+        return (int) ((entry >>> ARRIVAL_SHIFT) & MINUTE_MASK);
+    }
+
+    // Packed entries per group key, collected pattern by pattern
+    private static final class Groups {
+
+        private final int stopCount;
+        private final Map<Long, long[]> entries = new HashMap<>();
+        private final Map<Long, Integer> sizes = new HashMap<>();
+        private int total;
+
+        Groups(int stopCount) {
+            this.stopCount = stopCount;
+        }
+
+        void add(TripPattern pattern) {
+            for (int t = 0; t < pattern.tripCount(); t++) {
+                for (int from = 0; from < pattern.stopCount(); from++) {
+                    int departure = pattern.time(t, from);
+                    for (int to = from + 1; to < pattern.stopCount(); to++) {
+                        int arrival = pattern.time(t, to);
+                        if (departure >= arrival || pattern.stop(from) == pattern.stop(to)) continue;
+                        long key = key(stopCount, pattern.stop(from), pattern.stop(to), pattern.calendar(t));
+                        int size = sizes.getOrDefault(key, 0);
+                        long[] group = entries.get(key);
+                        if (group == null || group.length == size) {
+                            group = group == null ? new long[4] : Arrays.copyOf(group, size * 2);
+                            entries.put(key, group);
+                        }
+                        group[size] = pack(departure, arrival, pattern.index());
+                        sizes.put(key, size + 1);
+                        total++;
+                    }
+                }
+            }
+        }
+
+        long[] sortedKeys() {
+            return entries.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        int size(long key) {
+            return sizes.get(key);
+        }
+
+        long[] sortedEntries(long key) {
+            long[] group = entries.get(key);
+            Arrays.sort(group, 0, sizes.get(key));
+            return group;
+        }
+    }
+
+    private static long key(int stopCount, int from, int to, int calendar) {
+        return ((long) calendar * stopCount + from) * stopCount + to;
+    }
+
+    public int size() { return departures.length; }
+
+    public int departure(int entry) { return departures[entry]; }
+    public int arrival(int entry) { return arrivals[entry]; }
+    public int pattern(int entry) { return patterns[entry]; }
+
+    /**
+     * Entries {@code [start, end)} of the group leaving at or after {@code minute}, returned as
+     * {@code {start, end}}; empty when the stops are not directly connected on that calendar.
+     */
+    public int[] departingAtOrAfter(int from, int to, int calendar, int minute) {
+        int group = Arrays.binarySearch(keys, key(stopCount, from, to, calendar));
+        if (group < 0) return new int[]{0, 0};
+        int lo = offsets[group], hi = offsets[group + 1];
+        int end = hi;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (departures[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return new int[]{lo, end};
+    }
+}
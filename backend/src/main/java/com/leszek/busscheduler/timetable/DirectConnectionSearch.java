@@ -0,0 +1,93 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.ConnectionDTO;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Direct (single-trip) connections answered from a {@link Timetable}.
+ * Mirrors {@code TripRepository.findConnections}: every trip running on the given service day that
+ * leaves {@code from} at or after the requested time and reaches {@code to} later on.
+ * Depart-after queries are a slice of {@link DirectConnectionIndex}; arrive-by queries walk the patterns backwards.
+ * Both ends are widened to their {@link StopAreaIndex stop area}, so every platform of the origin and
+ * destination counts.
+ */
+public final class DirectConnectionSearch {
+
+    private DirectConnectionSearch() {}
+
+    public static List<ConnectionDTO> find(Timetable timetable, int from, int to, LocalTime time, ServiceDay day) {
+        StopAreaIndex areas = timetable.stopAreas();
+        if (day.isEmpty() || areas.area(from) == areas.area(to)) return List.of();
+        int minute = Timetable.toMinute(time);
+
+        DirectConnectionIndex index = timetable.directConnections();
+        int[] origins = areas.stops(areas.area(from));
+        int[] destinations = areas.stops(areas.area(to));
+        int[] calendars = day.calendars();
+        List<ConnectionDTO> results = new ArrayList<>();
+        int slices = 0;
+        for (int calendar : calendars) {
+            for (int origin : origins) {
+                for (int destination : destinations) {
+                    int[] slice = index.departingAtOrAfter(origin, destination, calendar, minute);
+                    if (slice[0] < slice[1]) slices++;
+                    for (int entry = slice[0]; entry < slice[1]; entry++) {
+                        results.add(connection(timetable.pattern(index.pattern(entry)),
+                                index.departure(entry), index.arrival(entry)));
+                    }
+                }
+            }
+        }
+        // Each slice is already in order; only several calendars or platforms need merging
+        if (slices > 1) {
+            results.sort(Comparator.comparing(ConnectionDTO::departureTime).thenComparing(ConnectionDTO::arrivalTime));
+        }
+        return results;
+    }
+
+    /**
+     * Trips that reach {@code to} at or before {@code time}, latest departure first. Each pattern is
+     * binary searched on its arrival position and walked backwards, so this costs the same as {@link #find}.
+     */
+    public static List<ConnectionDTO> findArrivingBy(Timetable timetable, int from, int to, LocalTime time, ServiceDay day) {
+        StopAreaIndex areas = timetable.stopAreas();
+        int fromArea = areas.area(from);
+        if (day.isEmpty() || fromArea == areas.area(to)) return List.of();
+        int minute = Timetable.toMinute(time);
+
+        List<ConnectionDTO> results = new ArrayList<>();
+        for (int destination : areas.stops(areas.area(to))) {
+            int[] patterns = timetable.patternsAt(destination);
+            int[] positions = timetable.positionsAt(destination);
+            for (int i = 0; i < patterns.length; i++) {
+                TripPattern pattern = timetable.pattern(patterns[i]);
+                int toPos = positions[i];
+                for (int fromPos = 0; fromPos < toPos; fromPos++) {
+                    if (areas.area(pattern.stop(fromPos)) != fromArea) continue;
+                    for (int trip = pattern.lastTripAtOrBefore(toPos, minute); trip >= 0; trip--) {
+                        if (!day.runs(pattern.calendar(trip))) continue;
+                        int departure = pattern.time(trip, fromPos);
+                        int arrival = pattern.time(trip, toPos);
+                        if (departure >= arrival) continue;
+                        results.add(connection(pattern, departure, arrival));
+                    }
+                }
+            }
+        }
+        results.sort(Comparator.comparing(ConnectionDTO::departureTime).reversed().thenComparing(ConnectionDTO::arrivalTime));
+        return results;
+    }
+
+    private static ConnectionDTO connection(TripPattern pattern, int departure, int arrival) {
+        return new ConnectionDTO(
+                pattern.lineNumber(),
+                Timetable.toTime(departure),
+                Timetable.toTime(arrival),
+                arrival - departure,
+                pattern.direction());
+    }
+}
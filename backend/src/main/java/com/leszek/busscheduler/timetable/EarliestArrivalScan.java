@@ -0,0 +1,64 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.Arrays;
+
+/**
+ * One-to-all earliest arrival by Connection Scan: a single pass over {@link ConnectionIndex}
+ * yields the earliest arrival at every stop, with any number of transfers.
+ * <p>
+ * Several sources with their own start minutes are allowed (e.g. stops within walking distance
+ * of a coordinate). The scan stops at {@code latestArrival}, so bounded queries only touch the
+ * connections inside their time budget.
+ */
+public final class EarliestArrivalScan {
+
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    private EarliestArrivalScan() {}
+
+    public static int[] fromStop(Timetable timetable, int from, int minute, ServiceDay day,
+                                 int minTransferMinutes, int latestArrival) {
+        return fromStops(timetable, new int[]{from}, new int[]{minute}, day, minTransferMinutes, latestArrival);
+    }
+
+    /** Earliest arrival minute per stop, {@link #UNREACHED} when not reachable by {@code latestArrival}. */
+    public static int[] fromStops(Timetable timetable, int[] sources, int[] sourceMinutes, ServiceDay day,
+                                  int minTransferMinutes, int latestArrival) {
+        int stopCount = timetable.stopCount();
+        int[] arrival = new int[stopCount];
+        Arrays.fill(arrival, UNREACHED);
+        // ready[stop]: earliest departure that can be boarded there (arrival plus the transfer time)
+        int[] ready = new int[stopCount];
+        Arrays.fill(ready, UNREACHED);
+
+        int earliest = UNREACHED;
+        for (int i = 0; i < sources.length; i++) {
+            int stop = sources[i];
+            arrival[stop] = Math.min(arrival[stop], sourceMinutes[i]);
+            ready[stop] = Math.min(ready[stop], sourceMinutes[i]);
+            earliest = Math.min(earliest, sourceMinutes[i]);
+        }
+        if (day.isEmpty() || earliest == UNREACHED) return arrival;
+
+        ConnectionIndex connections = timetable.connections();
+        boolean[] onTrip = new boolean[connections.tripCount()];
+        for (int c = connections.firstDepartingAtOrAfter(earliest); c < connections.size(); c++) {
+            int departure = connections.departureTime(c);
+            if (departure > latestArrival) break;
+            if (!day.runs(timetable.pattern(connections.pattern(c)).calendar(connections.trip(c)))) continue;
+
+            int trip = connections.globalTrip(c);
+            if (!onTrip[trip]) {
+                if (ready[connections.departureStop(c)] > departure) continue;
+                onTrip[trip] = true;
+            }
+            int time = connections.arrivalTime(c);
+            int stop = connections.arrivalStop(c);
+            if (time <= latestArrival && time < arrival[stop]) {
+                arrival[stop] = time;
+                ready[stop] = Math.min(ready[stop], time + minTransferMinutes);
+            }
+        }
+        return arrival;
+    }
+}
@@ -0,0 +1,48 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.JourneyDTO;
+import com.leszek.busscheduler.dto.JourneyLegDTO;
+
+import java.util.List;
+
+/**
+ * Journey found by a planner, expressed in timetable indexes. Legs are in travel order.
+ */
+public record Journey(List<Leg> legs) {
+
+    /** Ride on {@code trip} of {@code pattern} from {@code boardPosition} to {@code alightPosition}. */
+    public record Leg(int pattern, int trip, int boardPosition, int alightPosition) {}
+
+    public int departureMinute(Timetable timetable) {
+        Leg first = legs.get(0);
+        return timetable.pattern(first.pattern()).time(first.trip(), first.boardPosition());
+    }
+
+    public int arrivalMinute(Timetable timetable) {
+        Leg last = legs.get(legs.size() - 1);
+        return timetable.pattern(last.pattern()).time(last.trip(), last.alightPosition());
+    }
+
+    public JourneyDTO toDto(Timetable timetable) {
+        List<JourneyLegDTO> legDtos = legs.stream()
+                .map(leg -> {
+                    TripPattern pattern = timetable.pattern(leg.pattern());
+                    int from = pattern.stop(leg.boardPosition());
+                    int to = pattern.stop(leg.alightPosition());
+                    return new JourneyLegDTO(
+                            pattern.lineNumber(),
+                            pattern.direction(),
+                            timetable.stopId(from),
+                            timetable.stopName(from),
+                            timetable.stopId(to),
+                            timetable.stopName(to),
+                            Timetable.toTime(pattern.time(leg.trip(), leg.boardPosition())),
+                            Timetable.toTime(pattern.time(leg.trip(), leg.alightPosition())));
+                })
+                .toList();
+        int departure = departureMinute(timetable);
+        int arrival = arrivalMinute(timetable);
+        return new JourneyDTO(Timetable.toTime(departure), Timetable.toTime(arrival),
+                arrival - departure, legs.size() - 1, legDtos);
+    }
+}
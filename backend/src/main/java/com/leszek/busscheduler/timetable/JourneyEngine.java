@@ -0,0 +1,20 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.List;
+
+/**
+ * Journey planning algorithm working on a {@link Timetable} snapshot.
+ * Implementations are stateless beans; all per-query state is allocated inside {@link #plan}.
+ */
+public interface JourneyEngine {
+
+    enum Type {
+        RAPTOR,
+        CSA
+    }
+
+    Type type();
+
+    /** Pareto set of (arrival, transfers) journeys, fewest transfers first. */
+    List<Journey> plan(Timetable timetable, JourneyQuery query);
+}
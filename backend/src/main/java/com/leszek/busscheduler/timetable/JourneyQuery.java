@@ -0,0 +1,13 @@
+package com.leszek.busscheduler.timetable;
+
+/**
+ * Journey request resolved to timetable indexes; {@code minute} is the earliest departure.
+ */
+public record JourneyQuery(
+        int from,
+        int to,
+        int minute,
+        ServiceDay day,
+        int maxTransfers,
+        int minTransferMinutes
+) {}
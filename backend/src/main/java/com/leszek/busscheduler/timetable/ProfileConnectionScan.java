@@ -0,0 +1,184 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Profile (time-range) search: every Pareto-optimal (departure, arrival, transfers) journey
+ * leaving within a time window, found by one backward pass over {@link ConnectionIndex}.
+ * <p>
+ * Connections are scanned by decreasing departure. For every ride budget {@code r} each trip
+ * remembers the best arrival at the target when staying seated, and each stop keeps a profile
+ * of (departure, arrival) pairs, so a transfer is one binary search instead of a new query.
+ */
+public final class ProfileConnectionScan {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private ProfileConnectionScan() {}
+
+    public static List<Journey> find(Timetable timetable, ProfileQuery query) {
+        int from = query.from();
+        int to = query.to();
+        ServiceDay day = query.day();
+        if (from == to || day.isEmpty() || query.minuteTo() < query.minuteFrom()) return List.of();
+
+        ConnectionIndex connections = timetable.connections();
+        int stopCount = timetable.stopCount();
+        int tripCount = connections.tripCount();
+        int rides = query.maxTransfers() + 1;
+        int transfer = query.minTransferMinutes();
+
+        // tripArrival[r * tripCount + trip]: best arrival at the target while seated, at most r rides in total
+        int[] tripArrival = new int[(rides + 1) * tripCount];
+        Arrays.fill(tripArrival, UNREACHED);
+        int[] tripExit = new int[(rides + 1) * tripCount];
+        // profiles[r * stopCount + stop]: Pareto (departure, arrival) pairs boarding at the stop, at most r rides
+        Profile[] profiles = new Profile[(rides + 1) * stopCount];
+
+        int first = connections.firstDepartingAtOrAfter(query.minuteFrom());
+        for (int c = connections.size() - 1; c >= first; c--) {
+            if (!day.runs(timetable.pattern(connections.pattern(c)).calendar(connections.trip(c)))) continue;
+            int trip = connections.globalTrip(c);
+            int arrivalStop = connections.arrivalStop(c);
+            int arrivalTime = connections.arrivalTime(c);
+
+            for (int r = 1; r <= rides; r++) {
+                int slot = r * tripCount + trip;
+                int best = tripArrival[slot];
+                int exit = tripExit[slot];
+                if (arrivalStop == to && arrivalTime < best) {
+                    best = arrivalTime;
+                    exit = c;
+                }
+                if (r > 1) {
+                    Profile onward = profiles[(r - 1) * stopCount + arrivalStop];
+                    int changed = onward != null ? onward.arrivalFrom(arrivalTime + transfer) : UNREACHED;
+                    if (changed < best) {
+                        best = changed;
+                        exit = c;
+                    }
+                }
+                if (best == UNREACHED) continue;
+
+                tripArrival[slot] = best;
+                tripExit[slot] = exit;
+                // Boarding at the origin after the window must not hide the departures inside it
+                int departureStop = connections.departureStop(c);
+                if (departureStop == from && connections.departureTime(c) > query.minuteTo()) continue;
+                int p = r * stopCount + departureStop;
+                if (profiles[p] == null) profiles[p] = new Profile();
+                profiles[p].offer(connections.departureTime(c), best, c, exit);
+            }
+        }
+
+        List<Journey> candidates = new ArrayList<>();
+        for (int r = 1; r <= rides; r++) {
+            Profile origin = profiles[r * stopCount + from];
+            if (origin == null) continue;
+            for (int i = 0; i < origin.size; i++) {
+                candidates.add(reconstruct(connections, profiles, stopCount, to, transfer, r, from, i));
+            }
+        }
+        return paretoFilter(timetable, candidates);
+    }
+
+    private static Journey reconstruct(ConnectionIndex connections, Profile[] profiles, int stopCount, int target,
+                                       int transfer, int rides, int origin, int entry) {
+        List<Journey.Leg> legs = new ArrayList<>(rides);
+        int stop = origin;
+        int r = rides;
+        int i = entry;
+        while (true) {
+            Profile profile = profiles[r * stopCount + stop];
+            int enter = profile.enter[i];
+            int exit = profile.exit[i];
+            legs.add(new Journey.Leg(connections.pattern(enter), connections.trip(enter),
+                    connections.position(enter), connections.position(exit) + 1));
+            stop = connections.arrivalStop(exit);
+            if (stop == target) break;
+            r--;
+            i = profiles[r * stopCount + stop].indexFrom(connections.arrivalTime(exit) + transfer);
+        }
+        return new Journey(List.copyOf(legs));
+    }
+
+    private static List<Journey> paretoFilter(Timetable timetable, List<Journey> candidates) {
+        int n = candidates.size();
+        int[] departure = new int[n];
+        int[] arrival = new int[n];
+        int[] transfers = new int[n];
+        for (int i = 0; i < n; i++) {
+            departure[i] = candidates.get(i).departureMinute(timetable);
+            arrival[i] = candidates.get(i).arrivalMinute(timetable);
+            transfers[i] = candidates.get(i).legs().size() - 1;
+        }
+
+        List<Journey> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            boolean keep = true;
+            for (int j = 0; j < n && keep; j++) {
+                if (i == j) continue;
+                boolean noWorse = departure[j] >= departure[i] && arrival[j] <= arrival[i] && transfers[j] <= transfers[i];
+                boolean same = departure[j] == departure[i] && arrival[j] == arrival[i] && transfers[j] == transfers[i];
+                // Drop dominated journeys and all but the first of identical ones
+                if (noWorse && (!same || j < i)) keep = false;
+            }
+            if (keep) result.add(candidates.get(i));
+        }
+        result.sort(Comparator.<Journey>comparingInt(journey -> journey.departureMinute(timetable))
+                .thenComparingInt(journey -> journey.legs().size()));
+        return result;
+    }
+
+    /**
+     * Pareto profile of one stop, appended in decreasing departure order: departures are
+     * non-increasing and arrivals strictly decreasing, so both arrays are binary searchable.
+     */
+    private static final class Profile {
+
+        int[] departure = new int[4];
+        int[] arrival = new int[4];
+        int[] enter = new int[4];
+        int[] exit = new int[4];
+        int size;
+
+        void offer(int departureTime, int arrivalTime, int enterConnection, int exitConnection) {
+            if (size > 0 && arrivalTime >= arrival[size - 1]) return;
+            if (size == 0 || departure[size - 1] != departureTime) {
+                if (size == departure.length) grow();
+                size++;
+            }
+            departure[size - 1] = departureTime;
+            arrival[size - 1] = arrivalTime;
+            enter[size - 1] = enterConnection;
+            exit[size - 1] = exitConnection;
+        }
+
+        /** Entry with the earliest arrival among those departing at or after {@code minute}, or -1. */
+        int indexFrom(int minute) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (departure[mid] >= minute) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo - 1;
+        }
+
+        int arrivalFrom(int minute) {
+            int index = indexFrom(minute);
+            return index >= 0 ? arrival[index] : UNREACHED;
+        }
+
+        private void grow() {
+            int capacity = departure.length * 2;
+            departure = Arrays.copyOf(departure, capacity);
+            arrival = Arrays.copyOf(arrival, capacity);
+            enter = Arrays.copyOf(enter, capacity);
+            exit = Arrays.copyOf(exit, capacity);
+        }
+    }
+}
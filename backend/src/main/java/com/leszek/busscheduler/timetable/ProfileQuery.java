@@ -0,0 +1,15 @@
+package com.leszek.busscheduler.timetable;
+
+/**
+ * Range request resolved to timetable indexes: departures from {@code from} within
+ * {@code [minuteFrom, minuteTo]}.
+ */
+public record ProfileQuery(
+        int from,
+        int to,
+        int minuteFrom,
+        int minuteTo,
+        ServiceDay day,
+        int maxTransfers,
+        int minTransferMinutes
+) {}
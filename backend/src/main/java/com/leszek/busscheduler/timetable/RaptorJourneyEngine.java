@@ -0,0 +1,151 @@
+package com.leszek.busscheduler.timetable;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Round-based public transit routing (RAPTOR) over the {@link TripPattern}s of a {@link Timetable}.
+ * <p>
+ * Round {@code k} finds the earliest arrival at every stop using exactly {@code k} rides,
+ * scanning each pattern touched by the previous round once. All state lives in flat
+ * primitive arrays indexed by {@code round * stopCount + stop}; no SQL is issued.
+ * The result is the Pareto set of (arrival, transfers) journeys to the target.
+ */
+@Component
+public class RaptorJourneyEngine implements JourneyEngine {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    @Override
+    public Type type() {
+        return Type.RAPTOR;
+    }
+
+    @Override
+    public List<Journey> plan(Timetable timetable, JourneyQuery query) {
+        int from = query.from();
+        int to = query.to();
+        ServiceDay day = query.day();
+        int minTransferMinutes = query.minTransferMinutes();
+        if (from == to || day.isEmpty()) return List.of();
+        int stopCount = timetable.stopCount();
+        int rounds = query.maxTransfers() + 1;
+
+        int[] arrival = new int[(rounds + 1) * stopCount];
+        Arrays.fill(arrival, UNREACHED);
+        int[] best = new int[stopCount];
+        Arrays.fill(best, UNREACHED);
+        int[] labelPattern = new int[(rounds + 1) * stopCount];
+        int[] labelTrip = new int[(rounds + 1) * stopCount];
+        int[] labelBoard = new int[(rounds + 1) * stopCount];
+        int[] labelAlight = new int[(rounds + 1) * stopCount];
+
+        boolean[] marked = new boolean[stopCount];
+        int[] markedStops = new int[stopCount];
+        int markedCount = 0;
+        int[] queuedFrom = new int[timetable.patternCount()];
+        Arrays.fill(queuedFrom, -1);
+        int[] queue = new int[timetable.patternCount()];
+
+        arrival[from] = query.minute();
+        best[from] = query.minute();
+        marked[from] = true;
+        markedStops[markedCount++] = from;
+
+        for (int k = 1; k <= rounds && markedCount > 0; k++) {
+            // Collect every pattern touched by a stop improved in the previous round
+            int queueSize = 0;
+            for (int i = 0; i < markedCount; i++) {
+                int stop = markedStops[i];
+                marked[stop] = false;
+                int[] patterns = timetable.patternsAt(stop);
+                int[] positions = timetable.positionsAt(stop);
+                for (int j = 0; j < patterns.length; j++) {
+                    int p = patterns[j];
+                    if (queuedFrom[p] < 0) {
+                        queue[queueSize++] = p;
+                        queuedFrom[p] = positions[j];
+                    } else if (positions[j] < queuedFrom[p]) {
+                        queuedFrom[p] = positions[j];
+                    }
+                }
+            }
+            markedCount = 0;
+
+            int previous = (k - 1) * stopCount;
+            int current = k * stopCount;
+            int transfer = k > 1 ? minTransferMinutes : 0;
+
+            for (int q = 0; q < queueSize; q++) {
+                int p = queue[q];
+                TripPattern pattern = timetable.pattern(p);
+                int trip = -1;
+                int boardPosition = -1;
+                for (int pos = queuedFrom[p]; pos < pattern.stopCount(); pos++) {
+                    int stop = pattern.stop(pos);
+
+                    if (trip >= 0) {
+                        int time = pattern.time(trip, pos);
+                        if (time < best[stop] && time < best[to]) {
+                            arrival[current + stop] = time;
+                            best[stop] = time;
+                            labelPattern[current + stop] = p;
+                            labelTrip[current + stop] = trip;
+                            labelBoard[current + stop] = boardPosition;
+                            labelAlight[current + stop] = pos;
+                            if (!marked[stop]) {
+                                marked[stop] = true;
+                                markedStops[markedCount++] = stop;
+                            }
+                        }
+                    }
+
+                    int reached = arrival[previous + stop];
+                    if (reached != UNREACHED && (trip < 0 || reached + transfer <= pattern.time(trip, pos))) {
+                        int earliest = earliestTrip(pattern, pos, reached + transfer, day);
+                        if (earliest >= 0 && (trip < 0 || earliest < trip)) {
+                            trip = earliest;
+                            boardPosition = pos;
+                        }
+                    }
+                }
+                queuedFrom[p] = -1;
+            }
+        }
+
+        List<Journey> journeys = new ArrayList<>();
+        int bestSoFar = UNREACHED;
+        for (int k = 1; k <= rounds; k++) {
+            int time = arrival[k * stopCount + to];
+            if (time < bestSoFar) {
+                bestSoFar = time;
+                journeys.add(reconstruct(timetable, k, to, labelPattern, labelTrip, labelBoard, labelAlight));
+            }
+        }
+        return journeys;
+    }
+
+    private static int earliestTrip(TripPattern pattern, int position, int minute, ServiceDay day) {
+        for (int t = pattern.firstTripAtOrAfter(position, minute); t < pattern.tripCount(); t++) {
+            if (day.runs(pattern.calendar(t))) return t;
+        }
+        return -1;
+    }
+
+    private static Journey reconstruct(Timetable timetable, int rounds, int target, int[] labelPattern,
+                                       int[] labelTrip, int[] labelBoard, int[] labelAlight) {
+        int stopCount = timetable.stopCount();
+        Journey.Leg[] legs = new Journey.Leg[rounds];
+        int stop = target;
+        for (int k = rounds; k >= 1; k--) {
+            int label = k * stopCount + stop;
+            Journey.Leg leg = new Journey.Leg(labelPattern[label], labelTrip[label], labelBoard[label], labelAlight[label]);
+            legs[k - 1] = leg;
+            stop = timetable.pattern(leg.pattern()).stop(leg.boardPosition());
+        }
+        return new Journey(List.of(legs));
+    }
+}
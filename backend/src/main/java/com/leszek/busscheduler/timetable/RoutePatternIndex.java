@@ -0,0 +1,76 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The pattern slots of every route and the route of every trip, so a single-trip patch finds what
+ * it touches without scanning the network.
+ * <p>
+ * Patched timetables derive theirs from the base one: the route map is copied (routes are few),
+ * while trip moves go to a small overlay on top of the shared trip map, folded back into a fresh
+ * map once it grows past {@value #MAX_OVERLAY} trips.
+ */
+final class RoutePatternIndex {
+
+    static final long NO_ROUTE = -1L;
+
+    static final int MAX_OVERLAY = 1_024;
+
+    private static final int[] NO_PATTERNS = new int[0];
+
+    private final Map<Long, int[]> patternsByRoute;
+    private final Map<Long, Long> routeByTrip;
+    // Trips added, moved or removed (NO_ROUTE) since routeByTrip was built
+    private final Map<Long, Long> changedTrips;
+
+    private RoutePatternIndex(Map<Long, int[]> patternsByRoute, Map<Long, Long> routeByTrip,
+                              Map<Long, Long> changedTrips) {
+        this.patternsByRoute = patternsByRoute;
+        this.routeByTrip = routeByTrip;
+        this.changedTrips = changedTrips;
+    }
+
+    static RoutePatternIndex build(Timetable timetable) {
+        Map<Long, int[]> patternsByRoute = new HashMap<>();
+        Map<Long, Long> routeByTrip = new HashMap<>();
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            TripPattern pattern = timetable.pattern(p);
+            int[] slots = patternsByRoute.getOrDefault(pattern.routeId(), NO_PATTERNS);
+            int[] grown = Arrays.copyOf(slots, slots.length + 1);
+            grown[slots.length] = p;
+            patternsByRoute.put(pattern.routeId(), grown);
+            for (int t = 0; t < pattern.tripCount(); t++) routeByTrip.put(pattern.tripId(t), pattern.routeId());
+        }
+        return new RoutePatternIndex(patternsByRoute, routeByTrip, Map.of());
+    }
+
+    /** Pattern slots of the route in ascending order, empty when the route has none. */
+    int[] patternsOf(long routeId) {
+        return patternsByRoute.getOrDefault(routeId, NO_PATTERNS);
+    }
+
+    /** Route running the trip, or {@link #NO_ROUTE}. */
+    long routeOf(long tripId) {
+        Long route = changedTrips.get(tripId);
+        if (route == null) route = routeByTrip.get(tripId);
+        return route != null ? route : NO_ROUTE;
+    }
+
+    /** Copy with the routes' slots replaced and the trip moved to {@code routeId} ({@link #NO_ROUTE} removes it). */
+    RoutePatternIndex with(Map<Long, int[]> routeSlots, long tripId, long routeId) {
+        Map<Long, int[]> patterns = new HashMap<>(patternsByRoute);
+        patterns.putAll(routeSlots);
+        Map<Long, Long> changed = new HashMap<>(changedTrips);
+        changed.put(tripId, routeId);
+        if (changed.size() <= MAX_OVERLAY) return new RoutePatternIndex(patterns, routeByTrip, changed);
+
+        Map<Long, Long> trips = new HashMap<>(routeByTrip);
+        changed.forEach((trip, route) -> {
+            if (route == NO_ROUTE) trips.remove(trip);
+            else trips.put(trip, route);
+        });
+        return new RoutePatternIndex(patterns, trips, Map.of());
+    }
+}
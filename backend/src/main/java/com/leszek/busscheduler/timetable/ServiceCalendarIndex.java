@@ -0,0 +1,67 @@
+package com.leszek.busscheduler.timetable;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+/**
+ * Service calendars of a {@link Timetable} compiled to one bitset per day.
+ * <p>
+ * Every day of the horizon holds the bits of the calendars running on it, so resolving a date
+ * is one array slice and "does this trip run" one bit test. Dates outside the horizon are
+ * evaluated from the rules, which gives the same answer, just not precomputed.
+ */
+public final class ServiceCalendarIndex {
+
+    /** Weekday mask within an optional date range, corrected by added and removed dates. */
+    record Rule(LocalDate startDate, LocalDate endDate, int weekdays, Set<LocalDate> added, Set<LocalDate> removed) {
+
+        boolean runsOn(LocalDate date) {
+            if (removed.contains(date)) return false;
+            if (added.contains(date)) return true;
+            return (startDate == null || !date.isBefore(startDate))
+                    && (endDate == null || !date.isAfter(endDate))
+                    && (weekdays & CalendarTypes.weekdayBit(date)) != 0;
+        }
+    }
+
+    private final Rule[] rules;
+    private final LocalDate firstDay;
+    private final int dayCount;
+    private final int words;
+    // calendars running on day d: bits[d * words .. (d + 1) * words)
+    private final long[] bits;
+
+    private ServiceCalendarIndex(Rule[] rules, LocalDate firstDay, int dayCount, int words, long[] bits) {
+        this.rules = rules;
+        this.firstDay = firstDay;
+        this.dayCount = dayCount;
+        this.words = words;
+        this.bits = bits;
+    }
+
+    static ServiceCalendarIndex compile(Rule[] rules, LocalDate firstDay, int dayCount) {
+        int words = Math.max(1, (rules.length + 63) >> 6);
+        long[] bits = new long[dayCount * words];
+        for (int day = 0; day < dayCount; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            for (int calendar = 0; calendar < rules.length; calendar++) {
+                if (rules[calendar].runsOn(date)) bits[day * words + (calendar >> 6)] |= 1L << calendar;
+            }
+        }
+        return new ServiceCalendarIndex(rules, firstDay, dayCount, words, bits);
+    }
+
+    public ServiceDay day(LocalDate date) {
+        long day = ChronoUnit.DAYS.between(firstDay, date);
+        long[] running = new long[words];
+        if (day >= 0 && day < dayCount) {
+            System.arraycopy(bits, (int) day * words, running, 0, words);
+        } else {
+            for (int calendar = 0; calendar < rules.length; calendar++) {
+                if (rules[calendar].runsOn(date)) running[calendar >> 6] |= 1L << calendar;
+            }
+        }
+        return new ServiceDay(running);
+    }
+}
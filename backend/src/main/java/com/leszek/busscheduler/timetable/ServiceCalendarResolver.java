@@ -0,0 +1,81 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.repository.ServiceCalendarRepository;
+import com.leszek.busscheduler.repository.TripRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calendar types running on a date for the queries that filter trips in SQL, compiled from the
+ * calendar tables and the trips' calendar codes alone, so the database search path never builds
+ * the in-memory {@link Timetable}.
+ * <p>
+ * The compiled calendars are kept until the next {@link TimetableChangedEvent}; a compile that
+ * overlaps a change is used once and then redone.
+ */
+@Component
+@RequiredArgsConstructor
+public class ServiceCalendarResolver {
+
+    private final ServiceCalendarRepository serviceCalendarRepository;
+    private final TripRepository tripRepository;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Compiled compiled;
+
+    private record Compiled(long generation, String[] types, ServiceCalendarIndex calendars) {}
+
+    public List<String> calendarTypes(LocalDate date) {
+        Compiled current = compiled;
+        if (current == null || current.generation() != generation.get()) {
+            current = compile(generation.get());
+            compiled = current;
+        }
+        ServiceDay day = current.calendars().day(date);
+        List<String> types = new ArrayList<>();
+        for (int calendar = 0; calendar < current.types().length; calendar++) {
+            if (day.runs(calendar)) types.add(current.types()[calendar]);
+        }
+        return types;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTimetableChanged(TimetableChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    // Same rules as TimetableBuilder: a code without a calendar row runs on its built-in weekdays
+    private Compiled compile(long generation) {
+        String[] types = tripRepository.findDistinctCalendarTypes().stream().sorted().toArray(String[]::new);
+        Map<String, ServiceCalendarRepository.CalendarRow> rows = new HashMap<>();
+        serviceCalendarRepository.findAllRows().forEach(row -> rows.put(row.getCalendarType(), row));
+        Map<String, Set<LocalDate>> added = new HashMap<>();
+        Map<String, Set<LocalDate>> removed = new HashMap<>();
+        for (ServiceCalendarRepository.ExceptionRow exception : serviceCalendarRepository.findAllExceptionRows()) {
+            (Boolean.TRUE.equals(exception.getAdded()) ? added : removed)
+                    .computeIfAbsent(exception.getCalendarType(), type -> new HashSet<>()).add(exception.getDate());
+        }
+
+        ServiceCalendarIndex.Rule[] rules = new ServiceCalendarIndex.Rule[types.length];
+        for (int c = 0; c < types.length; c++) {
+            ServiceCalendarRepository.CalendarRow row = rows.get(types[c]);
+            rules[c] = row != null
+                    ? new ServiceCalendarIndex.Rule(row.getStartDate(), row.getEndDate(), row.getWeekdays(),
+                            added.getOrDefault(types[c], Set.of()), removed.getOrDefault(types[c], Set.of()))
+                    : new ServiceCalendarIndex.Rule(null, null, CalendarTypes.defaultWeekdays(types[c]),
+                            added.getOrDefault(types[c], Set.of()), removed.getOrDefault(types[c], Set.of()));
+        }
+        return new Compiled(generation, types, ServiceCalendarIndex.compile(rules,
+                LocalDate.now().minusDays(7), TimetableBuilder.DEFAULT_HORIZON_DAYS));
+    }
+}
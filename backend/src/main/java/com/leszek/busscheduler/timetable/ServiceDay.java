@@ -0,0 +1,53 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.Arrays;
+
+/**
+ * The calendars of a {@link Timetable} that run on one date, as a bitset over calendar indexes.
+ * Whether a trip runs is a single bit test on its {@link TripPattern#calendar(int) calendar}.
+ */
+public final class ServiceDay {
+
+    public static final ServiceDay NONE = new ServiceDay(new long[0]);
+
+    private final long[] words;
+
+    ServiceDay(long[] words) {
+        this.words = words;
+    }
+
+    /** Day on which exactly the given calendars run; negative indexes (unknown types) are ignored. */
+    public static ServiceDay of(int... calendars) {
+        int max = -1;
+        for (int calendar : calendars) max = Math.max(max, calendar);
+        long[] words = new long[(max >> 6) + 1];
+        for (int calendar : calendars) {
+            if (calendar >= 0) words[calendar >> 6] |= 1L << calendar;
+        }
+        return new ServiceDay(words);
+    }
+
+    public boolean runs(int calendar) {
+        int word = calendar >> 6;
+        return word < words.length && (words[word] & (1L << calendar)) != 0;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /** Indexes of the running calendars, ascending. */
+    public int[] calendars() {
+        int[] calendars = new int[Arrays.stream(words).mapToInt(Long::bitCount).sum()];
+        int n = 0;
+        for (int w = 0; w < words.length; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                calendars[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return calendars;
+    }
+}
@@ -0,0 +1,117 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.geo.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Stop areas (parent stations) of a {@link Timetable}: stops that share name and city and lie
+ * within walking distance of each other, such as both platforms of a stop or the old and new
+ * row of an edited one.
+ * <p>
+ * Computed once per timetable, so resolving a stop's area is an array lookup. Each area is
+ * identified by the smallest stop id it contains, which stays stable across rebuilds as long
+ * as that stop exists.
+ */
+public final class StopAreaIndex {
+
+    /** Platforms further apart than this are different places that happen to share a name. */
+    public static final double MAX_AREA_SPAN_KM = 0.3;
+
+    private final int[] areaOfStop;
+    private final long[] areaIds;
+    // stops of area a: areaStops[areaOffsets[a] .. areaOffsets[a + 1])
+    private final int[] areaOffsets;
+    private final int[] areaStops;
+
+    private StopAreaIndex(int[] areaOfStop, long[] areaIds, int[] areaOffsets, int[] areaStops) {
+        this.areaOfStop = areaOfStop;
+        this.areaIds = areaIds;
+        this.areaOffsets = areaOffsets;
+        this.areaStops = areaStops;
+    }
+
+    static StopAreaIndex build(Timetable timetable) {
+        int stopCount = timetable.stopCount();
+        int[] areaOfStop = new int[stopCount];
+        Map<String, List<Integer>> areasByName = new HashMap<>();
+        List<List<Integer>> members = new ArrayList<>();
+        for (int stop = 0; stop < stopCount; stop++) {
+            String key = nameKey(timetable, stop);
+            int area = -1;
+            if (key != null) {
+                List<Integer> candidates = areasByName.computeIfAbsent(key, k -> new ArrayList<>());
+                for (int candidate : candidates) {
+                    if (isNear(timetable, stop, members.get(candidate))) {
+                        area = candidate;
+                        break;
+                    }
+                }
+                if (area < 0) candidates.add(members.size());
+            }
+            if (area < 0) {
+                area = members.size();
+                members.add(new ArrayList<>());
+            }
+            members.get(area).add(stop);
+            areaOfStop[stop] = area;
+        }
+
+        long[] areaIds = new long[members.size()];
+        int[] areaOffsets = new int[members.size() + 1];
+        int[] areaStops = new int[stopCount];
+        int n = 0;
+        for (int area = 0; area < members.size(); area++) {
+            areaOffsets[area] = n;
+            long smallest = Long.MAX_VALUE;
+            for (int stop : members.get(area)) {
+                areaStops[n++] = stop;
+                smallest = Math.min(smallest, timetable.stopId(stop));
+            }
+            areaIds[area] = smallest;
+        }
+        areaOffsets[members.size()] = n;
+        return new StopAreaIndex(areaOfStop, areaIds, areaOffsets, areaStops);
+    }
+
+    private static String nameKey(Timetable timetable, int stop) {
+        String name = timetable.stopName(stop);
+        if (name == null || name.isBlank()) return null;
+        String city = timetable.stopCity(stop);
+        return name.trim().toLowerCase(Locale.ROOT) + '|' + (city != null ? city.trim().toLowerCase(Locale.ROOT) : "");
+    }
+
+    // A stop without coordinates cannot be placed, so it trusts its name
+    private static boolean isNear(Timetable timetable, int stop, List<Integer> area) {
+        double lat = timetable.latitude(stop);
+        double lon = timetable.longitude(stop);
+        if (Double.isNaN(lat) || Double.isNaN(lon)) return true;
+        for (int other : area) {
+            double otherLat = timetable.latitude(other);
+            double otherLon = timetable.longitude(other);
+            if (Double.isNaN(otherLat) || Double.isNaN(otherLon)
+                    || GeoUtils.haversineKm(lat, lon, otherLat, otherLon) <= MAX_AREA_SPAN_KM) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int areaCount() { return areaIds.length; }
+
+    /** Dense index of the stop's area. */
+    public int area(int stop) { return areaOfStop[stop]; }
+
+    /** Stable id of the area: the smallest stop id among its stops. */
+    public long areaId(int area) { return areaIds[area]; }
+
+    /** Dense indexes of every stop in the area. */
+    public int[] stops(int area) {
+        return Arrays.copyOfRange(areaStops, areaOffsets[area], areaOffsets[area + 1]);
+    }
+}
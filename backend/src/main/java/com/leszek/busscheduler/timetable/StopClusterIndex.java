@@ -0,0 +1,220 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Hierarchical grid of stop clusters for map viewports, one level per web-map zoom.
+ * <p>
+ * At zoom {@code z} the Web Mercator square is cut into {@code 2^(z + 2)} cells per axis, i.e.
+ * {@value #CELL_PIXELS} px cells on 256 px tiles. The finest level is bucketed from the stops and
+ * each coarser level is merged from the one below it (a cell's parent is its key halved), carrying
+ * stop counts and coordinate sums so centroids stay exact. Above {@link #MAX_CLUSTER_ZOOM} a
+ * viewport lists the stops themselves, read from the finest level's per-cell stop lists.
+ * <p>
+ * Depends on stop coordinates only, so single-trip patches keep it and a stop edit (a full reload)
+ * rebuilds it.
+ */
+public final class StopClusterIndex {
+
+    /** Deepest zoom that still clusters; beyond it every stop is drawn on its own. */
+    public static final int MAX_CLUSTER_ZOOM = 14;
+
+    static final int CELL_PIXELS = 64;
+
+    private static final int CELL_SHIFT = 2;
+    private static final double MAX_MERCATOR_LATITUDE = 85.05112878;
+
+    private final Level[] levels;
+    // Finest level: stops of cell c are cellStops[cellStarts[c] .. cellStarts[c + 1])
+    private final int[] cellStarts;
+    private final int[] cellStops;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    /**
+     * Stops merged into one map point: their centroid and count. A cluster of one is that stop
+     * ({@code stop} is its dense index); for larger ones {@code stop} is -1.
+     */
+    public record Cluster(double latitude, double longitude, int count, int stop) {}
+
+    // Cells of one zoom level sorted by key, with their stop counts and coordinate sums
+    private record Level(long[] keys, int[] counts, double[] latitudeSums, double[] longitudeSums, int[] firstStops) {
+
+        int size() { return keys.length; }
+    }
+
+    private StopClusterIndex(Level[] levels, int[] cellStarts, int[] cellStops, double[] latitudes, double[] longitudes) {
+        this.levels = levels;
+        this.cellStarts = cellStarts;
+        this.cellStops = cellStops;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    static StopClusterIndex build(Timetable timetable) {
+        int stopCount = timetable.stopCount();
+        double[] latitudes = new double[stopCount];
+        double[] longitudes = new double[stopCount];
+        List<long[]> entries = new ArrayList<>(stopCount);
+        for (int stop = 0; stop < stopCount; stop++) {
+            latitudes[stop] = timetable.latitude(stop);
+            longitudes[stop] = timetable.longitude(stop);
+            if (Double.isNaN(latitudes[stop]) || Double.isNaN(longitudes[stop])) continue;
+            entries.add(new long[]{key(column(longitudes[stop], MAX_CLUSTER_ZOOM), row(latitudes[stop], MAX_CLUSTER_ZOOM)), stop});
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        int[] starts = new int[entries.size() + 1];
+        int[] stops = new int[entries.size()];
+        long[] keys = new long[entries.size()];
+        int[] counts = new int[entries.size()];
+        double[] latitudeSums = new double[entries.size()];
+        double[] longitudeSums = new double[entries.size()];
+        int[] firstStops = new int[entries.size()];
+        int cells = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            long cellKey = entries.get(i)[0];
+            int stop = (int) entries.get(i)[1];
+            if (cells == 0 || keys[cells - 1] != cellKey) {
+                keys[cells] = cellKey;
+                firstStops[cells] = stop;
+                starts[cells++] = i;
+            }
+            counts[cells - 1]++;
+            latitudeSums[cells - 1] += latitudes[stop];
+            longitudeSums[cells - 1] += longitudes[stop];
+            stops[i] = stop;
+        }
+        starts[cells] = entries.size();
+
+        Level[] levels = new Level[MAX_CLUSTER_ZOOM + 1];
+        levels[MAX_CLUSTER_ZOOM] = new Level(Arrays.copyOf(keys, cells), Arrays.copyOf(counts, cells),
+                Arrays.copyOf(latitudeSums, cells), Arrays.copyOf(longitudeSums, cells), Arrays.copyOf(firstStops, cells));
+        for (int zoom = MAX_CLUSTER_ZOOM - 1; zoom >= 0; zoom--) {
+            levels[zoom] = merge(levels[zoom + 1]);
+        }
+        return new StopClusterIndex(levels, Arrays.copyOf(starts, cells + 1), stops, latitudes, longitudes);
+    }
+
+    // Parent cells of a level; children sorted by (column, row) are not contiguous per parent, so re-sort
+    private static Level merge(Level child) {
+        Integer[] order = new Integer[child.size()];
+        long[] parents = new long[child.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            parents[i] = key(column(child.keys()[i]) >> 1, row(child.keys()[i]) >> 1);
+        }
+        Arrays.sort(order, (a, b) -> parents[a] != parents[b] ? Long.compare(parents[a], parents[b]) : Integer.compare(a, b));
+
+        long[] keys = new long[order.length];
+        int[] counts = new int[order.length];
+        double[] latitudeSums = new double[order.length];
+        double[] longitudeSums = new double[order.length];
+        int[] firstStops = new int[order.length];
+        int cells = 0;
+        for (int i : order) {
+            if (cells == 0 || keys[cells - 1] != parents[i]) {
+                keys[cells] = parents[i];
+                firstStops[cells++] = child.firstStops()[i];
+            }
+            counts[cells - 1] += child.counts()[i];
+            latitudeSums[cells - 1] += child.latitudeSums()[i];
+            longitudeSums[cells - 1] += child.longitudeSums()[i];
+        }
+        return new Level(Arrays.copyOf(keys, cells), Arrays.copyOf(counts, cells),
+                Arrays.copyOf(latitudeSums, cells), Arrays.copyOf(longitudeSums, cells), Arrays.copyOf(firstStops, cells));
+    }
+
+    /** Stops with coordinates. */
+    public int size() { return cellStops.length; }
+
+    /**
+     * Map points inside the box at the zoom: clusters up to {@link #MAX_CLUSTER_ZOOM}, the stops
+     * themselves beyond it. A cluster is returned when its cell touches the box, so its centroid
+     * may lie slightly outside.
+     */
+    public List<Cluster> viewport(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                  int zoom) {
+        if (zoom > MAX_CLUSTER_ZOOM) return stopsWithin(minLatitude, minLongitude, maxLatitude, maxLongitude);
+        Level cells = levels[Math.max(zoom, 0)];
+        List<Cluster> points = new ArrayList<>();
+        visitCells(cells, Math.max(zoom, 0), minLatitude, minLongitude, maxLatitude, maxLongitude, cell -> {
+            int count = cells.counts()[cell];
+            if (count == 1) {
+                int stop = cells.firstStops()[cell];
+                points.add(new Cluster(latitudes[stop], longitudes[stop], 1, stop));
+            } else {
+                points.add(new Cluster(cells.latitudeSums()[cell] / count, cells.longitudeSums()[cell] / count,
+                        count, -1));
+            }
+        });
+        return points;
+    }
+
+    /** Every stop inside the box, each as a cluster of one. */
+    public List<Cluster> stopsWithin(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        List<Cluster> points = new ArrayList<>();
+        visitCells(levels[MAX_CLUSTER_ZOOM], MAX_CLUSTER_ZOOM, minLatitude, minLongitude, maxLatitude, maxLongitude,
+                cell -> {
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        int stop = cellStops[i];
+                        if (latitudes[stop] >= minLatitude && latitudes[stop] <= maxLatitude
+                                && longitudes[stop] >= minLongitude && longitudes[stop] <= maxLongitude) {
+                            points.add(new Cluster(latitudes[stop], longitudes[stop], 1, stop));
+                        }
+                    }
+                });
+        return points;
+    }
+
+    // Cells of the level touching the box, clipped to the cells holding stops so an oversized box costs no more than the data
+    private static void visitCells(Level cells, int zoom, double minLatitude, double minLongitude, double maxLatitude,
+                                   double maxLongitude, IntConsumer visitor) {
+        if (cells.size() == 0) return;
+        int minColumn = Math.max(column(minLongitude, zoom), column(cells.keys()[0]));
+        int maxColumn = Math.min(column(maxLongitude, zoom), column(cells.keys()[cells.size() - 1]));
+        int minRow = row(maxLatitude, zoom);
+        int maxRow = row(minLatitude, zoom);
+        for (int column = minColumn; column <= maxColumn; column++) {
+            long lastKey = key(column, maxRow);
+            for (int cell = lowerBound(cells.keys(), key(column, minRow));
+                 cell < cells.size() && cells.keys()[cell] <= lastKey; cell++) {
+                visitor.accept(cell);
+            }
+        }
+    }
+
+    private static int lowerBound(long[] keys, long key) {
+        int index = Arrays.binarySearch(keys, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // Web Mercator cell coordinates, clamped to the grid of the zoom level
+    private static int column(double longitude, int zoom) {
+        int cells = 1 << (zoom + CELL_SHIFT);
+        double x = (longitude + 180.0) / 360.0;
+        return (int) Math.max(0, Math.min(cells - 1, Math.floor(x * cells)));
+    }
+
+    private static int row(double latitude, int zoom) {
+        int cells = 1 << (zoom + CELL_SHIFT);
+        double radians = Math.toRadians(Math.max(-MAX_MERCATOR_LATITUDE, Math.min(MAX_MERCATOR_LATITUDE, latitude)));
+        double y = (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2;
+        return (int) Math.max(0, Math.min(cells - 1, Math.floor(y * cells)));
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | row;
+    }
+
+    private static int column(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int row(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,201 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.geo.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform latitude/longitude grid over the stops that have coordinates, answering k-nearest and
+ * radius queries without SQL.
+ * <p>
+ * Stops are bucketed into {@value #CELL_DEGREES}° cells stored as a sorted key array plus
+ * CSR-style stop lists. A query visits cells in growing square rings around the query point and
+ * stops as soon as no unvisited cell can hold anything closer than what it already has. The
+ * per-stop directions shown by the nearby lookup are precomputed here as well.
+ */
+public final class StopSpatialIndex {
+
+    /** Cell edge; ~1.1 km north-south, less east-west away from the equator. */
+    static final double CELL_DEGREES = 0.01;
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+    private final int[] cellStops;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final List<List<String>> directions;
+    private final int minRow, maxRow, minColumn, maxColumn;
+    // Shortest cell edge in km anywhere in the grid: the conservative step when bounding ring distances
+    private final double minCellKm;
+
+    /** A stop with its distance from the query point. */
+    public record Hit(int stop, double distanceKm) {}
+
+    private StopSpatialIndex(long[] cellKeys, int[] cellStarts, int[] cellStops, double[] latitudes, double[] longitudes,
+                             List<List<String>> directions, int minRow, int maxRow, int minColumn, int maxColumn,
+                             double minCellKm) {
+        this.cellKeys = cellKeys;
+        this.cellStarts = cellStarts;
+        this.cellStops = cellStops;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.directions = directions;
+        this.minRow = minRow;
+        this.maxRow = maxRow;
+        this.minColumn = minColumn;
+        this.maxColumn = maxColumn;
+        this.minCellKm = minCellKm;
+    }
+
+    static StopSpatialIndex build(Timetable timetable) {
+        int stopCount = timetable.stopCount();
+        double[] latitudes = new double[stopCount];
+        double[] longitudes = new double[stopCount];
+        List<long[]> entries = new ArrayList<>(stopCount);
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+        int minColumn = Integer.MAX_VALUE, maxColumn = Integer.MIN_VALUE;
+        double maxAbsLatitude = 0;
+        for (int stop = 0; stop < stopCount; stop++) {
+            latitudes[stop] = timetable.latitude(stop);
+            longitudes[stop] = timetable.longitude(stop);
+            if (Double.isNaN(latitudes[stop]) || Double.isNaN(longitudes[stop])) continue;
+            int row = row(latitudes[stop]);
+            int column = column(longitudes[stop]);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+            maxAbsLatitude = Math.max(maxAbsLatitude, Math.abs(latitudes[stop]) + CELL_DEGREES);
+            entries.add(new long[]{key(row, column), stop});
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        long[] keys = new long[entries.size()];
+        int[] starts = new int[entries.size() + 1];
+        int[] stops = new int[entries.size()];
+        int cells = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            long cellKey = entries.get(i)[0];
+            if (cells == 0 || keys[cells - 1] != cellKey) {
+                keys[cells] = cellKey;
+                starts[cells++] = i;
+            }
+            stops[i] = (int) entries.get(i)[1];
+        }
+        starts[cells] = entries.size();
+
+        return new StopSpatialIndex(Arrays.copyOf(keys, cells), Arrays.copyOf(starts, cells + 1), stops,
+                latitudes, longitudes, precomputeDirections(timetable), minRow, maxRow, minColumn, maxColumn,
+                cellKm(maxAbsLatitude));
+    }
+
+    // The distinct directions of the patterns serving the stop (alphabetical), else its own direction
+    private static List<List<String>> precomputeDirections(Timetable timetable) {
+        List<List<String>> directions = new ArrayList<>(timetable.stopCount());
+        for (int stop = 0; stop < timetable.stopCount(); stop++) {
+            TreeSet<String> routes = new TreeSet<>();
+            for (int pattern : timetable.patternsAt(stop)) {
+                String direction = timetable.pattern(pattern).direction();
+                if (direction != null) routes.add(direction);
+            }
+            String own = timetable.stopDirection(stop);
+            if (!routes.isEmpty()) directions.add(List.copyOf(routes));
+            else if (own != null && !own.isBlank()) directions.add(List.of(own));
+            else directions.add(List.of());
+        }
+        return directions;
+    }
+
+    public int size() { return cellStops.length; }
+
+    public List<String> directions(int stop) { return directions.get(stop); }
+
+    /**
+     * Up to {@code k} stops closest to the point, nearest first, no farther than {@code radiusKm}
+     * ({@link Double#POSITIVE_INFINITY} for no limit).
+     */
+    public List<Hit> nearest(double latitude, double longitude, int k, double radiusKm) {
+        if (k <= 0 || cellStops.length == 0) return List.of();
+        // Max-heap of the best k so far
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(k, 64) + 1,
+                (a, b) -> Double.compare(b.distanceKm(), a.distanceKm()));
+        int row = row(latitude);
+        int column = column(longitude);
+        double cellKm = Math.min(minCellKm, cellKm(Math.abs(latitude) + CELL_DEGREES));
+        // Rings closer than this hold no grid cell at all
+        int firstRing = Math.max(0, Math.max(Math.max(minRow - row, row - maxRow),
+                Math.max(minColumn - column, column - maxColumn)));
+        for (int ring = firstRing; ; ring++) {
+            visitRing(row, column, ring, stop -> {
+                double distance = GeoUtils.haversineKm(latitude, longitude, latitudes[stop], longitudes[stop]);
+                if (distance > radiusKm) return;
+                if (best.size() < k) {
+                    best.add(new Hit(stop, distance));
+                } else if (distance < best.peek().distanceKm()) {
+                    best.poll();
+                    best.add(new Hit(stop, distance));
+                }
+            });
+            // Every cell of the next ring lies at least this far from the query point
+            double nextRingKm = ring * cellKm;
+            if (best.size() == k && best.peek().distanceKm() <= nextRingKm) break;
+            if (nextRingKm > radiusKm || coversGrid(row, column, ring)) break;
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort((a, b) -> Double.compare(a.distanceKm(), b.distanceKm()));
+        return hits;
+    }
+
+    /** All stops within {@code radiusKm} of the point, nearest first. */
+    public List<Hit> withinRadius(double latitude, double longitude, double radiusKm) {
+        return nearest(latitude, longitude, Integer.MAX_VALUE, radiusKm);
+    }
+
+    // Cells on the border of the square {@code ring} cells out, clipped to the grid
+    private void visitRing(int row, int column, int ring, IntConsumer visitor) {
+        for (int r = Math.max(row - ring, minRow); r <= Math.min(row + ring, maxRow); r++) {
+            if (r == row - ring || r == row + ring) {
+                for (int c = Math.max(column - ring, minColumn); c <= Math.min(column + ring, maxColumn); c++) {
+                    visitCell(r, c, visitor);
+                }
+            } else {
+                if (column - ring >= minColumn) visitCell(r, column - ring, visitor);
+                if (column + ring <= maxColumn) visitCell(r, column + ring, visitor);
+            }
+        }
+    }
+
+    private void visitCell(int row, int column, IntConsumer visitor) {
+        int cell = Arrays.binarySearch(cellKeys, key(row, column));
+        if (cell < 0) return;
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) visitor.accept(cellStops[i]);
+    }
+
+    private boolean coversGrid(int row, int column, int ring) {
+        return row - ring <= minRow && row + ring >= maxRow && column - ring <= minColumn && column + ring >= maxColumn;
+    }
+
+    // East-west cell edge at the given latitude, the shorter of the two edges
+    private static double cellKm(double absLatitude) {
+        return CELL_DEGREES * KM_PER_DEGREE * Math.cos(Math.toRadians(Math.min(absLatitude, 89.0)));
+    }
+
+    private static int row(double latitude) {
+        return (int) Math.floor(latitude / CELL_DEGREES);
+    }
+
+    private static int column(double longitude) {
+        return (int) Math.floor(longitude / CELL_DEGREES);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
@@ -0,0 +1,263 @@
+package com.leszek.busscheduler.timetable;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array-based view of the whole network used by the in-memory search engines.
+ * <p>
+ * Stops and calendar types are addressed by dense indexes instead of database ids, and
+ * every stop knows which (pattern, position) pairs serve it. Instances are built by
+ * {@link TimetableBuilder} and never change afterwards, so they can be shared between
+ * threads without locking.
+ */
+public final class Timetable {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final long version;
+
+    private final long[] stopIds;
+    private final String[] stopNames;
+    private final String[] stopCities;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final String[] stopDirections;
+    private final Map<Long, Integer> stopIndexById;
+
+    private final String[] calendarTypes;
+    private final Map<String, Integer> calendarIndexByType;
+    private final ServiceCalendarIndex serviceCalendar;
+
+    private final TripPattern[] patterns;
+    private final int[][] stopPatterns;
+    private final int[][] stopPositions;
+
+    private volatile StopAreaIndex stopAreas;
+    private volatile StopSpatialIndex spatialIndex;
+    private volatile StopClusterIndex stopClusters;
+    private volatile ConnectionIndex connections;
+    private volatile DirectConnectionIndex directConnections;
+    private volatile DepartureBoardIndex departureBoards;
+    private volatile RoutePatternIndex routePatterns;
+
+    Timetable(long version,
+              long[] stopIds, String[] stopNames, String[] stopCities,
+              double[] latitudes, double[] longitudes, String[] stopDirections,
+              Map<Long, Integer> stopIndexById,
+              String[] calendarTypes, Map<String, Integer> calendarIndexByType,
+              ServiceCalendarIndex serviceCalendar, TripPattern[] patterns, int[][] stopPatterns, int[][] stopPositions) {
+        this.version = version;
+        this.stopIds = stopIds;
+        this.stopNames = stopNames;
+        this.stopCities = stopCities;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.stopDirections = stopDirections;
+        this.stopIndexById = stopIndexById;
+        this.calendarTypes = calendarTypes;
+        this.calendarIndexByType = calendarIndexByType;
+        this.serviceCalendar = serviceCalendar;
+        this.patterns = patterns;
+        this.stopPatterns = stopPatterns;
+        this.stopPositions = stopPositions;
+    }
+
+    public long version() { return version; }
+
+    /**
+     * Copy sharing stops and calendars with this timetable but serving other patterns. The patcher hands
+     * over the route lookup and direct connections it patched; the other pattern-dependent indexes start
+     * empty, see {@link #warmLike(Timetable)}.
+     */
+    Timetable withPatterns(long newVersion, TripPattern[] newPatterns, int[][] newStopPatterns, int[][] newStopPositions,
+                           RoutePatternIndex newRoutePatterns, DirectConnectionIndex newDirectConnections) {
+        Timetable copy = new Timetable(newVersion, stopIds, stopNames, stopCities, latitudes, longitudes, stopDirections,
+                stopIndexById, calendarTypes, calendarIndexByType, serviceCalendar,
+                newPatterns, newStopPatterns, newStopPositions);
+        copy.stopAreas = stopAreas;
+        copy.stopClusters = stopClusters;
+        copy.routePatterns = newRoutePatterns;
+        copy.directConnections = newDirectConnections;
+        return copy;
+    }
+
+    /** Builds the derived indexes {@code other} had built, so queries after a patch do not pay for them. */
+    void warmLike(Timetable other) {
+        if (other.spatialIndex != null) spatialIndex();
+        if (other.connections != null) connections();
+        if (other.directConnections != null) directConnections();
+        if (other.departureBoards != null) departureBoards();
+    }
+
+    // ── Stops ─────────────────────────────────────────────────────────────────
+
+    public int stopCount() { return stopIds.length; }
+
+    /** Dense index of the stop, or -1 when the id is unknown. */
+    public int stopIndex(Long stopId) {
+        Integer index = stopId != null ? stopIndexById.get(stopId) : null;
+        return index != null ? index : -1;
+    }
+
+    public long stopId(int stop) { return stopIds[stop]; }
+    public String stopName(int stop) { return stopNames[stop]; }
+    public String stopCity(int stop) { return stopCities[stop]; }
+    public String stopDirection(int stop) { return stopDirections[stop]; }
+
+    /** Latitude of the stop, {@code NaN} when the stop has no coordinates. */
+    public double latitude(int stop) { return latitudes[stop]; }
+    public double longitude(int stop) { return longitudes[stop]; }
+
+    /** Patterns serving the stop; {@link #positionsAt(int)} holds the matching positions. */
+    public int[] patternsAt(int stop) { return stopPatterns[stop]; }
+    public int[] positionsAt(int stop) { return stopPositions[stop]; }
+
+    // ── Calendars ─────────────────────────────────────────────────────────────
+
+    /** Dense index of the calendar type, or -1 when no trip uses it. */
+    public int calendarIndex(String calendarType) {
+        Integer index = calendarType != null ? calendarIndexByType.get(calendarType) : null;
+        return index != null ? index : -1;
+    }
+
+    public String calendarType(int calendar) { return calendarTypes[calendar]; }
+
+    /** Calendars running on the date, compiled from the service calendars. */
+    public ServiceDay serviceDay(LocalDate date) {
+        return serviceCalendar.day(date);
+    }
+
+    /** Calendar type codes running on the day, for queries that still filter trips in SQL. */
+    public List<String> calendarTypes(ServiceDay day) {
+        List<String> types = new ArrayList<>();
+        for (int calendar : day.calendars()) {
+            if (calendar < calendarTypes.length) types.add(calendarTypes[calendar]);
+        }
+        return types;
+    }
+
+    // ── Patterns ──────────────────────────────────────────────────────────────
+
+    public int patternCount() { return patterns.length; }
+    public TripPattern pattern(int pattern) { return patterns[pattern]; }
+
+    /** Stop areas (platforms sharing a name), built on first use and kept for the life of this timetable. */
+    public StopAreaIndex stopAreas() {
+        StopAreaIndex index = stopAreas;
+        if (index == null) {
+            synchronized (this) {
+                index = stopAreas;
+                if (index == null) {
+                    index = StopAreaIndex.build(this);
+                    stopAreas = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Grid over stop coordinates for nearest-stop lookups, built on first use and kept for the life of this timetable. */
+    public StopSpatialIndex spatialIndex() {
+        StopSpatialIndex index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    index = StopSpatialIndex.build(this);
+                    spatialIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Per-zoom stop clusters for map viewports, built on first use and kept for the life of this timetable. */
+    public StopClusterIndex stopClusters() {
+        StopClusterIndex index = stopClusters;
+        if (index == null) {
+            synchronized (this) {
+                index = stopClusters;
+                if (index == null) {
+                    index = StopClusterIndex.build(this);
+                    stopClusters = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Connections sorted by departure, built on first use and kept for the life of this timetable. */
+    public ConnectionIndex connections() {
+        ConnectionIndex index = connections;
+        if (index == null) {
+            synchronized (this) {
+                index = connections;
+                if (index == null) {
+                    index = ConnectionIndex.build(this);
+                    connections = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Direct rides per (from, to, calendar), built on first use and kept for the life of this timetable. */
+    public DirectConnectionIndex directConnections() {
+        DirectConnectionIndex index = directConnections;
+        if (index == null) {
+            synchronized (this) {
+                index = directConnections;
+                if (index == null) {
+                    index = DirectConnectionIndex.build(this);
+                    directConnections = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Per stop-area departure streams, built on first use and kept for the life of this timetable. */
+    public DepartureBoardIndex departureBoards() {
+        DepartureBoardIndex index = departureBoards;
+        if (index == null) {
+            synchronized (this) {
+                index = departureBoards;
+                if (index == null) {
+                    index = DepartureBoardIndex.build(this);
+                    departureBoards = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Pattern slots per route and route per trip, for the patcher; built on first use. */
+    RoutePatternIndex routePatterns() {
+        RoutePatternIndex index = routePatterns;
+        if (index == null) {
+            synchronized (this) {
+                index = routePatterns;
+                if (index == null) {
+                    index = RoutePatternIndex.build(this);
+                    routePatterns = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // ── Time helpers ──────────────────────────────────────────────────────────
+
+    public static int toMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    public static LocalTime toTime(int minute) {
+        int normalized = Math.floorMod(minute, MINUTES_PER_DAY);
+        return LocalTime.of(normalized / 60, normalized % 60);
+    }
+}
@@ -0,0 +1,291 @@
+package com.leszek.busscheduler.timetable;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Collects stops, routes, trips and departures and compiles them into a {@link Timetable}.
+ * <p>
+ * Trips are grouped by route and actual stop sequence (taken from their departures, so
+ * manually edited trips still land in the right place). A group whose trips overtake each
+ * other is split further, which keeps every {@link TripPattern} binary-searchable.
+ * <p>
+ * Trips added with a start time are pattern-stored: their stop times are derived from the
+ * route's stop offsets, and their departures only override single stops.
+ */
+public class TimetableBuilder implements TimetableSink {
+
+    private record StopData(long id, String name, String city, Double latitude, Double longitude, String direction) {}
+    private record RouteData(String lineNumber, String direction) {}
+    private record TripData(long tripId, long routeId, String calendarType, Integer startMinute) {}
+    private record RouteStopData(long stopId, int sequence, int offsetMinutes) {}
+    private record StopTime(long stopId, int minute, int order) {}
+    private record PatternKey(long routeId, List<Integer> stops) {}
+    record CompiledTrip(long tripId, int calendar, int[] times) {}
+    private record CalendarData(LocalDate startDate, LocalDate endDate, int weekdays) {}
+
+    // Days compiled into ServiceCalendarIndex bitsets (from a week back); other dates are evaluated on demand
+    static final int DEFAULT_HORIZON_DAYS = 400;
+
+    private final List<StopData> stops = new ArrayList<>();
+    private final Map<Long, RouteData> routes = new HashMap<>();
+    private final Map<Long, TripData> trips = new LinkedHashMap<>();
+    private final Map<Long, List<RouteStopData>> routeStops = new HashMap<>();
+    private final Map<Long, List<StopTime>> stopTimes = new HashMap<>();
+    private final Map<String, CalendarData> calendars = new HashMap<>();
+    private final Map<String, Set<LocalDate>> addedDates = new HashMap<>();
+    private final Map<String, Set<LocalDate>> removedDates = new HashMap<>();
+    private LocalDate horizonStart = LocalDate.now().minusDays(7);
+    private int horizonDays = DEFAULT_HORIZON_DAYS;
+    private int departureCount;
+
+    @Override
+    public TimetableBuilder addStop(long id, String name, String city, Double latitude, Double longitude, String direction) {
+        stops.add(new StopData(id, name, city, latitude, longitude, direction));
+        return this;
+    }
+
+    @Override
+    public TimetableBuilder addRoute(long routeId, String lineNumber, String direction) {
+        routes.put(routeId, new RouteData(lineNumber, direction));
+        return this;
+    }
+
+    @Override
+    public TimetableBuilder addRouteStop(long routeId, long stopId, int sequence, Integer offsetMinutes) {
+        routeStops.computeIfAbsent(routeId, id -> new ArrayList<>())
+                .add(new RouteStopData(stopId, sequence, offsetMinutes != null ? offsetMinutes : 0));
+        return this;
+    }
+
+    public TimetableBuilder addTrip(long tripId, long routeId, String calendarType) {
+        return addTrip(tripId, routeId, calendarType, null);
+    }
+
+    /** A trip with a start time runs the route's stop offsets; its departures become per-stop overrides. */
+    @Override
+    public TimetableBuilder addTrip(long tripId, long routeId, String calendarType, LocalTime startTime) {
+        trips.put(tripId, new TripData(tripId, routeId, calendarType,
+                startTime != null ? Timetable.toMinute(startTime) : null));
+        return this;
+    }
+
+    @Override
+    public TimetableBuilder addDeparture(long tripId, long stopId, LocalTime departureTime) {
+        stopTimes.computeIfAbsent(tripId, id -> new ArrayList<>())
+                .add(new StopTime(stopId, Timetable.toMinute(departureTime), departureCount++));
+        return this;
+    }
+
+    /** Service rule of a calendar type; types without one fall back to {@link CalendarTypes#defaultWeekdays}. */
+    @Override
+    public TimetableBuilder addServiceCalendar(String calendarType, LocalDate startDate, LocalDate endDate, int weekdays) {
+        calendars.put(calendarType, new CalendarData(startDate, endDate, weekdays));
+        return this;
+    }
+
+    @Override
+    public TimetableBuilder addCalendarException(String calendarType, LocalDate date, boolean added) {
+        (added ? addedDates : removedDates).computeIfAbsent(calendarType, type -> new HashSet<>()).add(date);
+        return this;
+    }
+
+    public TimetableBuilder serviceHorizon(LocalDate firstDay, int days) {
+        this.horizonStart = firstDay;
+        this.horizonDays = days;
+        return this;
+    }
+
+    public Timetable build(long version) {
+        int stopCount = stops.size();
+        long[] stopIds = new long[stopCount];
+        String[] stopNames = new String[stopCount];
+        String[] stopCities = new String[stopCount];
+        double[] latitudes = new double[stopCount];
+        double[] longitudes = new double[stopCount];
+        String[] stopDirections = new String[stopCount];
+        Map<Long, Integer> stopIndexById = new HashMap<>(stopCount * 2);
+        for (int i = 0; i < stopCount; i++) {
+            StopData stop = stops.get(i);
+            stopIds[i] = stop.id();
+            stopNames[i] = stop.name();
+            stopCities[i] = stop.city();
+            latitudes[i] = stop.latitude() != null ? stop.latitude() : Double.NaN;
+            longitudes[i] = stop.longitude() != null ? stop.longitude() : Double.NaN;
+            stopDirections[i] = stop.direction();
+            stopIndexById.put(stop.id(), i);
+        }
+
+        List<String> calendarTypes = new ArrayList<>();
+        Map<String, Integer> calendarIndexByType = new HashMap<>();
+
+        // Group trips by route and the stop sequence they actually visit
+        Map<PatternKey, List<CompiledTrip>> groups = new TreeMap<>(
+                Comparator.comparingLong(PatternKey::routeId)
+                        .thenComparing(key -> key.stops().toString()));
+        for (TripData trip : trips.values()) {
+            List<StopTime> times = trip.startMinute() != null
+                    ? derivedStopTimes(trip, stopTimes.getOrDefault(trip.tripId(), List.of()))
+                    : stopTimes.get(trip.tripId());
+            if (times == null || times.isEmpty() || !routes.containsKey(trip.routeId())) continue;
+            times.sort(Comparator.comparingInt(StopTime::minute).thenComparingInt(StopTime::order));
+
+            List<Integer> sequence = new ArrayList<>(times.size());
+            int[] minutes = new int[times.size()];
+            int n = 0;
+            for (StopTime st : times) {
+                Integer stop = stopIndexById.get(st.stopId());
+                if (stop == null) continue;
+                sequence.add(stop);
+                minutes[n++] = st.minute();
+            }
+            if (n == 0) continue;
+
+            int calendar = calendarIndexByType.computeIfAbsent(trip.calendarType(), type -> {
+                calendarTypes.add(type);
+                return calendarTypes.size() - 1;
+            });
+            groups.computeIfAbsent(new PatternKey(trip.routeId(), sequence), key -> new ArrayList<>())
+                    .add(new CompiledTrip(trip.tripId(), calendar, Arrays.copyOf(minutes, n)));
+        }
+
+        List<TripPattern> patterns = new ArrayList<>();
+        for (Map.Entry<PatternKey, List<CompiledTrip>> group : groups.entrySet()) {
+            int[] patternStops = group.getKey().stops().stream().mapToInt(Integer::intValue).toArray();
+            RouteData route = routes.get(group.getKey().routeId());
+            for (List<CompiledTrip> fifo : splitOvertakingTrips(group.getValue())) {
+                patterns.add(compilePattern(patterns.size(), group.getKey().routeId(), route.lineNumber(),
+                        route.direction(), patternStops, fifo));
+            }
+        }
+
+        int[][] stopPatterns = new int[stopCount][];
+        int[][] stopPositions = new int[stopCount][];
+        indexStops(patterns, stopPatterns, stopPositions);
+
+        return new Timetable(version, stopIds, stopNames, stopCities, latitudes, longitudes, stopDirections,
+                stopIndexById, calendarTypes.toArray(String[]::new), calendarIndexByType,
+                compileCalendars(calendarTypes), patterns.toArray(TripPattern[]::new), stopPatterns, stopPositions);
+    }
+
+    private ServiceCalendarIndex compileCalendars(List<String> calendarTypes) {
+        ServiceCalendarIndex.Rule[] rules = new ServiceCalendarIndex.Rule[calendarTypes.size()];
+        for (int c = 0; c < rules.length; c++) {
+            String type = calendarTypes.get(c);
+            CalendarData data = calendars.getOrDefault(type,
+                    new CalendarData(null, null, CalendarTypes.defaultWeekdays(type)));
+            rules[c] = new ServiceCalendarIndex.Rule(data.startDate(), data.endDate(), data.weekdays(),
+                    addedDates.getOrDefault(type, Set.of()), removedDates.getOrDefault(type, Set.of()));
+        }
+        return ServiceCalendarIndex.compile(rules, horizonStart, horizonDays);
+    }
+
+    // Route offsets from the start time, with each override replacing the first not yet overridden visit of its stop
+    private List<StopTime> derivedStopTimes(TripData trip, List<StopTime> overrides) {
+        List<RouteStopData> stops = new ArrayList<>(routeStops.getOrDefault(trip.routeId(), List.of()));
+        stops.sort(Comparator.comparingInt(RouteStopData::sequence));
+        List<StopTime> times = new ArrayList<>(stops.size() + overrides.size());
+        for (int i = 0; i < stops.size(); i++) {
+            times.add(new StopTime(stops.get(i).stopId(), trip.startMinute() + stops.get(i).offsetMinutes(), i));
+        }
+        boolean[] overridden = new boolean[times.size()];
+        for (StopTime override : overrides) {
+            int target = -1;
+            for (int i = 0; i < times.size() && target < 0; i++) {
+                if (i < overridden.length && !overridden[i] && times.get(i).stopId() == override.stopId()) target = i;
+            }
+            if (target >= 0) {
+                overridden[target] = true;
+                times.set(target, new StopTime(override.stopId(), override.minute(), target));
+            } else {
+                times.add(new StopTime(override.stopId(), override.minute(), times.size()));
+            }
+        }
+        return times;
+    }
+
+    static List<List<CompiledTrip>> splitOvertakingTrips(List<CompiledTrip> trips) {
+        trips.sort((a, b) -> Arrays.compare(a.times(), b.times()));
+        List<List<CompiledTrip>> buckets = new ArrayList<>();
+        for (CompiledTrip trip : trips) {
+            List<CompiledTrip> target = null;
+            for (List<CompiledTrip> bucket : buckets) {
+                if (neverEarlier(trip.times(), bucket.get(bucket.size() - 1).times())) {
+                    target = bucket;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new ArrayList<>();
+                buckets.add(target);
+            }
+            target.add(trip);
+        }
+        return buckets;
+    }
+
+    private static boolean neverEarlier(int[] times, int[] previous) {
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] < previous[i]) return false;
+        }
+        return true;
+    }
+
+    static TripPattern compilePattern(int index, long routeId, String lineNumber, String direction,
+                                      int[] stops, List<CompiledTrip> trips) {
+        long[] tripIds = new long[trips.size()];
+        int[] calendars = new int[trips.size()];
+        int[] offsets = sharedOffsets(trips, stops.length);
+        if (offsets != null) {
+            int[] starts = new int[trips.size()];
+            for (int t = 0; t < trips.size(); t++) {
+                tripIds[t] = trips.get(t).tripId();
+                calendars[t] = trips.get(t).calendar();
+                starts[t] = trips.get(t).times()[0];
+            }
+            return new TripPattern(index, routeId, lineNumber, direction, stops, tripIds, calendars, starts, offsets);
+        }
+        int[] times = new int[trips.size() * stops.length];
+        for (int t = 0; t < trips.size(); t++) {
+            CompiledTrip trip = trips.get(t);
+            tripIds[t] = trip.tripId();
+            calendars[t] = trip.calendar();
+            System.arraycopy(trip.times(), 0, times, t * stops.length, stops.length);
+        }
+        return new TripPattern(index, routeId, lineNumber, direction, stops, tripIds, calendars, times);
+    }
+
+    // Offsets from the first stop when every trip of the pattern runs the same ones, else null
+    private static int[] sharedOffsets(List<CompiledTrip> trips, int stopCount) {
+        int[] first = trips.get(0).times();
+        int[] offsets = new int[stopCount];
+        for (int p = 0; p < stopCount; p++) offsets[p] = first[p] - first[0];
+        for (CompiledTrip trip : trips) {
+            int[] times = trip.times();
+            for (int p = 0; p < stopCount; p++) {
+                if (times[p] - times[0] != offsets[p]) return null;
+            }
+        }
+        return offsets;
+    }
+
+    static void indexStops(List<TripPattern> patterns, int[][] stopPatterns, int[][] stopPositions) {
+        int[] counts = new int[stopPatterns.length];
+        for (TripPattern pattern : patterns) {
+            for (int p = 0; p < pattern.stopCount(); p++) counts[pattern.stop(p)]++;
+        }
+        for (int s = 0; s < counts.length; s++) {
+            stopPatterns[s] = new int[counts[s]];
+            stopPositions[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (TripPattern pattern : patterns) {
+            for (int p = 0; p < pattern.stopCount(); p++) {
+                int stop = pattern.stop(p);
+                stopPatterns[stop][counts[stop]] = pattern.index();
+                stopPositions[stop][counts[stop]++] = p;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.leszek.busscheduler.timetable;
+
+/**
+ * What a single-trip edit changed. {@link TimetableProvider} applies these as patches to the published
+ * timetable instead of reloading the whole network.
+ */
+public sealed interface TimetableChange {
+
+    long tripId();
+
+    record TripAdded(long tripId) implements TimetableChange {}
+
+    record TripRemoved(long tripId) implements TimetableChange {}
+
+    /** A departure of the trip was added or moved. */
+    record TripRetimed(long tripId) implements TimetableChange {}
+
+    record TripRecalendared(long tripId) implements TimetableChange {}
+}
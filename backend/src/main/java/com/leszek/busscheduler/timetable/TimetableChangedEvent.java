@@ -0,0 +1,15 @@
+package com.leszek.busscheduler.timetable;
+
+/**
+ * Published whenever stops, lines, routes, trips or departures are modified.
+ * Listeners holding derived, in-memory data use it to drop stale state.
+ * <p>
+ * Edits confined to one trip carry a {@link TimetableChange}; {@code change} is null for
+ * anything broader, which needs a full reload.
+ */
+public record TimetableChangedEvent(String reason, TimetableChange change) {
+
+    public TimetableChangedEvent(String reason) {
+        this(reason, null);
+    }
+}
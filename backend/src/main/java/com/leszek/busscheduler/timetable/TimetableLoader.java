@@ -0,0 +1,134 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.domain.BusStop;
+import com.leszek.busscheduler.repository.BusStopRepository;
+import com.leszek.busscheduler.repository.DepartureRepository;
+import com.leszek.busscheduler.repository.RouteRepository;
+import com.leszek.busscheduler.repository.RouteStopRepository;
+import com.leszek.busscheduler.repository.ServiceCalendarRepository;
+import com.leszek.busscheduler.repository.TripRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reads the whole network with a handful of flat queries and compiles it into a {@link Timetable}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimetableLoader {
+
+    private final BusStopRepository busStopRepository;
+    private final RouteRepository routeRepository;
+    private final RouteStopRepository routeStopRepository;
+    private final TripRepository tripRepository;
+    private final DepartureRepository departureRepository;
+    private final ServiceCalendarRepository serviceCalendarRepository;
+
+    // Repeatable read: every query sees the same committed state, so an import committing mid-load is all or nothing
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Timetable load(long version) {
+        long start = System.currentTimeMillis();
+        TimetableBuilder builder = new TimetableBuilder();
+        read(builder);
+        return build(builder, version, start, "database");
+    }
+
+    /**
+     * Applies a single-trip change on top of {@code base}, reading only that trip's rows. Empty when the
+     * change touches something the base timetable does not know yet, so a full load is needed.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Timetable> patch(Timetable base, long version, TimetableChange change) {
+        if (change instanceof TimetableChange.TripRemoved) {
+            return Optional.of(TimetablePatcher.removeTrip(base, version, change.tripId()));
+        }
+        Optional<TripRepository.TripSummary> summary = tripRepository.findSummaryById(change.tripId());
+        if (summary.isEmpty()) {
+            return Optional.of(TimetablePatcher.removeTrip(base, version, change.tripId()));
+        }
+        TripRepository.TripSummary trip = summary.get();
+        List<DepartureRepository.DepartureRow> departures = departureRepository.findRowsByTripId(trip.getId());
+        List<RouteStopRepository.RouteStopRow> routeStops = trip.getStartTime() != null
+                ? routeStopRepository.findRowsByRouteId(trip.getRouteId()) : List.of();
+
+        // The trip alone, compiled with the usual rules (derived times, overrides), then merged into the base
+        TimetableBuilder builder = new TimetableBuilder();
+        Set<Long> stopIds = new HashSet<>();
+        departures.forEach(row -> stopIds.add(row.getBusStopId()));
+        routeStops.forEach(row -> stopIds.add(row.getBusStopId()));
+        stopIds.forEach(id -> builder.addStop(id, null, null, null, null, null));
+        builder.addRoute(trip.getRouteId(), null, null);
+        routeStops.forEach(row -> builder.addRouteStop(row.getRouteId(), row.getBusStopId(), row.getSequenceNumber(),
+                row.getTimeOffsetMinutes()));
+        builder.addTrip(trip.getId(), trip.getRouteId(), trip.getCalendarType(), trip.getStartTime());
+        departures.forEach(row -> builder.addDeparture(row.getTripId(), row.getBusStopId(), row.getDepartureTime()));
+
+        return Optional.ofNullable(TimetablePatcher.replaceTrip(base, version, trip.getId(), trip.getRouteId(),
+                trip.getCalendarType(), builder.build(version)));
+    }
+
+    /** Compiles the timetable from a snapshot file written by {@link #exportSnapshot}, without touching the database. */
+    public Timetable loadSnapshot(Path file, long version) throws IOException {
+        long start = System.currentTimeMillis();
+        TimetableBuilder builder = new TimetableBuilder();
+        TimetableSnapshot.read(file, builder);
+        return build(builder, version, start, file.toString());
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public TimetableSnapshot.Info exportSnapshot(Path file) throws IOException {
+        TimetableSnapshot.Writer writer = new TimetableSnapshot.Writer();
+        read(writer);
+        TimetableSnapshot.Info info = writer.write(file);
+        log.info("Timetable snapshot written to {}: {} trips, {} departures", file, info.trips(), info.departures());
+        return info;
+    }
+
+    private void read(TimetableSink sink) {
+        for (BusStop stop : busStopRepository.findAll()) {
+            sink.addStop(stop.getId(), stop.getName(), stop.getCity(),
+                    stop.getLatitude(), stop.getLongitude(), stop.getDirection());
+        }
+        for (RouteRepository.RouteSummary route : routeRepository.findAllSummaries()) {
+            sink.addRoute(route.getId(), route.getLineNumber(), route.getDirection());
+        }
+        for (RouteStopRepository.RouteStopRow routeStop : routeStopRepository.findAllRows()) {
+            sink.addRouteStop(routeStop.getRouteId(), routeStop.getBusStopId(), routeStop.getSequenceNumber(),
+                    routeStop.getTimeOffsetMinutes());
+        }
+        for (TripRepository.TripSummary trip : tripRepository.findAllSummaries()) {
+            sink.addTrip(trip.getId(), trip.getRouteId(), trip.getCalendarType(), trip.getStartTime());
+        }
+        for (DepartureRepository.DepartureRow row : departureRepository.findAllRows()) {
+            sink.addDeparture(row.getTripId(), row.getBusStopId(), row.getDepartureTime());
+        }
+        for (ServiceCalendarRepository.CalendarRow calendar : serviceCalendarRepository.findAllRows()) {
+            sink.addServiceCalendar(calendar.getCalendarType(), calendar.getStartDate(), calendar.getEndDate(),
+                    calendar.getWeekdays());
+        }
+        for (ServiceCalendarRepository.ExceptionRow exception : serviceCalendarRepository.findAllExceptionRows()) {
+            sink.addCalendarException(exception.getCalendarType(), exception.getDate(), exception.getAdded());
+        }
+    }
+
+    private Timetable build(TimetableBuilder builder, long version, long start, String source) {
+        Timetable timetable = builder.build(version);
+        // Direct search serves most traffic, so its index is part of the load rather than of the first query
+        int directConnections = timetable.directConnections().size();
+        log.info("Timetable v{} loaded from {}: {} stops, {} patterns, {} direct connections in {} ms",
+                version, source, timetable.stopCount(), timetable.patternCount(), directConnections,
+                System.currentTimeMillis() - start);
+        return timetable;
+    }
+}
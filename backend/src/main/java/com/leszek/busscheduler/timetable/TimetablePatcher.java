@@ -0,0 +1,187 @@
+package com.leszek.busscheduler.timetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a single-trip change to a published {@link Timetable} without reloading the network.
+ * <p>
+ * Only the patterns of the routes the trip belongs to (before and after the change) are
+ * recompiled, from the trips they already hold plus the trip's new stop times. They go back into
+ * the slots the route already had, so every other pattern keeps its index and is shared as is;
+ * slots a route no longer needs stay behind as empty patterns, and extra ones are appended. The
+ * per-stop lists are rebuilt only for the stops those patterns visit, and the direct connection
+ * index is patched rather than rebuilt. A change the base cannot express (a new stop, route or
+ * calendar type) returns null, and the caller falls back to a full load.
+ */
+final class TimetablePatcher {
+
+    private TimetablePatcher() {}
+
+    static Timetable removeTrip(Timetable base, long version, long tripId) {
+        return recompile(base, version, tripId, null, null, null);
+    }
+
+    /**
+     * Replaces the trip with the single pattern of {@code trip}, a timetable compiled from just that trip
+     * (stops addressed by id). A trip with no stop times is removed.
+     */
+    static Timetable replaceTrip(Timetable base, long version, long tripId, long routeId, String calendarType,
+                                 Timetable trip) {
+        if (trip.patternCount() == 0) return removeTrip(base, version, tripId);
+        if (trip.patternCount() > 1) return null;
+        int calendar = base.calendarIndex(calendarType);
+        TripPattern source = trip.pattern(0);
+        int[] routeSlots = base.routePatterns().patternsOf(routeId);
+        if (calendar < 0 || routeSlots.length == 0) return null;
+
+        int[] stops = new int[source.stopCount()];
+        int[] times = new int[source.stopCount()];
+        for (int p = 0; p < stops.length; p++) {
+            stops[p] = base.stopIndex(trip.stopId(source.stop(p)));
+            if (stops[p] < 0) return null;
+            times[p] = source.time(0, p);
+        }
+        return recompile(base, version, tripId, base.pattern(routeSlots[0]),
+                stops, new TimetableBuilder.CompiledTrip(tripId, calendar, times));
+    }
+
+    // Regroups the touched routes' remaining trips plus the added one into their own pattern slots
+    private static Timetable recompile(Timetable base, long version, long tripId,
+                                       TripPattern addedRoute, int[] addedStops, TimetableBuilder.CompiledTrip added) {
+        RoutePatternIndex lookup = base.routePatterns();
+        Set<Long> routes = new LinkedHashSet<>();
+        long previousRoute = lookup.routeOf(tripId);
+        if (previousRoute != RoutePatternIndex.NO_ROUTE) routes.add(previousRoute);
+        if (added != null) routes.add(addedRoute.routeId());
+
+        List<TripPattern> patterns = new ArrayList<>(Arrays.asList(allPatterns(base)));
+        List<TripPattern> replacedPatterns = new ArrayList<>();
+        List<TripPattern> compiled = new ArrayList<>();
+        Map<Long, int[]> routeSlots = new HashMap<>();
+
+        for (long routeId : routes) {
+            int[] slots = lookup.patternsOf(routeId);
+            TripPattern info = base.pattern(slots[0]);
+            Map<List<Integer>, List<TimetableBuilder.CompiledTrip>> groups = new LinkedHashMap<>();
+            for (int slot : slots) {
+                TripPattern pattern = base.pattern(slot);
+                replacedPatterns.add(pattern);
+                if (pattern.tripCount() == 0) continue;
+                List<TimetableBuilder.CompiledTrip> group = groups.computeIfAbsent(stopList(pattern), stops -> new ArrayList<>());
+                for (int t = 0; t < pattern.tripCount(); t++) {
+                    if (pattern.tripId(t) == tripId) continue;
+                    int[] times = new int[pattern.stopCount()];
+                    for (int p = 0; p < times.length; p++) times[p] = pattern.time(t, p);
+                    group.add(new TimetableBuilder.CompiledTrip(pattern.tripId(t), pattern.calendar(t), times));
+                }
+            }
+            if (added != null && routeId == addedRoute.routeId()) {
+                List<Integer> stops = new ArrayList<>(addedStops.length);
+                for (int stop : addedStops) stops.add(stop);
+                groups.computeIfAbsent(stops, key -> new ArrayList<>()).add(added);
+            }
+
+            List<int[]> stopSequences = new ArrayList<>();
+            List<List<TimetableBuilder.CompiledTrip>> fifos = new ArrayList<>();
+            for (Map.Entry<List<Integer>, List<TimetableBuilder.CompiledTrip>> group : groups.entrySet()) {
+                if (group.getValue().isEmpty()) continue;
+                int[] stops = group.getKey().stream().mapToInt(Integer::intValue).toArray();
+                for (List<TimetableBuilder.CompiledTrip> fifo : TimetableBuilder.splitOvertakingTrips(group.getValue())) {
+                    stopSequences.add(stops);
+                    fifos.add(fifo);
+                }
+            }
+
+            // Reuse the route's slots first, append the rest, and leave unused slots as empty patterns
+            int[] newSlots = Arrays.copyOf(slots, Math.max(slots.length, fifos.size()));
+            for (int i = slots.length; i < newSlots.length; i++) {
+                newSlots[i] = patterns.size();
+                patterns.add(null);
+            }
+            for (int i = 0; i < newSlots.length; i++) {
+                TripPattern pattern = i < fifos.size()
+                        ? TimetableBuilder.compilePattern(newSlots[i], routeId, info.lineNumber(), info.direction(),
+                                stopSequences.get(i), fifos.get(i))
+                        : new TripPattern(newSlots[i], routeId, info.lineNumber(), info.direction(),
+                                new int[0], new long[0], new int[0], new int[0]);
+                patterns.set(newSlots[i], pattern);
+                compiled.add(pattern);
+            }
+            routeSlots.put(routeId, newSlots);
+        }
+
+        boolean[] replaced = new boolean[patterns.size()];
+        for (TripPattern pattern : replacedPatterns) replaced[pattern.index()] = true;
+        for (TripPattern pattern : compiled) replaced[pattern.index()] = true;
+
+        int[][] stopPatterns = allStopPatterns(base);
+        int[][] stopPositions = allStopPositions(base);
+        reindexStops(replacedPatterns, compiled, replaced, stopPatterns, stopPositions);
+
+        long newRoute = added != null ? addedRoute.routeId() : RoutePatternIndex.NO_ROUTE;
+        return base.withPatterns(version, patterns.toArray(TripPattern[]::new), stopPatterns, stopPositions,
+                lookup.with(routeSlots, tripId, newRoute),
+                base.directConnections().patch(replaced, compiled));
+    }
+
+    // Rebuilds the (pattern, position) lists of the stops the old or new patterns visit, kept in pattern order
+    private static void reindexStops(List<TripPattern> removed, List<TripPattern> added, boolean[] replaced,
+                                     int[][] stopPatterns, int[][] stopPositions) {
+        Map<Integer, List<long[]>> touched = new HashMap<>();
+        for (TripPattern pattern : removed) {
+            for (int p = 0; p < pattern.stopCount(); p++) touched.computeIfAbsent(pattern.stop(p), stop -> new ArrayList<>());
+        }
+        for (TripPattern pattern : added) {
+            for (int p = 0; p < pattern.stopCount(); p++) {
+                touched.computeIfAbsent(pattern.stop(p), stop -> new ArrayList<>())
+                        .add(new long[]{pattern.index(), p});
+            }
+        }
+        for (Map.Entry<Integer, List<long[]>> stop : touched.entrySet()) {
+            int s = stop.getKey();
+            List<long[]> entries = stop.getValue();
+            for (int i = 0; i < stopPatterns[s].length; i++) {
+                if (!replaced[stopPatterns[s][i]]) entries.add(new long[]{stopPatterns[s][i], stopPositions[s][i]});
+            }
+            entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            stopPatterns[s] = new int[entries.size()];
+            stopPositions[s] = new int[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                stopPatterns[s][i] = (int) entries.get(i)[0];
+                stopPositions[s][i] = (int) entries.get(i)[1];
+            }
+        }
+    }
+
+    private static TripPattern[] allPatterns(Timetable timetable) {
+        TripPattern[] patterns = new TripPattern[timetable.patternCount()];
+        for (int i = 0; i < patterns.length; i++) patterns[i] = timetable.pattern(i);
+        return patterns;
+    }
+
+    // Outer arrays only: the per-stop lists are shared until reindexStops replaces them
+    private static int[][] allStopPatterns(Timetable timetable) {
+        int[][] lists = new int[timetable.stopCount()][];
+        for (int s = 0; s < lists.length; s++) lists[s] = timetable.patternsAt(s);
+        return lists;
+    }
+
+    private static int[][] allStopPositions(Timetable timetable) {
+        int[][] lists = new int[timetable.stopCount()][];
+        for (int s = 0; s < lists.length; s++) lists[s] = timetable.positionsAt(s);
+        return lists;
+    }
+
+    private static List<Integer> stopList(TripPattern pattern) {
+        List<Integer> stops = new ArrayList<>(pattern.stopCount());
+        for (int p = 0; p < pattern.stopCount(); p++) stops.add(pattern.stop(p));
+        return stops;
+    }
+}
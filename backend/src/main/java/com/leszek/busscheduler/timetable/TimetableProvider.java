@@ -0,0 +1,194 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Owns the current {@link Timetable}.
+ * <p>
+ * Readers get the published copy with a single volatile read and never wait on a rebuild. After every
+ * committed change a background thread loads a fresh copy and publishes it with one reference swap, so
+ * a reader sees either the old network or the new one, never a half-applied import. Changes arriving
+ * during a rebuild coalesce into one follow-up rebuild. A configured snapshot file serves the first
+ * copy at startup while the database copy loads in the background and replaces it.
+ * <p>
+ * Single-trip edits carry a {@link TimetableChange} and are patched into the current copy by
+ * recompiling only the trip's route; anything else, and a periodic consistency check, reloads
+ * the whole network.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimetableProvider {
+
+    private final TimetableLoader timetableLoader;
+    private final TimetableProperties timetableProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicReference<Timetable> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicBoolean fullReloadPending = new AtomicBoolean();
+    private final Queue<TimetableChange> pendingPatches = new ConcurrentLinkedQueue<>();
+    private final ExecutorService rebuilds =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("timetable-rebuild").factory());
+
+    public Timetable get() {
+        Timetable timetable = current.get();
+        return timetable != null ? timetable : loadFirst();
+    }
+
+    // Only the very first load blocks readers; every later copy is built off to the side
+    private synchronized Timetable loadFirst() {
+        Timetable timetable = current.get();
+        if (timetable == null) {
+            long seenChanges = changes.get();
+            long version = versions.incrementAndGet();
+            Timetable fromSnapshot = seenChanges == 0 ? loadSnapshot(version) : null;
+            timetable = fromSnapshot != null ? fromSnapshot : timetableLoader.load(version);
+            current.set(timetable);
+            // The snapshot may predate edits made while the service was down, so the database copy follows it;
+            // a change committed while loading found nothing to rebuild and may be missing from this copy
+            if (fromSnapshot != null || seenChanges != changes.get()) requestFullReload();
+        }
+        return timetable;
+    }
+
+    // Null when no snapshot is configured or it cannot be read
+    private Timetable loadSnapshot(long version) {
+        Path snapshot = snapshotPath();
+        if (snapshot == null || !Files.isRegularFile(snapshot)) return null;
+        try {
+            return timetableLoader.loadSnapshot(snapshot, version);
+        } catch (IOException e) {
+            log.warn("Timetable snapshot {} unreadable, loading from the database", snapshot, e);
+            return null;
+        }
+    }
+
+    /** Writes the database state to the configured snapshot file. */
+    public TimetableSnapshot.Info exportSnapshot() throws IOException {
+        Path snapshot = snapshotPath();
+        if (snapshot == null) throw new IllegalStateException("busscheduler.timetable.snapshot-path is not set");
+        return timetableLoader.exportSnapshot(snapshot);
+    }
+
+    private Path snapshotPath() {
+        String path = timetableProperties.getSnapshotPath();
+        return path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (timetableProperties.isTimetableSearch()) {
+            get();
+        }
+    }
+
+    // fallbackExecution: admin endpoints save outside of a surrounding transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTimetableChanged(TimetableChangedEvent event) {
+        log.debug("Timetable changed: {}", event.reason());
+        changes.incrementAndGet();
+        if (current.get() == null) return;
+        if (event.change() != null) {
+            pendingPatches.add(event.change());
+            scheduleRebuild();
+        } else {
+            requestFullReload();
+        }
+    }
+
+    // Consistency check: patches only ever touch single routes, a periodic full load keeps them honest
+    @Scheduled(fixedDelayString = "${busscheduler.timetable.full-reload-minutes:60}",
+            initialDelayString = "${busscheduler.timetable.full-reload-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void scheduledFullReload() {
+        if (current.get() != null) requestFullReload();
+    }
+
+    private void requestFullReload() {
+        fullReloadPending.set(true);
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilds.execute(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        // Cleared before loading: a change committed from here on queues another rebuild behind this one
+        rebuildPending.set(false);
+        boolean fullReload = fullReloadPending.getAndSet(false);
+        List<TimetableChange> patches = new ArrayList<>();
+        for (TimetableChange change; (change = pendingPatches.poll()) != null; ) patches.add(change);
+        if (!fullReload && patches.isEmpty()) return;
+
+        long version = versions.incrementAndGet();
+        Timetable fresh = null;
+        if (!fullReload) {
+            try {
+                fresh = applyPatches(current.get(), version, patches);
+            } catch (RuntimeException e) {
+                log.warn("Timetable patch failed, reloading the whole network", e);
+            }
+        }
+        if (fresh == null) {
+            try {
+                fresh = timetableLoader.load(version);
+            } catch (RuntimeException e) {
+                // The dropped patches are covered by the full reload the next change or check triggers
+                fullReloadPending.set(true);
+                log.error("Timetable rebuild failed, still serving v{}", current.get().version(), e);
+                return;
+            }
+        }
+        current.set(fresh);
+        eventPublisher.publishEvent(new TimetableReplacedEvent(fresh.version()));
+    }
+
+    // Null when some change needs a full reload
+    private Timetable applyPatches(Timetable base, long version, List<TimetableChange> patches) {
+        long start = System.nanoTime();
+        Timetable timetable = base;
+        for (TimetableChange change : patches) {
+            Optional<Timetable> patched = timetableLoader.patch(timetable, version, change);
+            if (patched.isEmpty()) return null;
+            timetable = patched.get();
+        }
+        // Built here rather than by the first queries against the new copy
+        timetable.warmLike(base);
+        log.debug("Timetable v{} patched with {} change(s) in {} µs", version, patches.size(),
+                (System.nanoTime() - start) / 1000);
+        return timetable;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilds.shutdownNow();
+    }
+}
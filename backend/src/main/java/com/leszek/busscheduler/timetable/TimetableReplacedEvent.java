@@ -0,0 +1,8 @@
+package com.leszek.busscheduler.timetable;
+
+/**
+ * Published after {@link TimetableProvider} has swapped in a rebuilt timetable. Listeners caching
+ * results computed from the previous copy drop them here rather than on {@link TimetableChangedEvent},
+ * which arrives before the new copy is readable.
+ */
+public record TimetableReplacedEvent(long version) {}
@@ -0,0 +1,26 @@
+package com.leszek.busscheduler.timetable;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Receives the raw network rows: {@link TimetableBuilder} compiles them, {@link TimetableSnapshot.Writer}
+ * stores them in a snapshot file.
+ */
+public interface TimetableSink {
+
+    TimetableSink addStop(long id, String name, String city, Double latitude, Double longitude, String direction);
+
+    TimetableSink addRoute(long routeId, String lineNumber, String direction);
+
+    TimetableSink addRouteStop(long routeId, long stopId, int sequence, Integer offsetMinutes);
+
+    /** {@code startTime} is null for trips stored as one departure row per stop. */
+    TimetableSink addTrip(long tripId, long routeId, String calendarType, LocalTime startTime);
+
+    TimetableSink addDeparture(long tripId, long stopId, LocalTime departureTime);
+
+    TimetableSink addServiceCalendar(String calendarType, LocalDate startDate, LocalDate endDate, int weekdays);
+
+    TimetableSink addCalendarException(String calendarType, LocalDate date, boolean added);
+}
@@ -0,0 +1,378 @@
+package com.leszek.busscheduler.timetable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary copy of the raw network (stops, routes, route stops, trips, departures and calendars).
+ * <p>
+ * The file is a header, a deduplicated string table and one section per row type. Each section
+ * stores its columns one after another with fixed widths, so the reader memory-maps the file and
+ * replays it into a {@link TimetableSink} without a database round trip or a parser state machine.
+ * Strings are referenced by index ({@code -1} = null), dates as epoch days, times as minutes of day.
+ */
+public final class TimetableSnapshot {
+
+    private static final int MAGIC = 0x42555354; // "BUST"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NONE = -1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private TimetableSnapshot() {}
+
+    /** Row counts and creation time of a snapshot file. */
+    public record Info(long createdAt, int stops, int routes, int routeStops, int trips, int departures,
+                       int calendars, int calendarExceptions) {}
+
+    /** Memory-maps the file and feeds every row into {@code sink}. */
+    public static Info read(Path file, TimetableSink sink) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return new Reader(buffer).replay(sink);
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException | BufferUnderflowException e) {
+            throw new IOException("Truncated or corrupt timetable snapshot: " + file, e);
+        }
+    }
+
+    // ── Reading ───────────────────────────────────────────────────────────────
+
+    private static final class Reader {
+
+        private final ByteBuffer buffer;
+        private int position;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        Info replay(TimetableSink sink) throws IOException {
+            if (buffer.getInt(0) != MAGIC) throw new IOException("Not a timetable snapshot");
+            int version = buffer.getInt(4);
+            if (version != FORMAT_VERSION) throw new IOException("Unsupported timetable snapshot format " + version);
+            long createdAt = buffer.getLong(8);
+            int[] counts = new int[8];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buffer.getInt(16 + 4 * i);
+                if (counts[i] < 0) throw new IOException("Corrupt timetable snapshot header: negative row count");
+            }
+            position = 16 + 4 * counts.length;
+
+            String[] strings = readStrings(counts[0]);
+            readStops(sink, strings, counts[1]);
+            readRoutes(sink, strings, counts[2]);
+            readRouteStops(sink, counts[3]);
+            readTrips(sink, strings, counts[4]);
+            readDepartures(sink, counts[5]);
+            readCalendars(sink, strings, counts[6]);
+            readCalendarExceptions(sink, strings, counts[7]);
+            return new Info(createdAt, counts[1], counts[2], counts[3], counts[4], counts[5], counts[6], counts[7]);
+        }
+
+        // Start of the next column of {@code rows} values, {@code width} bytes each
+        private int column(int rows, int width) {
+            long end = position + (long) rows * width;
+            if (rows < 0 || end > buffer.limit()) {
+                throw new IndexOutOfBoundsException("Column of " + rows + " rows runs past the end of the snapshot");
+            }
+            int start = position;
+            position = (int) end;
+            return start;
+        }
+
+        private String[] readStrings(int count) {
+            int offsets = column(count + 1, 4);
+            int bytes = column(buffer.getInt(offsets + 4 * count), 1);
+            String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                int start = buffer.getInt(offsets + 4 * i);
+                byte[] utf8 = new byte[buffer.getInt(offsets + 4 * (i + 1)) - start];
+                buffer.get(bytes + start, utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+            return strings;
+        }
+
+        private void readStops(TimetableSink sink, String[] strings, int rows) {
+            int ids = column(rows, 8), names = column(rows, 4), cities = column(rows, 4);
+            int latitudes = column(rows, 8), longitudes = column(rows, 8), directions = column(rows, 4);
+            for (int i = 0; i < rows; i++) {
+                sink.addStop(buffer.getLong(ids + 8 * i),
+                        string(strings, names, i), string(strings, cities, i),
+                        coordinate(latitudes, i), coordinate(longitudes, i), string(strings, directions, i));
+            }
+        }
+
+        private void readRoutes(TimetableSink sink, String[] strings, int rows) {
+            int ids = column(rows, 8), lineNumbers = column(rows, 4), directions = column(rows, 4);
+            for (int i = 0; i < rows; i++) {
+                sink.addRoute(buffer.getLong(ids + 8 * i), string(strings, lineNumbers, i), string(strings, directions, i));
+            }
+        }
+
+        private void readRouteStops(TimetableSink sink, int rows) {
+            int routes = column(rows, 8), stops = column(rows, 8), sequences = column(rows, 4), offsets = column(rows, 4);
+            for (int i = 0; i < rows; i++) {
+                sink.addRouteStop(buffer.getLong(routes + 8 * i), buffer.getLong(stops + 8 * i),
+                        buffer.getInt(sequences + 4 * i), buffer.getInt(offsets + 4 * i));
+            }
+        }
+
+        private void readTrips(TimetableSink sink, String[] strings, int rows) {
+            int ids = column(rows, 8), routes = column(rows, 8), calendars = column(rows, 4), starts = column(rows, 4);
+            for (int i = 0; i < rows; i++) {
+                int start = buffer.getInt(starts + 4 * i);
+                sink.addTrip(buffer.getLong(ids + 8 * i), buffer.getLong(routes + 8 * i),
+                        string(strings, calendars, i), start == NONE ? null : Timetable.toTime(start));
+            }
+        }
+
+        private void readDepartures(TimetableSink sink, int rows) {
+            int trips = column(rows, 8), stops = column(rows, 8), minutes = column(rows, 4);
+            for (int i = 0; i < rows; i++) {
+                sink.addDeparture(buffer.getLong(trips + 8 * i), buffer.getLong(stops + 8 * i),
+                        Timetable.toTime(buffer.getInt(minutes + 4 * i)));
+            }
+        }
+
+        private void readCalendars(TimetableSink sink, String[] strings, int rows) {
+            int types = column(rows, 4), starts = column(rows, 4), ends = column(rows, 4), weekdays = column(rows, 4);
+            for (int i = 0; i < rows; i++) {
+                sink.addServiceCalendar(string(strings, types, i), date(starts, i), date(ends, i),
+                        buffer.getInt(weekdays + 4 * i));
+            }
+        }
+
+        private void readCalendarExceptions(TimetableSink sink, String[] strings, int rows) {
+            int types = column(rows, 4), dates = column(rows, 4), added = column(rows, 1);
+            for (int i = 0; i < rows; i++) {
+                sink.addCalendarException(string(strings, types, i), date(dates, i), buffer.get(added + i) != 0);
+            }
+        }
+
+        private String string(String[] strings, int column, int row) {
+            int index = buffer.getInt(column + 4 * row);
+            return index == NONE ? null : strings[index];
+        }
+
+        private Double coordinate(int column, int row) {
+            double value = buffer.getDouble(column + 8 * row);
+            return Double.isNaN(value) ? null : value;
+        }
+
+        private LocalDate date(int column, int row) {
+            int epochDay = buffer.getInt(column + 4 * row);
+            return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+    }
+
+    // ── Writing ───────────────────────────────────────────────────────────────
+
+    /** Collects rows column by column and writes them as one snapshot file. */
+    public static final class Writer implements TimetableSink {
+
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Section stops = new Section(6);
+        private final Section routes = new Section(3);
+        private final Section routeStops = new Section(4);
+        private final Section trips = new Section(4);
+        private final Section departures = new Section(3);
+        private final Section calendars = new Section(4);
+        private final Section calendarExceptions = new Section(3);
+
+        @Override
+        public Writer addStop(long id, String name, String city, Double latitude, Double longitude, String direction) {
+            stops.row();
+            try {
+                stops.column(0).writeLong(id);
+                stops.column(1).writeInt(string(name));
+                stops.column(2).writeInt(string(city));
+                stops.column(3).writeDouble(latitude != null ? latitude : Double.NaN);
+                stops.column(4).writeDouble(longitude != null ? longitude : Double.NaN);
+                stops.column(5).writeInt(string(direction));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public Writer addRoute(long routeId, String lineNumber, String direction) {
+            routes.row();
+            try {
+                routes.column(0).writeLong(routeId);
+                routes.column(1).writeInt(string(lineNumber));
+                routes.column(2).writeInt(string(direction));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public Writer addRouteStop(long routeId, long stopId, int sequence, Integer offsetMinutes) {
+            routeStops.row();
+            try {
+                routeStops.column(0).writeLong(routeId);
+                routeStops.column(1).writeLong(stopId);
+                routeStops.column(2).writeInt(sequence);
+                routeStops.column(3).writeInt(offsetMinutes != null ? offsetMinutes : 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public Writer addTrip(long tripId, long routeId, String calendarType, LocalTime startTime) {
+            trips.row();
+            try {
+                trips.column(0).writeLong(tripId);
+                trips.column(1).writeLong(routeId);
+                trips.column(2).writeInt(string(calendarType));
+                trips.column(3).writeInt(startTime != null ? Timetable.toMinute(startTime) : NONE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public Writer addDeparture(long tripId, long stopId, LocalTime departureTime) {
+            departures.row();
+            try {
+                departures.column(0).writeLong(tripId);
+                departures.column(1).writeLong(stopId);
+                departures.column(2).writeInt(Timetable.toMinute(departureTime));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public Writer addServiceCalendar(String calendarType, LocalDate startDate, LocalDate endDate, int weekdays) {
+            calendars.row();
+            try {
+                calendars.column(0).writeInt(string(calendarType));
+                calendars.column(1).writeInt(epochDay(startDate));
+                calendars.column(2).writeInt(epochDay(endDate));
+                calendars.column(3).writeInt(weekdays);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public Writer addCalendarException(String calendarType, LocalDate date, boolean added) {
+            calendarExceptions.row();
+            try {
+                calendarExceptions.column(0).writeInt(string(calendarType));
+                calendarExceptions.column(1).writeInt(epochDay(date));
+                calendarExceptions.column(2).writeByte(added ? 1 : 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        /** Writes to a temporary file next to {@code file} and moves it in place, so readers never map a partial file. */
+        public Info write(Path file) throws IOException {
+            long createdAt = System.currentTimeMillis();
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeLong(createdAt);
+                    out.writeInt(strings.size());
+                    for (Section section : List.of(stops, routes, routeStops, trips, departures, calendars, calendarExceptions)) {
+                        out.writeInt(section.rows);
+                    }
+                    writeStrings(out);
+                    for (Section section : List.of(stops, routes, routeStops, trips, departures, calendars, calendarExceptions)) {
+                        section.writeTo(out);
+                    }
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            return new Info(createdAt, stops.rows, routes.rows, routeStops.rows, trips.rows, departures.rows,
+                    calendars.rows, calendarExceptions.rows);
+        }
+
+        private void writeStrings(DataOutputStream out) throws IOException {
+            List<byte[]> encoded = strings.stream().map(s -> s.getBytes(StandardCharsets.UTF_8)).toList();
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : encoded) out.write(bytes);
+        }
+
+        private int string(String value) {
+            if (value == null) return NONE;
+            return stringIndex.computeIfAbsent(value, v -> {
+                strings.add(v);
+                return strings.size() - 1;
+            });
+        }
+
+        private static int epochDay(LocalDate date) {
+            return date != null ? Math.toIntExact(date.toEpochDay()) : NO_DATE;
+        }
+    }
+
+    // One growing buffer per column; the columns are concatenated when the file is written
+    private static final class Section {
+
+        private final ByteArrayOutputStream[] bytes;
+        private final DataOutputStream[] columns;
+        private int rows;
+
+        Section(int columnCount) {
+            bytes = new ByteArrayOutputStream[columnCount];
+            columns = new DataOutputStream[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                bytes[c] = new ByteArrayOutputStream();
+                columns[c] = new DataOutputStream(bytes[c]);
+            }
+        }
+
+        void row() { rows++; }
+
+        DataOutputStream column(int column) { return columns[column]; }
+
+        void writeTo(OutputStream out) throws IOException {
+            for (ByteArrayOutputStream column : bytes) column.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.leszek.busscheduler.timetable;
+
+/**
+ * Trips of one {@code Route} that visit exactly the same stops in the same order.
+ * <p>
+ * Times are minutes of day stored trip-major ({@code times[trip * stopCount + position]}).
+ * When every trip runs the same offsets from its first stop, only one start per trip and a
+ * shared offset row are kept instead. Trips are sorted by departure and never overtake each other, so the times at every
+ * position are non-decreasing and can be binary searched.
+ */
+public final class TripPattern {
+
+    private final int index;
+    private final long routeId;
+    private final String lineNumber;
+    private final String direction;
+    private final int[] stops;
+    private final long[] tripIds;
+    private final int[] tripCalendars;
+    private final int[] times;
+    private final int[] starts;
+    private final int[] offsets;
+
+    TripPattern(int index, long routeId, String lineNumber, String direction,
+                int[] stops, long[] tripIds, int[] tripCalendars, int[] times) {
+        this(index, routeId, lineNumber, direction, stops, tripIds, tripCalendars, times, null, null);
+    }
+
+    /** Compact pattern: {@code time(trip, position) = starts[trip] + offsets[position]}. */
+    TripPattern(int index, long routeId, String lineNumber, String direction,
+                int[] stops, long[] tripIds, int[] tripCalendars, int[] starts, int[] offsets) {
+        this(index, routeId, lineNumber, direction, stops, tripIds, tripCalendars, null, starts, offsets);
+    }
+
+    private TripPattern(int index, long routeId, String lineNumber, String direction,
+                        int[] stops, long[] tripIds, int[] tripCalendars, int[] times, int[] starts, int[] offsets) {
+        this.index = index;
+        this.routeId = routeId;
+        this.lineNumber = lineNumber;
+        this.direction = direction;
+        this.stops = stops;
+        this.tripIds = tripIds;
+        this.tripCalendars = tripCalendars;
+        this.times = times;
+        this.starts = starts;
+        this.offsets = offsets;
+    }
+
+    public int index() { return index; }
+
+    public long routeId() { return routeId; }
+    public String lineNumber() { return lineNumber; }
+    public String direction() { return direction; }
+
+    public int stopCount() { return stops.length; }
+    public int stop(int position) { return stops[position]; }
+
+    /** True when the pattern keeps one shared offset row instead of a full time table. */
+    public boolean isCompact() { return times == null; }
+
+    public int tripCount() { return tripIds.length; }
+    public long tripId(int trip) { return tripIds[trip]; }
+    public int calendar(int trip) { return tripCalendars[trip]; }
+
+    public int time(int trip, int position) {
+        return times != null ? times[trip * stops.length + position] : starts[trip] + offsets[position];
+    }
+
+    /** Index of the first trip leaving {@code position} at or after {@code minute}, or {@link #tripCount()}. */
+    public int firstTripAtOrAfter(int position, int minute) {
+        int lo = 0, hi = tripIds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid, position) < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Index of the last trip passing {@code position} at or before {@code minute}, or -1. */
+    public int lastTripAtOrBefore(int position, int minute) {
+        return firstTripAtOrAfter(position, minute + 1) - 1;
+    }
+}
@@ -0,0 +1,13 @@
+-- Runs after Hibernate's ddl-auto (spring.jpa.defer-datasource-initialization); every statement is idempotent.
+
+CREATE EXTENSION IF NOT EXISTS postgis;
+
+-- Geography point derived from latitude/longitude, so every insert and update keeps it in sync
+ALTER TABLE bus_stops ADD COLUMN IF NOT EXISTS location geography(Point, 4326)
+    GENERATED ALWAYS AS (ST_SetSRID(ST_MakePoint(longitude, latitude), 4326)::geography) STORED;
+
+-- Serves ST_DWithin range filters and <-> nearest-neighbour ordering
+CREATE INDEX IF NOT EXISTS idx_bus_stop_location ON bus_stops USING GIST (location);
+
+-- The former B-tree on (latitude, longitude) cannot serve 2-D range or nearest queries
+DROP INDEX IF EXISTS idx_bus_stop_lat_lon;
@@ -0,0 +1,95 @@
+package com.leszek.busscheduler.board;
+
+import com.leszek.busscheduler.dto.StopBoardDiffDTO;
+import com.leszek.busscheduler.dto.StopDepartureDTO;
+import com.leszek.busscheduler.service.DepartureBoardService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DepartureBoardStreamsTest {
+
+    @Mock
+    private DepartureBoardService departureBoardService;
+
+    @Mock
+    private DepartureBoardTicker departureBoardTicker;
+
+    @InjectMocks
+    private DepartureBoardStreams streams;
+
+    @Test
+    @DisplayName("Should recompute a shared board once per tick however many clients watch it")
+    void shouldRecomputeSharedBoardOncePerTick() {
+        when(departureBoardService.nextDepartures(eq(1L), any(), any(), eq(2)))
+                .thenReturn(List.of(departure("1", 8, 0), departure("2", 8, 5)));
+
+        streams.open(1L, 2);
+        streams.open(1L, 2);
+        streams.open(1L, 2);
+        streams.refresh();
+
+        assertThat(streams.subscriberCount()).isEqualTo(3);
+        // One load when the group was created, one for the tick
+        verify(departureBoardService, times(2)).nextDepartures(eq(1L), any(), any(), eq(2));
+    }
+
+    @Test
+    @DisplayName("Should clamp the board length of a stream")
+    void shouldClampLimit() {
+        when(departureBoardService.nextDepartures(eq(1L), any(), any(), eq(DepartureBoardService.MAX_LIMIT)))
+                .thenReturn(List.of(departure("1", 8, 0)));
+
+        streams.open(1L, 1_000_000);
+
+        verify(departureBoardService).nextDepartures(eq(1L), any(), any(), eq(DepartureBoardService.MAX_LIMIT));
+    }
+
+    @Test
+    @DisplayName("Should describe a sliding board as departed head plus new tail")
+    void shouldDiffSlidingBoard() {
+        StopDepartureDTO a = departure("1", 8, 0);
+        StopDepartureDTO b = departure("2", 8, 5);
+        StopDepartureDTO c = departure("1", 8, 20);
+
+        StopBoardDiffDTO diff = DepartureBoardStreams.diff(List.of(a, b), List.of(b, c));
+
+        assertThat(diff.removed()).isEqualTo(1);
+        assertThat(diff.added()).containsExactly(c);
+    }
+
+    @Test
+    @DisplayName("Should replace the whole board when it changed in the middle")
+    void shouldReplaceBoardChangedInTheMiddle() {
+        StopDepartureDTO a = departure("1", 8, 0);
+        StopDepartureDTO b = departure("2", 8, 5);
+        StopDepartureDTO moved = departure("2", 8, 7);
+
+        StopBoardDiffDTO diff = DepartureBoardStreams.diff(List.of(a, b), List.of(a, moved));
+
+        assertThat(diff.removed()).isEqualTo(2);
+        assertThat(diff.added()).containsExactly(a, moved);
+    }
+
+    private static StopDepartureDTO departure(String line, int hour, int minute) {
+        return StopDepartureDTO.builder()
+                .lineName(line)
+                .departureTime(LocalTime.of(hour, minute))
+                .direction("Centrum")
+                .build();
+    }
+}
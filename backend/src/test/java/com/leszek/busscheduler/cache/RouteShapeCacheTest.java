@@ -0,0 +1,27 @@
+package com.leszek.busscheduler.cache;
+
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteShapeCacheTest {
+
+    @Test
+    @DisplayName("Should not store a shape loaded while a route or stop edit committed")
+    void shouldSkipStalePut() {
+        RouteShapeCache cache = new RouteShapeCache();
+        RouteShapeCache.Entry stale = new RouteShapeCache.Entry(null, "DERIVED");
+
+        RouteShapeCache.Entry served = cache.get(new RouteShapeCache.Key(10L, cache.generation()), () -> {
+            cache.onTimetableChanged(new TimetableChangedEvent("route 10 updated"));
+            return stale;
+        });
+
+        assertThat(served).isSameAs(stale);
+        assertThat(cache.size()).isZero();
+        cache.get(new RouteShapeCache.Key(10L, cache.generation()), () -> new RouteShapeCache.Entry(null, "DERIVED"));
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
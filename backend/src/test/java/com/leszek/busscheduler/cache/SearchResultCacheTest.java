@@ -0,0 +1,131 @@
+package com.leszek.busscheduler.cache;
+
+import com.leszek.busscheduler.config.SearchCacheProperties;
+import com.leszek.busscheduler.dto.ConnectionDTO;
+import com.leszek.busscheduler.dto.SearchCacheStatsDTO;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchResultCacheTest {
+
+    private static final List<ConnectionDTO> RESULT = List.of(
+            new ConnectionDTO("10", LocalTime.of(8, 0), LocalTime.of(8, 15), 15, "B"));
+
+    private SearchCacheProperties properties;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SearchCacheProperties();
+        properties.setMaxSize(2);
+        cache = new SearchResultCache(properties);
+    }
+
+    private static SearchResultCache.Key key(long fromId) {
+        return new SearchResultCache.Key(fromId, 2L, 480, "WORKDAYS", false, 1);
+    }
+
+    @Test
+    @DisplayName("Should compute once and serve repeated requests from the cache")
+    void shouldCountHitsAndMisses() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(key(1L), () -> { loads.incrementAndGet(); return RESULT; });
+        List<ConnectionDTO> second = cache.get(key(1L), () -> { loads.incrementAndGet(); return RESULT; });
+
+        assertThat(second).isEqualTo(RESULT);
+        assertThat(loads).hasValue(1);
+        SearchCacheStatsDTO stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry when full")
+    void shouldEvictLeastRecentlyUsed() {
+        cache.get(key(1L), () -> RESULT);
+        cache.get(key(2L), () -> RESULT);
+        cache.get(key(1L), () -> RESULT);
+        cache.get(key(3L), () -> RESULT);
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(key(1L), () -> { loads.incrementAndGet(); return RESULT; });
+        cache.get(key(2L), () -> { loads.incrementAndGet(); return RESULT; });
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().evictions()).isEqualTo(2);
+        assertThat(cache.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should drop every entry when the timetable changes")
+    void shouldInvalidateOnTimetableChange() {
+        cache.get(key(1L), () -> RESULT);
+
+        cache.onTimetableChanged(new TimetableChangedEvent("test"));
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(key(1L), () -> { loads.incrementAndGet(); return RESULT; });
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().invalidations()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should coalesce identical concurrent requests into one computation")
+    void shouldCoalesceConcurrentRequests() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<List<ConnectionDTO>> first = CompletableFuture.supplyAsync(() -> cache.get(key(1L), () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RESULT;
+        }));
+        loading.await();
+        CompletableFuture<List<ConnectionDTO>> second = CompletableFuture.supplyAsync(
+                () -> cache.get(key(1L), () -> { loads.incrementAndGet(); return RESULT; }));
+        while (cache.stats().coalesced() == 0) Thread.onSpinWait();
+        release.countDown();
+
+        assertThat(first.get()).isEqualTo(RESULT);
+        assertThat(second.get()).isEqualTo(RESULT);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should not cache failures")
+    void shouldNotCacheFailures() {
+        assertThatThrownBy(() -> cache.get(key(1L), () -> { throw new IllegalStateException("boom"); }))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get(key(1L), () -> RESULT)).isEqualTo(RESULT);
+        assertThat(cache.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should release the entry when the loader throws an Error")
+    void shouldNotCacheErrors() {
+        assertThatThrownBy(() -> cache.get(key(1L), () -> { throw new StackOverflowError(); }))
+                .isInstanceOf(StackOverflowError.class);
+
+        assertThat(cache.get(key(1L), () -> RESULT)).isEqualTo(RESULT);
+        assertThat(cache.stats().size()).isEqualTo(1);
+    }
+}
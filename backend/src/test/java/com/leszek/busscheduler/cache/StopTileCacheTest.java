@@ -0,0 +1,28 @@
+package com.leszek.busscheduler.cache;
+
+import com.leszek.busscheduler.config.TileProperties;
+import com.leszek.busscheduler.timetable.TimetableReplacedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StopTileCacheTest {
+
+    @Test
+    @DisplayName("Should not store a tile encoded from a timetable replaced while it was encoding")
+    void shouldSkipStalePut() {
+        StopTileCache cache = new StopTileCache(new TileProperties());
+        byte[] stale = {1};
+
+        byte[] served = cache.get(new StopTileCache.Key(12, 1, 1, 1), () -> {
+            cache.onTimetableReplaced(new TimetableReplacedEvent(2));
+            return stale;
+        });
+
+        assertThat(served).isSameAs(stale);
+        assertThat(cache.size()).isZero();
+        cache.get(new StopTileCache.Key(12, 1, 1, 2), () -> new byte[]{2});
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,49 @@
+package com.leszek.busscheduler.controller;
+
+import com.leszek.busscheduler.config.SecurityConfig;
+import com.leszek.busscheduler.security.CustomUserDetailsService;
+import com.leszek.busscheduler.security.JwtService;
+import com.leszek.busscheduler.service.BusSearchService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(BusSearchController.class)
+@Import(SecurityConfig.class)
+class BusSearchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BusSearchService busSearchService;
+
+    @MockitoBean
+    private CustomUserDetailsService customUserDetailsService;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @Test
+    @DisplayName("POST /api/v1/search/batch - Should reject a batch larger than MAX_BATCH_SIZE")
+    void shouldRejectOversizedBatch() throws Exception {
+        String item = "{\"fromId\":1,\"toId\":2,\"time\":\"08:00:00\"}";
+        String body = "[" + String.join(",", Collections.nCopies(BusSearchService.MAX_BATCH_SIZE + 1, item)) + "]";
+
+        mockMvc.perform(post("/api/v1/search/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(busSearchService);
+    }
+}
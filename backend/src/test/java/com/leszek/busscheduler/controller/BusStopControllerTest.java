@@ -1,10 +1,14 @@
 package com.leszek.busscheduler.controller;
 
 import com.leszek.busscheduler.config.SecurityConfig;
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.domain.BusStop;
 import com.leszek.busscheduler.repository.BusStopRepository;
 import com.leszek.busscheduler.security.CustomUserDetailsService;
 import com.leszek.busscheduler.security.JwtService;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableBuilder;
+import com.leszek.busscheduler.timetable.TimetableProvider;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,10 +19,12 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,23 +48,118 @@ class BusStopControllerTest {
     @MockitoBean
     private com.leszek.busscheduler.repository.RouteRepository routeRepository;
 
+    @MockitoBean
+    private TimetableProvider timetableProvider;
+
+    @MockitoBean
+    private TimetableProperties timetableProperties;
+
     @Test
     @DisplayName("GET /api/v1/busstops/nearby - Should return nearby bus stops")
     void shouldReturnNearbyBusStops() throws Exception {
-        Object[] row = new Object[]{1L, "Stop 1", "City 1", 53.0, 14.0, "Direction 1", "Direction A;Direction B"};
-        List<Object[]> results = new java.util.ArrayList<>();
-        results.add(row);
-        when(busStopRepository.findWithinBoundingBoxWithDirectionsNative(any(), any(), any(), any()))
-                .thenReturn(results);
+        when(timetableProperties.isTimetableSearch()).thenReturn(true);
+        when(timetableProvider.get()).thenReturn(network());
 
         mockMvc.perform(get("/api/v1/busstops/nearby")
                         .param("lat", "53.0")
                         .param("lon", "14.0"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$.length()").value(3))
                 .andExpect(jsonPath("$[0].name").value("Stop 1"))
                 .andExpect(jsonPath("$[0].directions.length()").value(2))
-                .andExpect(jsonPath("$[0].directions[0]").value("Direction A"));
+                .andExpect(jsonPath("$[0].directions[0]").value("Direction A"))
+                .andExpect(jsonPath("$[0].areaId").value(1))
+                .andExpect(jsonPath("$[2].name").value("Far Stop"));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/busstops/nearby - Should honour k and radiusMeters")
+    void shouldLimitNearbyBusStops() throws Exception {
+        when(timetableProperties.isTimetableSearch()).thenReturn(true);
+        when(timetableProvider.get()).thenReturn(network());
+
+        mockMvc.perform(get("/api/v1/busstops/nearby")
+                        .param("lat", "53.0")
+                        .param("lon", "14.0")
+                        .param("k", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(get("/api/v1/busstops/nearby")
+                        .param("lat", "53.0")
+                        .param("lon", "14.0")
+                        .param("radiusMeters", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].name").value("Stop 2"));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/busstops/nearby - Should use the PostGIS KNN query on the JPA engine")
+    void shouldReturnNearbyBusStopsFromDatabase() throws Exception {
+        BusStopRepository.NearestBusStop row = mock(BusStopRepository.NearestBusStop.class);
+        when(row.getId()).thenReturn(1L);
+        when(row.getName()).thenReturn("Stop 1");
+        when(row.getDirection()).thenReturn("Direction 1");
+        when(row.getRouteDirections()).thenReturn("Direction B;Direction A");
+        when(row.getDistanceMeters()).thenReturn(250.0);
+        when(busStopRepository.findNearestWithin(53.0, 14.0, 500.0, 2)).thenReturn(List.of(row));
+        when(timetableProvider.get()).thenReturn(network());
+
+        mockMvc.perform(get("/api/v1/busstops/nearby")
+                        .param("lat", "53.0")
+                        .param("lon", "14.0")
+                        .param("k", "2")
+                        .param("radiusMeters", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].directions[0]").value("Direction A"))
+                .andExpect(jsonPath("$[0].distance").value(0.25))
+                .andExpect(jsonPath("$[0].areaId").value(1));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/busstops/viewport - Should cluster at low zoom and list stops at high zoom")
+    void shouldReturnViewportClusters() throws Exception {
+        when(timetableProvider.get()).thenReturn(network());
+
+        mockMvc.perform(get("/api/v1/busstops/viewport")
+                        .param("bbox", "13.9,52.9,14.1,53.6")
+                        .param("zoom", "8"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Far Stop"))
+                .andExpect(jsonPath("$[1].count").value(2))
+                .andExpect(jsonPath("$[1].id").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/busstops/viewport")
+                        .param("bbox", "13.99,52.99,14.01,53.01")
+                        .param("zoom", "16"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].count").value(1));
+
+        mockMvc.perform(get("/api/v1/busstops/viewport")
+                        .param("bbox", "14.1,52.9,13.9")
+                        .param("zoom", "8"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Stop 1 served by two routes, Stop 2 ~550 m north, Far Stop ~55 km north
+    private static Timetable network() {
+        return new TimetableBuilder()
+                .addStop(1L, "Stop 1", "City 1", 53.0, 14.0, "Direction 1")
+                .addStop(2L, "Stop 2", "City 1", 53.005, 14.0, null)
+                .addStop(3L, "Far Stop", "City 2", 53.5, 14.0, null)
+                .addRoute(10L, "1", "Direction A")
+                .addRoute(20L, "2", "Direction B")
+                .addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 5))
+                .addTrip(200L, 20L, "WORKDAYS")
+                .addDeparture(200L, 2L, LocalTime.of(9, 0))
+                .addDeparture(200L, 1L, LocalTime.of(9, 5))
+                .build(1);
     }
 
     @Test
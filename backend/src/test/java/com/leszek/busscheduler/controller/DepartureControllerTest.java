@@ -0,0 +1,107 @@
+package com.leszek.busscheduler.controller;
+
+import com.leszek.busscheduler.board.DepartureBoardStreams;
+import com.leszek.busscheduler.board.DepartureBoardTicker;
+import com.leszek.busscheduler.config.SecurityConfig;
+import com.leszek.busscheduler.repository.BusStopRepository;
+import com.leszek.busscheduler.repository.DepartureRepository;
+import com.leszek.busscheduler.repository.TripRepository;
+import com.leszek.busscheduler.security.CustomUserDetailsService;
+import com.leszek.busscheduler.security.JwtService;
+import com.leszek.busscheduler.service.DepartureBoardService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DepartureController.class)
+@Import(SecurityConfig.class)
+class DepartureControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DepartureRepository departureRepository;
+
+    @MockitoBean
+    private TripRepository tripRepository;
+
+    @MockitoBean
+    private BusStopRepository busStopRepository;
+
+    @MockitoBean
+    private DepartureBoardService departureBoardService;
+
+    @MockitoBean
+    private DepartureBoardTicker departureBoardTicker;
+
+    @MockitoBean
+    private DepartureBoardStreams departureBoardStreams;
+
+    @MockitoBean
+    private CustomUserDetailsService customUserDetailsService;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @Test
+    @DisplayName("GET /api/v1/departures/stop/{id} - Should reject a limit outside 1..MAX_LIMIT")
+    void shouldRejectOutOfRangeLimit() throws Exception {
+        mockMvc.perform(get("/api/v1/departures/stop/1").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/departures/stop/1")
+                        .param("limit", String.valueOf(DepartureBoardService.MAX_LIMIT + 1)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/departures/stop/1/stream").param("limit", "-5"))
+                .andExpect(status().isBadRequest());
+        MvcResult boards = mockMvc.perform(get("/api/v1/departures/boards").param("stopIds", "1,2").param("limit", "100000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(boards))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(departureBoardService, departureBoardStreams);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/departures/boards - Should reject an empty stop list or one over MAX_BOARD_STOPS")
+    void shouldRejectOutOfRangeStopIds() throws Exception {
+        String tooMany = String.join(",", Collections.nCopies(DepartureBoardService.MAX_BOARD_STOPS + 1, "1"));
+        for (String stopIds : List.of("", tooMany)) {
+            MvcResult boards = mockMvc.perform(get("/api/v1/departures/boards").param("stopIds", stopIds))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(boards))
+                    .andExpect(status().isBadRequest());
+        }
+
+        verifyNoInteractions(departureBoardService);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/departures/stop/{id} - Should pass a limit within range to the board service")
+    void shouldAcceptLimitInRange() throws Exception {
+        when(departureBoardService.nextDepartures(eq(1L), any(), any(), anyInt())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/departures/stop/1").param("limit", String.valueOf(DepartureBoardService.MAX_LIMIT)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+}
@@ -0,0 +1,57 @@
+package com.leszek.busscheduler.repository;
+
+import com.leszek.busscheduler.AbstractIntegrationTest;
+import com.leszek.busscheduler.domain.BusStop;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Runs the PostGIS KNN queries against a real database; stops sit in New Zealand, far from the demo data
+@Transactional
+class BusStopRepositoryIT extends AbstractIntegrationTest {
+
+    private static final double LAT = -45.0;
+    private static final double LON = 170.0;
+
+    @Autowired
+    private BusStopRepository busStopRepository;
+
+    @BeforeEach
+    void setUp() {
+        busStopRepository.save(stop("Near", -45.001, 170.0));       // ~111 m
+        busStopRepository.save(stop("Middle", -45.01, 170.0));      // ~1.1 km
+        busStopRepository.save(stop("Far", -45.5, 170.0));          // ~55 km
+        busStopRepository.save(stop("No coordinates", null, null));
+    }
+
+    private static BusStop stop(String name, Double latitude, Double longitude) {
+        return BusStop.builder().name(name).city("KNN").latitude(latitude).longitude(longitude).build();
+    }
+
+    @Test
+    @DisplayName("Should return the k nearest stops with coordinates, nearest first")
+    void shouldFindNearest() {
+        List<BusStopRepository.NearestBusStop> nearest = busStopRepository.findNearest(LAT, LON, 3);
+
+        assertThat(nearest).extracting(BusStopRepository.NearestBusStop::getName)
+                .containsExactly("Near", "Middle", "Far");
+        assertThat(nearest.get(0).getDistanceMeters()).isCloseTo(111.0, within(2.0));
+        assertThat(nearest.get(0).getRouteDirections()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep only stops within the radius")
+    void shouldFindNearestWithinRadius() {
+        assertThat(busStopRepository.findNearestWithin(LAT, LON, 2_000, 10))
+                .extracting(BusStopRepository.NearestBusStop::getName)
+                .containsExactly("Near", "Middle");
+        assertThat(busStopRepository.findNearestWithin(LAT, LON, 2_000, 1)).hasSize(1);
+    }
+}
@@ -1,22 +1,32 @@
 package com.leszek.busscheduler.service.impl;
 
+import com.leszek.busscheduler.cache.SearchResultCache;
+import com.leszek.busscheduler.config.SearchCacheProperties;
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.domain.BusStop;
 import com.leszek.busscheduler.domain.Departure;
+import com.leszek.busscheduler.dto.BatchSearchResult;
 import com.leszek.busscheduler.dto.ConnectionDTO;
 import com.leszek.busscheduler.dto.SearchRequest;
 import com.leszek.busscheduler.exception.StopNotFoundException;
 import com.leszek.busscheduler.repository.BusStopRepository;
 import com.leszek.busscheduler.repository.DepartureRepository;
 import com.leszek.busscheduler.repository.RouteRepository;
+import com.leszek.busscheduler.timetable.ServiceCalendarResolver;
+import com.leszek.busscheduler.timetable.TimetableBuilder;
+import com.leszek.busscheduler.timetable.TimetableProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,6 +44,18 @@ class BusSearchServiceImplTest {
     @Mock
     private DepartureRepository departureRepository;
 
+    @Mock
+    private TimetableProvider timetableProvider;
+
+    @Mock
+    private ServiceCalendarResolver serviceCalendarResolver;
+
+    @Spy
+    private TimetableProperties timetableProperties = new TimetableProperties();
+
+    @Spy
+    private SearchResultCache searchResultCache = new SearchResultCache(new SearchCacheProperties());
+
     @InjectMocks
     private BusSearchServiceImpl service;
 
@@ -44,6 +66,9 @@ class BusSearchServiceImplTest {
     void setUp() {
         stopA = BusStop.builder().id(1L).name("A").build();
         stopB = BusStop.builder().id(2L).name("B").build();
+        // The database engine resolves running calendars without the timetable
+        lenient().when(timetableProvider.get()).thenReturn(new TimetableBuilder().build(0));
+        lenient().when(serviceCalendarResolver.calendarTypes(any())).thenReturn(List.of());
     }
 
     // Helper implementation of the projection interface
@@ -176,4 +201,72 @@ class BusSearchServiceImplTest {
         verify(busStopRepository).findById(999L);
         verifyNoInteractions(routeRepository, departureRepository);
     }
+
+    @Test
+    void searchBatch_reportsEachRequestSeparately() {
+        // given
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", null, null, null, null)
+                .addStop(2L, "B", null, null, null, null)
+                .addRoute(10L, "10", "B")
+                .addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 15));
+        when(timetableProvider.get()).thenReturn(builder.build(1));
+        timetableProperties.setSearchEngine(TimetableProperties.SearchEngine.TIMETABLE);
+        java.time.LocalDate monday = java.time.LocalDate.of(2025, 1, 6);
+        List<SearchRequest> requests = List.of(
+                new SearchRequest(1L, 2L, LocalTime.of(7, 0), monday),
+                new SearchRequest(999L, 2L, LocalTime.of(7, 0), monday));
+
+        // when
+        List<BatchSearchResult> results = new CopyOnWriteArrayList<>();
+        service.searchBatch(requests, results::add);
+
+        // then
+        assertEquals(2, results.size());
+        results.sort(Comparator.comparingInt(BatchSearchResult::index));
+        assertEquals(1, results.get(0).connections().size());
+        assertEquals(LocalTime.of(8, 15), results.get(0).connections().get(0).arrivalTime());
+        assertNull(results.get(0).error());
+        assertNull(results.get(1).connections());
+        assertEquals("Stop not found ID: 999", results.get(1).error());
+        // One timetable copy answers the whole batch
+        verify(timetableProvider, times(1)).get();
+        verifyNoInteractions(busStopRepository, routeRepository, departureRepository);
+    }
+
+    @Test
+    void searchBatch_stopsOnSinkFailure() {
+        // given
+        when(timetableProvider.get()).thenReturn(new TimetableBuilder().build(1));
+        timetableProperties.setSearchEngine(TimetableProperties.SearchEngine.TIMETABLE);
+        List<SearchRequest> requests = java.util.Collections.nCopies(1_000,
+                new SearchRequest(1L, 2L, LocalTime.of(7, 0), null));
+        java.util.concurrent.atomic.AtomicInteger written = new java.util.concurrent.atomic.AtomicInteger();
+
+        // when / then: the client went away, so the rest of the batch is dropped
+        assertThrows(java.io.UncheckedIOException.class, () -> service.searchBatch(requests, result -> {
+            written.incrementAndGet();
+            throw new java.io.UncheckedIOException(new java.io.IOException("Broken pipe"));
+        }));
+        assertTrue(written.get() < requests.size());
+    }
+
+    @Test
+    void searchBatch_namesErrorsWithoutMessage() {
+        // given
+        when(timetableProvider.get()).thenReturn(new TimetableBuilder().build(1));
+        timetableProperties.setSearchEngine(TimetableProperties.SearchEngine.TIMETABLE);
+        doThrow(new IllegalStateException()).when(searchResultCache).get(any(), any());
+        List<SearchRequest> requests = List.of(new SearchRequest(1L, 2L, LocalTime.of(7, 0), null));
+
+        // when
+        List<BatchSearchResult> results = new CopyOnWriteArrayList<>();
+        service.searchBatch(requests, results::add);
+
+        // then
+        assertEquals(1, results.size());
+        assertEquals("IllegalStateException", results.get(0).error());
+    }
 }
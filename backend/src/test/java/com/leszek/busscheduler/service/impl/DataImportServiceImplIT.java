@@ -0,0 +1,78 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.AbstractIntegrationTest;
+import com.leszek.busscheduler.dto.ImportBusLineDTO;
+import com.leszek.busscheduler.dto.ImportRouteDTO;
+import com.leszek.busscheduler.dto.ImportRouteStopDTO;
+import com.leszek.busscheduler.dto.ImportTripDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the JDBC batch import against a real database; the line number keeps clear of the demo data
+@Transactional
+class DataImportServiceImplIT extends AbstractIntegrationTest {
+
+    private static final String LINE = "IT-IMPORT";
+    // More than one JDBC batch of trips, so ids are reserved and paired across chunks
+    private static final int TRIPS = 1_001;
+
+    @Autowired
+    private DataImportServiceImpl dataImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should write trips and departures with valid references, ids in input order")
+    void shouldImportTripsAndDepartures() {
+        // Start times deliberately out of order: only the id order can tie each trip to its departures
+        List<String> startTimes = new ArrayList<>();
+        for (int i = 0; i < TRIPS; i++) {
+            startTimes.add(LocalTime.MIN.plusMinutes(i * 7L % 1_380).format(DateTimeFormatter.ofPattern("H:mm")));
+        }
+        ImportRouteDTO route = ImportRouteDTO.builder()
+                .variantName("IT A-B")
+                .direction("B")
+                .stops(List.of(
+                        ImportRouteStopDTO.builder().stopName("IT Stop A").city("IT City").sequence(1).timeOffset(0).build(),
+                        ImportRouteStopDTO.builder().stopName("IT Stop B").city("IT City").sequence(2).timeOffset(20).build()))
+                .trips(List.of(ImportTripDTO.builder().calendarType("WORKDAYS").startTimes(startTimes).build()))
+                .build();
+
+        dataImportService.importBusLine(ImportBusLineDTO.builder()
+                .lineNumber(LINE).operator("IT").routes(List.of(route)).build());
+
+        Long routeId = jdbcTemplate.queryForObject(
+                "SELECT r.id FROM routes r JOIN bus_lines l ON l.id = r.bus_line_id WHERE l.line_number = ?",
+                Long.class, LINE);
+        assertThat(count("SELECT count(*) FROM trips WHERE route_id = ?", routeId)).isEqualTo(TRIPS);
+        assertThat(count("SELECT count(*) FROM departures d JOIN trips t ON t.id = d.trip_id WHERE t.route_id = ?",
+                routeId)).isEqualTo(2L * TRIPS);
+        // Every departure sits at a stop of its trip's route
+        assertThat(count("SELECT count(*) FROM departures d JOIN trips t ON t.id = d.trip_id "
+                + "JOIN route_stops rs ON rs.route_id = t.route_id AND rs.bus_stop_id = d.bus_stop_id "
+                + "WHERE t.route_id = ?", routeId)).isEqualTo(2L * TRIPS);
+
+        List<LocalTime> firstDepartures = jdbcTemplate.queryForList(
+                "SELECT min(d.departure_time) FROM trips t JOIN departures d ON d.trip_id = t.id "
+                        + "WHERE t.route_id = ? GROUP BY t.id ORDER BY t.id", LocalTime.class, routeId);
+        List<LocalTime> expected = startTimes.stream()
+                .map(time -> LocalTime.parse(time, DateTimeFormatter.ofPattern("H:mm")))
+                .toList();
+        assertThat(firstDepartures).containsExactlyElementsOf(expected);
+    }
+
+    private long count(String sql, Long routeId) {
+        return jdbcTemplate.queryForObject(sql, Long.class, routeId);
+    }
+}
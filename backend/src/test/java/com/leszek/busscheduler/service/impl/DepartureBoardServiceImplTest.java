@@ -0,0 +1,94 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import com.leszek.busscheduler.dto.DepartureBoardsDTO;
+import com.leszek.busscheduler.exception.StopNotFoundException;
+import com.leszek.busscheduler.repository.DepartureRepository;
+import com.leszek.busscheduler.timetable.TimetableBuilder;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DepartureBoardServiceImplTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+
+    @Mock
+    private DepartureRepository departureRepository;
+
+    @Mock
+    private TimetableProvider timetableProvider;
+
+    @Spy
+    private TimetableProperties timetableProperties = new TimetableProperties();
+
+    @InjectMocks
+    private DepartureBoardServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        timetableProperties.setSearchEngine(TimetableProperties.SearchEngine.TIMETABLE);
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", "X", null, null, null)
+                .addStop(2L, "B", "X", null, null, null)
+                .addRoute(10L, "1", "B")
+                .addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 10))
+                .addTrip(101L, 10L, "WORKDAYS")
+                .addDeparture(101L, 1L, LocalTime.of(8, 30))
+                .addDeparture(101L, 2L, LocalTime.of(8, 40));
+        when(timetableProvider.get()).thenReturn(builder.build(1));
+    }
+
+    @Test
+    @DisplayName("Should compute every board against one snapshot without touching the database")
+    void shouldComputeBoardsFromOneSnapshot() {
+        DepartureBoardsDTO boards = service.boards(List.of(1L, 2L), LocalTime.of(8, 5), MONDAY, 10);
+
+        assertThat(boards.boards()).hasSize(2);
+        assertThat(boards.boards().get(0).departures()).extracting(d -> d.getDepartureTime())
+                .containsExactly(LocalTime.of(8, 30));
+        assertThat(boards.boards().get(1).departures()).extracting(d -> d.getDepartureTime())
+                .containsExactly(LocalTime.of(8, 10), LocalTime.of(8, 40));
+        verify(timetableProvider, times(1)).get();
+        verifyNoInteractions(departureRepository);
+    }
+
+    @Test
+    @DisplayName("Should keep the version while the boards stay the same and change it when they do not")
+    void shouldVersionBoardsByContent() {
+        String at0801 = service.boards(List.of(1L), LocalTime.of(8, 1), MONDAY, 10).version();
+        String at0815 = service.boards(List.of(1L), LocalTime.of(8, 15), MONDAY, 10).version();
+        String at0831 = service.boards(List.of(1L), LocalTime.of(8, 31), MONDAY, 10).version();
+
+        assertThat(at0801).matches("[0-9a-f]{32}");
+        assertThat(at0815).isEqualTo(at0801);
+        assertThat(at0831).isNotEqualTo(at0815);
+    }
+
+    @Test
+    @DisplayName("Should throw when a stop is unknown")
+    void shouldThrowForUnknownStop() {
+        assertThatThrownBy(() -> service.boards(List.of(999L), LocalTime.of(8, 0), MONDAY, 10))
+                .isInstanceOf(StopNotFoundException.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import com.leszek.busscheduler.dto.ReachabilityRequest;
+import com.leszek.busscheduler.dto.ReachableStopDTO;
+import com.leszek.busscheduler.exception.StopNotFoundException;
+import com.leszek.busscheduler.timetable.TimetableBuilder;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReachabilityServiceImplTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+
+    @Mock
+    private TimetableProvider timetableProvider;
+
+    @Spy
+    private TimetableProperties timetableProperties = new TimetableProperties();
+
+    @InjectMocks
+    private ReachabilityServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        // A -> B -> C every workday at 08:00, about 200 m between A and the test coordinate
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", "X", 50.0, 20.0, null)
+                .addStop(2L, "B", "X", 50.1, 20.0, null)
+                .addStop(3L, "C", "X", 50.2, 20.0, null)
+                .addRoute(10L, "1", "C")
+                .addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 10))
+                .addDeparture(100L, 3L, LocalTime.of(8, 20));
+        when(timetableProvider.get()).thenReturn(builder.build(1));
+    }
+
+    @Test
+    @DisplayName("Should return stops reachable within the budget, closest first")
+    void shouldFindReachableStopsFromStop() {
+        List<ReachableStopDTO> result = service.findReachable(
+                new ReachabilityRequest(1L, null, null, LocalTime.of(7, 55), MONDAY, 15, null));
+
+        assertThat(result).extracting(ReachableStopDTO::id).containsExactly(1L, 2L);
+        assertThat(result.get(1).arrivalTime()).isEqualTo(LocalTime.of(8, 10));
+        assertThat(result.get(1).minutes()).isEqualTo(15);
+    }
+
+    @Test
+    @DisplayName("Should walk from a coordinate to the nearby stops first")
+    void shouldStartFromCoordinate() {
+        List<ReachableStopDTO> result = service.findReachable(
+                new ReachabilityRequest(null, 50.0018, 20.0, LocalTime.of(7, 55), MONDAY, 30, null));
+
+        assertThat(result).extracting(ReachableStopDTO::id).containsExactly(1L, 2L, 3L);
+        assertThat(result.get(0).minutes()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should throw when the origin stop is unknown")
+    void shouldThrowForUnknownStop() {
+        assertThatThrownBy(() -> service.findReachable(
+                new ReachabilityRequest(999L, null, null, LocalTime.of(8, 0), MONDAY, 30, null)))
+                .isInstanceOf(StopNotFoundException.class);
+    }
+}
@@ -1,5 +1,6 @@
 package com.leszek.busscheduler.service.impl;
 
+import com.leszek.busscheduler.config.TimetableProperties;
 import com.leszek.busscheduler.domain.*;
 import com.leszek.busscheduler.dto.ConnectionDTO;
 import com.leszek.busscheduler.dto.SearchRequest;
@@ -7,11 +8,14 @@ import com.leszek.busscheduler.repository.BusLineRepository;
 import com.leszek.busscheduler.repository.BusStopRepository;
 import com.leszek.busscheduler.repository.RouteRepository;
 import com.leszek.busscheduler.repository.TripRepository;
+import com.leszek.busscheduler.service.BusSearchService;
+import com.leszek.busscheduler.timetable.ServiceCalendarResolver;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
@@ -21,6 +25,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +39,12 @@ class RouteServiceImplTest {
     private BusStopRepository busStopRepository;
     @Mock
     private TripRepository tripRepository;
+    @Mock
+    private ServiceCalendarResolver serviceCalendarResolver;
+    @Spy
+    private TimetableProperties timetableProperties = new TimetableProperties();
+    @Mock
+    private BusSearchService busSearchService;
 
     @InjectMocks
     private RouteServiceImpl routeService;
@@ -65,12 +76,13 @@ class RouteServiceImplTest {
                 .departureTime(LocalTime.of(10, 45))
                 .build();
 
-        Object[] connectionRow = new Object[]{depA, depB};
+        Object[] connectionRow = new Object[]{depA, depB, "Stop B"};
         List<Object[]> mockResponse = Collections.singletonList(connectionRow);
 
         when(busStopRepository.findById(1L)).thenReturn(Optional.of(stopA));
         when(busStopRepository.findById(2L)).thenReturn(Optional.of(stopB));
-        when(tripRepository.findConnections(1L, 2L, startTime, "Dni robocze")).thenReturn(mockResponse);
+        when(serviceCalendarResolver.calendarTypes(monday)).thenReturn(List.of("WORKDAYS"));
+        when(tripRepository.findConnections(1L, 2L, startTime, List.of("WORKDAYS"))).thenReturn(mockResponse);
 
         // when
         List<ConnectionDTO> results = routeService.findConnections(request);
@@ -82,5 +94,20 @@ class RouteServiceImplTest {
         assertThat(connection.departureTime()).isEqualTo(LocalTime.of(10, 15));
         assertThat(connection.arrivalTime()).isEqualTo(LocalTime.of(10, 45));
         assertThat(connection.durationMinutes()).isEqualTo(30);
+        assertThat(connection.direction()).isEqualTo("Stop B");
+    }
+
+    @Test
+    @DisplayName("Should answer from the timetable when trips are pattern-stored")
+    void shouldSearchTimetableForPatternStorage() {
+        // given
+        timetableProperties.setTripStorage(TimetableProperties.TripStorage.PATTERN);
+        SearchRequest request = new SearchRequest(1L, 2L, LocalTime.of(10, 0), LocalDate.of(2026, 3, 9));
+        List<ConnectionDTO> expected = List.of(new ConnectionDTO("241", LocalTime.of(10, 5), LocalTime.of(10, 20), 15, "B"));
+        when(busSearchService.search(request)).thenReturn(expected);
+
+        // when / then
+        assertThat(routeService.findConnections(request)).isEqualTo(expected);
+        verifyNoInteractions(tripRepository, busStopRepository);
     }
 }
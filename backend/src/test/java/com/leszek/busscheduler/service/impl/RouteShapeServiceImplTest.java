@@ -0,0 +1,134 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.cache.RouteShapeCache;
+import com.leszek.busscheduler.dto.RouteShapeDTO;
+import com.leszek.busscheduler.geo.PolylineCodec;
+import com.leszek.busscheduler.repository.RouteRepository;
+import com.leszek.busscheduler.repository.RouteStopRepository;
+import com.leszek.busscheduler.timetable.TimetableChange;
+import com.leszek.busscheduler.timetable.TimetableChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RouteShapeServiceImplTest {
+
+    @Mock
+    private RouteRepository routeRepository;
+
+    @Mock
+    private RouteStopRepository routeStopRepository;
+
+    private RouteShapeCache routeShapeCache;
+    private RouteShapeServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        routeShapeCache = new RouteShapeCache();
+        service = new RouteShapeServiceImpl(routeRepository, routeStopRepository, routeShapeCache);
+    }
+
+    private static RouteRepository.RouteShapeRow shapeRow(String shape) {
+        RouteRepository.RouteShapeRow row = mock(RouteRepository.RouteShapeRow.class);
+        when(row.getShape()).thenReturn(shape);
+        return row;
+    }
+
+    private record StopPoint(Double getLatitude, Double getLongitude) implements RouteStopRepository.StopPointRow {}
+
+    @Test
+    @DisplayName("Should derive a shape through the stops with coordinates and simplify it at low zoom")
+    void shouldDeriveShapeFromStops() {
+        RouteRepository.RouteShapeRow route = shapeRow(null);
+        when(routeRepository.findShapeRowById(10L)).thenReturn(Optional.of(route));
+        List<RouteStopRepository.StopPointRow> rows = List.of(new StopPoint(52.70, 15.20), new StopPoint(52.75, 15.25),
+                new StopPoint(null, null), new StopPoint(52.80, 15.30));
+        when(routeStopRepository.findPointsByRouteId(10L)).thenReturn(rows);
+
+        RouteShapeDTO full = service.findShape(10L, null).orElseThrow();
+        RouteShapeDTO regional = service.findShape(10L, 8).orElseThrow();
+
+        assertThat(full.source()).isEqualTo(RouteShapeServiceImpl.DERIVED);
+        assertThat(full.points()).isEqualTo(3);
+        assertThat(PolylineCodec.decode(full.polyline())[0]).containsExactly(52.70, 52.75, 52.80);
+        // B lies on the straight line A-D, so any zoom drops it
+        assertThat(regional.points()).isEqualTo(2);
+        verify(routeStopRepository, times(1)).findPointsByRouteId(10L);
+
+        // A trip edit keeps the shape, a route or stop edit redraws it
+        routeShapeCache.onTimetableChanged(new TimetableChangedEvent("trip 1 deleted",
+                new TimetableChange.TripRemoved(1L)));
+        service.findShape(10L, null);
+        verify(routeStopRepository, times(1)).findPointsByRouteId(10L);
+        routeShapeCache.onTimetableChanged(new TimetableChangedEvent("stop 2 updated"));
+        service.findShape(10L, null);
+        verify(routeStopRepository, times(2)).findPointsByRouteId(10L);
+    }
+
+    @Test
+    @DisplayName("Should serve an imported shape and keep detail only at high zoom")
+    void shouldServeImportedShape() {
+        // A 300 m detour off a straight 10 km road
+        String imported = PolylineCodec.encode(new double[]{52.70, 52.745, 52.75, 52.79},
+                new double[]{15.20, 15.20, 15.2045, 15.20});
+        RouteRepository.RouteShapeRow route = shapeRow(imported);
+        when(routeRepository.findShapeRowById(10L)).thenReturn(Optional.of(route));
+
+        RouteShapeDTO overview = service.findShape(10L, 6).orElseThrow();
+        RouteShapeDTO street = service.findShape(10L, 16).orElseThrow();
+
+        assertThat(overview.source()).isEqualTo(RouteShapeServiceImpl.IMPORTED);
+        assertThat(overview.points()).isEqualTo(2);
+        assertThat(street.points()).isEqualTo(4);
+        assertThat(service.findShape(10L, null).orElseThrow().polyline()).isEqualTo(imported);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the stops when the imported shape is corrupt")
+    void shouldDeriveWhenImportedShapeIsCorrupt() {
+        RouteRepository.RouteShapeRow route = shapeRow("_p~iF ~ps|U");
+        when(routeRepository.findShapeRowById(10L)).thenReturn(Optional.of(route));
+        when(routeStopRepository.findPointsByRouteId(10L))
+                .thenReturn(List.of(new StopPoint(52.70, 15.20), new StopPoint(52.80, 15.30)));
+
+        assertThat(service.findShape(10L, null).orElseThrow().source()).isEqualTo(RouteShapeServiceImpl.DERIVED);
+    }
+
+    @Test
+    @DisplayName("Should reject polylines with invalid characters, overlong values or out-of-range points")
+    void shouldRejectMalformedPolylines() {
+        assertThatThrownBy(() -> PolylineCodec.decode("_p~iF ~ps|U"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("character");
+        assertThatThrownBy(() -> PolylineCodec.decode("~".repeat(14) + "?"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("too long");
+        assertThatThrownBy(() -> PolylineCodec.decode("_p~iF"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Truncated");
+        // 95 degrees north
+        assertThatThrownBy(() -> PolylineCodec.decode(PolylineCodec.encode(new double[]{95.0}, new double[]{0.0})))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("out of range");
+    }
+
+    @Test
+    @DisplayName("Should report an unknown route and encode polylines in the standard format")
+    void shouldHandleUnknownRouteAndEncodeStandardPolyline() {
+        when(routeRepository.findShapeRowById(99L)).thenReturn(Optional.empty());
+
+        assertThat(service.findShape(99L, 12)).isEmpty();
+        assertThat(PolylineCodec.encode(new double[]{38.5, 40.7, 43.252}, new double[]{-120.2, -120.95, -126.453}))
+                .isEqualTo("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+    }
+}
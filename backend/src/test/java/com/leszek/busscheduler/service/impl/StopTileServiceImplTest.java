@@ -0,0 +1,182 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.cache.StopTileCache;
+import com.leszek.busscheduler.config.TileProperties;
+import com.leszek.busscheduler.dto.VectorTileDTO;
+import com.leszek.busscheduler.timetable.Timetable;
+import com.leszek.busscheduler.timetable.TimetableBuilder;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import com.leszek.busscheduler.timetable.TimetableReplacedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StopTileServiceImplTest {
+
+    // Zoom 12 tile holding Kłodawa (52.788 N, 15.215 E)
+    private static final int Z = 12, X = 2221, Y = 1338;
+
+    @Mock
+    private TimetableProvider timetableProvider;
+
+    private StopTileCache tileCache;
+    private StopTileServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        tileCache = new StopTileCache(new TileProperties());
+        service = new StopTileServiceImpl(timetableProvider, tileCache);
+    }
+
+    private static Timetable network(long version) {
+        return new TimetableBuilder()
+                .addStop(1L, "Kłodawa Urząd Gminy", "Kłodawa", 52.788, 15.215, null)
+                .addStop(2L, "Gorzów Dworzec", "Gorzów", 52.730, 15.240, null)
+                .addStop(3L, "Bez współrzędnych", "Kłodawa", null, null, null)
+                .addRoute(10L, "241", "Gorzów")
+                .addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(7, 0))
+                .addDeparture(100L, 2L, LocalTime.of(7, 20))
+                .build(version);
+    }
+
+    @Test
+    @DisplayName("Should encode the tile's stops as MVT points with their directions")
+    void shouldEncodeStopsInTile() {
+        when(timetableProvider.get()).thenReturn(network(1));
+
+        VectorTileDTO tile = service.stopTile(Z, X, Y);
+        List<Feature> features = decodeStopsLayer(tile.data());
+
+        assertThat(tile.version()).isEqualTo(1);
+        assertThat(features).hasSize(1);
+        assertThat(features.get(0).id()).isEqualTo(1L);
+        assertThat(features.get(0).x()).isBetween(0, 4095);
+        assertThat(features.get(0).y()).isBetween(0, 4095);
+        assertThat(features.get(0).values()).contains("Kłodawa Urząd Gminy", "Gorzów");
+        assertThat(service.stopTile(Z, 0, 0).data()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should draw nearby stops as one cluster point with a count at low zoom")
+    void shouldClusterAtLowZoom() {
+        when(timetableProvider.get()).thenReturn(network(1));
+
+        // Zoom 6 tile holding both stops, which share one clustering cell
+        List<Feature> features = decodeStopsLayer(service.stopTile(6, 34, 20).data());
+
+        assertThat(features).hasSize(1);
+        assertThat(features.get(0).id()).isZero();
+        assertThat(features.get(0).values()).containsExactly("2");
+    }
+
+    @Test
+    @DisplayName("Should serve a cached tile until the timetable version changes")
+    void shouldCachePerVersion() {
+        when(timetableProvider.get()).thenReturn(network(1));
+        byte[] first = service.stopTile(Z, X, Y).data();
+        assertThat(service.stopTile(Z, X, Y).data()).isSameAs(first);
+
+        when(timetableProvider.get()).thenReturn(network(2));
+        tileCache.onTimetableReplaced(new TimetableReplacedEvent(2));
+        VectorTileDTO replaced = service.stopTile(Z, X, Y);
+
+        assertThat(replaced.data()).isNotSameAs(first).isEqualTo(first);
+        assertThat(replaced.version()).isEqualTo(2);
+        assertThat(tileCache.size()).isEqualTo(1);
+    }
+
+    // ── Just enough of a protobuf reader to check the "stops" layer ──────────
+
+    private record Feature(long id, int x, int y, List<String> values) {}
+
+    private static List<Feature> decodeStopsLayer(byte[] tile) {
+        List<Feature> features = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(tile);
+        while (buffer.hasRemaining()) {
+            assertThat(varint(buffer)).isEqualTo(3L << 3 | 2);
+            ByteBuffer layer = slice(buffer);
+            List<ByteBuffer> rawFeatures = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            while (layer.hasRemaining()) {
+                long tag = varint(layer);
+                int field = (int) (tag >>> 3);
+                if ((tag & 7) == 0) {
+                    long value = varint(layer);
+                    if (field == 15) assertThat(value).isEqualTo(2);
+                    continue;
+                }
+                ByteBuffer bytes = slice(layer);
+                switch (field) {
+                    case 1 -> assertThat(string(bytes)).isEqualTo(StopTileServiceImpl.LAYER);
+                    case 2 -> rawFeatures.add(bytes);
+                    case 4 -> {
+                        varint(bytes);
+                        values.add(string(slice(bytes)));
+                    }
+                    default -> { }
+                }
+            }
+            for (ByteBuffer raw : rawFeatures) {
+                long id = 0;
+                int x = 0, y = 0;
+                while (raw.hasRemaining()) {
+                    long tag = varint(raw);
+                    int field = (int) (tag >>> 3);
+                    if ((tag & 7) == 0) {
+                        long value = varint(raw);
+                        if (field == 1) id = value;
+                        continue;
+                    }
+                    ByteBuffer bytes = slice(raw);
+                    if (field == 4) {
+                        assertThat(varint(bytes)).isEqualTo(9L);
+                        x = zigZag(varint(bytes));
+                        y = zigZag(varint(bytes));
+                    }
+                }
+                features.add(new Feature(id, x, y, values));
+            }
+        }
+        return features;
+    }
+
+    private static long varint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer) {
+        int length = (int) varint(buffer);
+        ByteBuffer slice = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int zigZag(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+}
@@ -0,0 +1,89 @@
+package com.leszek.busscheduler.service.impl;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import com.leszek.busscheduler.dto.TravelMatrixDTO;
+import com.leszek.busscheduler.dto.TravelMatrixRequest;
+import com.leszek.busscheduler.dto.TravelMatrixRowDTO;
+import com.leszek.busscheduler.service.TravelMatrixService;
+import com.leszek.busscheduler.timetable.TimetableBuilder;
+import com.leszek.busscheduler.timetable.TimetableProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TravelMatrixServiceImplTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+    private static final int STOPS = 1_000;
+
+    @Mock
+    private TimetableProvider timetableProvider;
+
+    @Spy
+    private TimetableProperties timetableProperties = new TimetableProperties();
+
+    @InjectMocks
+    private TravelMatrixServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        // One trip calling at every stop, a minute apart
+        TimetableBuilder builder = new TimetableBuilder()
+                .addRoute(10L, "1", "End")
+                .addTrip(100L, 10L, "WORKDAYS");
+        for (long id = 1; id <= STOPS; id++) {
+            builder.addStop(id, "S" + id, "X", 50.0, 20.0, null)
+                    .addDeparture(100L, id, LocalTime.of(6, 0).plusMinutes(id));
+        }
+        when(timetableProvider.get()).thenReturn(builder.build(1));
+    }
+
+    @Test
+    @DisplayName("Should fill every row, downstream stops reachable along the trip")
+    void compute_fillsEveryRow() {
+        TravelMatrixDTO matrix = service.compute(
+                new TravelMatrixRequest(List.of(1L, 2L), List.of(2L, 3L), LocalTime.of(6, 0), MONDAY, null));
+
+        assertThat(matrix.minutes()).hasDimensions(2, 2);
+        assertThat(matrix.minutes()[0]).containsExactly(2, 3);
+    }
+
+    @Test
+    @DisplayName("Should stop scanning once the sink fails and rethrow the failure")
+    void stream_stopsOnSinkFailure() {
+        AtomicInteger rows = new AtomicInteger();
+        TravelMatrixService.RowSink sink = new TravelMatrixService.RowSink() {
+            @Override
+            public void header(List<Long> origins, List<Long> destinations) {
+            }
+
+            @Override
+            public void row(TravelMatrixRowDTO row) {
+                rows.incrementAndGet();
+                throw new UncheckedIOException(new IOException("Broken pipe"));
+            }
+        };
+
+        assertThatThrownBy(() -> service.stream(
+                new TravelMatrixRequest(null, List.of(1L), LocalTime.of(6, 0), MONDAY, null), sink))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(rows.get()).isLessThan(STOPS);
+    }
+}
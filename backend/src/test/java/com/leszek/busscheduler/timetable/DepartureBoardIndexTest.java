@@ -0,0 +1,70 @@
+package com.leszek.busscheduler.timetable;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DepartureBoardIndexTest {
+
+    private Timetable timetable;
+
+    @BeforeEach
+    void setUp() {
+        // "Rynek" has two platforms (ids 1 and 2); line 1 leaves platform 1, line 2 platform 2
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "Rynek", "X", null, null, null)
+                .addStop(2L, "Rynek", "X", null, null, null)
+                .addStop(3L, "Dworzec", "X", null, null, null)
+                .addRoute(10L, "1", "Dworzec")
+                .addRoute(20L, "2", "Dworzec");
+        addTrip(builder, 100L, 10L, 1L, "WORKDAYS", LocalTime.of(8, 0));
+        addTrip(builder, 101L, 10L, 1L, "WORKDAYS", LocalTime.of(8, 30));
+        addTrip(builder, 102L, 10L, 1L, "SATURDAYS", LocalTime.of(8, 10));
+        addTrip(builder, 200L, 20L, 2L, "WORKDAYS", LocalTime.of(8, 15));
+        addTrip(builder, 201L, 20L, 2L, "WORKDAYS", LocalTime.of(8, 45));
+        timetable = builder.build(1);
+    }
+
+    private void addTrip(TimetableBuilder builder, long tripId, long routeId, long stopId, String calendarType, LocalTime start) {
+        builder.addTrip(tripId, routeId, calendarType)
+                .addDeparture(tripId, stopId, start)
+                .addDeparture(tripId, 3L, start.plusMinutes(20));
+    }
+
+    private List<String> board(long stopId, LocalTime time, int limit) {
+        DepartureBoardIndex boards = timetable.departureBoards();
+        return boards.next(boards.area(timetable.stopIndex(stopId)), ServiceDay.of(timetable.calendarIndex("WORKDAYS")),
+                        Timetable.toMinute(time), limit)
+                .stream()
+                .map(entry -> timetable.pattern(entry.pattern()).lineNumber() + "@" + Timetable.toTime(entry.minute()))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("Should merge every platform of the stop area in time order")
+    void shouldMergeStopArea() {
+        assertThat(board(2L, LocalTime.of(8, 0), 10))
+                .containsExactly("1@08:00", "2@08:15", "1@08:30", "2@08:45");
+    }
+
+    @Test
+    @DisplayName("Should start at the requested time and stop at the limit")
+    void shouldRespectTimeAndLimit() {
+        assertThat(board(1L, LocalTime.of(8, 1), 2)).containsExactly("2@08:15", "1@08:30");
+    }
+
+    @Test
+    @DisplayName("Should only list trips of the requested calendar")
+    void shouldFilterCalendar() {
+        DepartureBoardIndex boards = timetable.departureBoards();
+        List<DepartureBoardIndex.Entry> saturday = boards.next(boards.area(timetable.stopIndex(1L)),
+                ServiceDay.of(timetable.calendarIndex("SATURDAYS")), 0, 10);
+
+        assertThat(saturday).extracting(DepartureBoardIndex.Entry::minute).containsExactly(8 * 60 + 10);
+    }
+}
@@ -0,0 +1,90 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.ConnectionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DirectConnectionSearchTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+    private static final LocalDate SUNDAY = LocalDate.of(2025, 1, 5);
+
+    private Timetable timetable;
+
+    @BeforeEach
+    void setUp() {
+        // Line 241: A(0) -> B(+15) -> C(+25), workdays at 07:00 and 14:15, saturdays at 09:00
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", "X", null, null, null)
+                .addStop(2L, "B", "X", null, null, null)
+                .addStop(3L, "C", "X", null, null, null)
+                .addRoute(10L, "241", "C");
+        addTrip(builder, 100L, "WORKDAYS", LocalTime.of(14, 15));
+        addTrip(builder, 101L, "WORKDAYS", LocalTime.of(7, 0));
+        addTrip(builder, 102L, "SATURDAYS", LocalTime.of(9, 0));
+        timetable = builder.build(1);
+    }
+
+    private ServiceDay workdays() {
+        return timetable.serviceDay(MONDAY);
+    }
+
+    private void addTrip(TimetableBuilder builder, long tripId, String calendarType, LocalTime start) {
+        builder.addTrip(tripId, 10L, calendarType)
+                .addDeparture(tripId, 1L, start)
+                .addDeparture(tripId, 2L, start.plusMinutes(15))
+                .addDeparture(tripId, 3L, start.plusMinutes(25));
+    }
+
+    @Test
+    @DisplayName("Should return trips of the requested calendar leaving after the given time, sorted")
+    void shouldFindDirectConnections() {
+        List<ConnectionDTO> results = DirectConnectionSearch.find(timetable,
+                timetable.stopIndex(1L), timetable.stopIndex(3L), LocalTime.of(6, 0), workdays());
+
+        assertThat(results).extracting(ConnectionDTO::departureTime)
+                .containsExactly(LocalTime.of(7, 0), LocalTime.of(14, 15));
+        assertThat(results.get(0).arrivalTime()).isEqualTo(LocalTime.of(7, 25));
+        assertThat(results.get(0).durationMinutes()).isEqualTo(25);
+        assertThat(results.get(0).lineName()).isEqualTo("241");
+        assertThat(results.get(0).direction()).isEqualTo("C");
+    }
+
+    @Test
+    @DisplayName("Should skip departures before the requested time")
+    void shouldSkipEarlierDepartures() {
+        List<ConnectionDTO> results = DirectConnectionSearch.find(timetable,
+                timetable.stopIndex(2L), timetable.stopIndex(3L), LocalTime.of(7, 16), workdays());
+
+        assertThat(results).extracting(ConnectionDTO::departureTime).containsExactly(LocalTime.of(14, 30));
+    }
+
+    @Test
+    @DisplayName("Should not ride against the direction of the route")
+    void shouldNotReturnReverseDirection() {
+        assertThat(DirectConnectionSearch.find(timetable,
+                timetable.stopIndex(3L), timetable.stopIndex(1L), LocalTime.MIDNIGHT, workdays())).isEmpty();
+        assertThat(DirectConnectionSearch.find(timetable,
+                timetable.stopIndex(1L), timetable.stopIndex(3L), LocalTime.MIDNIGHT, timetable.serviceDay(SUNDAY))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should return trips arriving by the given time, latest departure first")
+    void shouldFindConnectionsArrivingBy() {
+        List<ConnectionDTO> results = DirectConnectionSearch.findArrivingBy(timetable,
+                timetable.stopIndex(1L), timetable.stopIndex(3L), LocalTime.of(14, 40), workdays());
+
+        assertThat(results).extracting(ConnectionDTO::departureTime).containsExactly(LocalTime.of(14, 15), LocalTime.of(7, 0));
+
+        List<ConnectionDTO> tooEarly = DirectConnectionSearch.findArrivingBy(timetable,
+                timetable.stopIndex(1L), timetable.stopIndex(3L), LocalTime.of(14, 39), workdays());
+        assertThat(tooEarly).extracting(ConnectionDTO::departureTime).containsExactly(LocalTime.of(7, 0));
+    }
+}
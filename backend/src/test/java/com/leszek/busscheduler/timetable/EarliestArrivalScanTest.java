@@ -0,0 +1,78 @@
+package com.leszek.busscheduler.timetable;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EarliestArrivalScanTest {
+
+    private Timetable timetable;
+    private ServiceDay workdays;
+
+    @BeforeEach
+    void setUp() {
+        // Line 1: A -> B -> C, line 2: C -> D (08:21 too tight for a 2-minute change, 08:25 fine), E is never served
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", null, null, null, null)
+                .addStop(2L, "B", null, null, null, null)
+                .addStop(3L, "C", null, null, null, null)
+                .addStop(4L, "D", null, null, null, null)
+                .addStop(5L, "E", null, null, null, null)
+                .addRoute(10L, "1", "C")
+                .addRoute(20L, "2", "D");
+        builder.addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 10))
+                .addDeparture(100L, 3L, LocalTime.of(8, 20));
+        builder.addTrip(200L, 20L, "WORKDAYS")
+                .addDeparture(200L, 3L, LocalTime.of(8, 21))
+                .addDeparture(200L, 4L, LocalTime.of(8, 30));
+        builder.addTrip(201L, 20L, "WORKDAYS")
+                .addDeparture(201L, 3L, LocalTime.of(8, 25))
+                .addDeparture(201L, 4L, LocalTime.of(8, 35));
+        timetable = builder.build(1);
+        workdays = ServiceDay.of(timetable.calendarIndex("WORKDAYS"));
+    }
+
+    private int arrivalAt(int[] arrival, long stopId) {
+        return arrival[timetable.stopIndex(stopId)];
+    }
+
+    @Test
+    @DisplayName("Should find the earliest arrival at every stop respecting the transfer time")
+    void shouldFindEarliestArrivals() {
+        int[] arrival = EarliestArrivalScan.fromStop(timetable, timetable.stopIndex(1L), 7 * 60 + 50, workdays,
+                2, Timetable.MINUTES_PER_DAY - 1);
+
+        assertThat(arrivalAt(arrival, 1L)).isEqualTo(7 * 60 + 50);
+        assertThat(arrivalAt(arrival, 3L)).isEqualTo(8 * 60 + 20);
+        assertThat(arrivalAt(arrival, 4L)).isEqualTo(8 * 60 + 35);
+        assertThat(arrivalAt(arrival, 5L)).isEqualTo(EarliestArrivalScan.UNREACHED);
+    }
+
+    @Test
+    @DisplayName("Should leave stops beyond the time budget unreached")
+    void shouldRespectLatestArrival() {
+        int[] arrival = EarliestArrivalScan.fromStop(timetable, timetable.stopIndex(1L), 7 * 60 + 50, workdays,
+                0, 8 * 60 + 20);
+
+        assertThat(arrivalAt(arrival, 3L)).isEqualTo(8 * 60 + 20);
+        assertThat(arrivalAt(arrival, 4L)).isEqualTo(EarliestArrivalScan.UNREACHED);
+    }
+
+    @Test
+    @DisplayName("Should start from several stops at their own times")
+    void shouldStartFromSeveralSources() {
+        int[] arrival = EarliestArrivalScan.fromStops(timetable,
+                new int[]{timetable.stopIndex(1L), timetable.stopIndex(3L)},
+                new int[]{8 * 60 + 5, 8 * 60 + 22}, workdays, 2, Timetable.MINUTES_PER_DAY - 1);
+
+        // Missed line 1 at A, but walking to C in time catches the 08:25
+        assertThat(arrivalAt(arrival, 2L)).isEqualTo(EarliestArrivalScan.UNREACHED);
+        assertThat(arrivalAt(arrival, 4L)).isEqualTo(8 * 60 + 35);
+    }
+}
@@ -0,0 +1,101 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.JourneyDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Every engine must answer the same queries with the same Pareto set
+class JourneyEngineTest {
+
+    private Timetable timetable;
+    private ServiceDay workdays;
+
+    @BeforeEach
+    void setUp() {
+        // Line 1: A -> B -> C, line 2: C -> D, line 3: A -> D (direct but slow)
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", null, null, null, null)
+                .addStop(2L, "B", null, null, null, null)
+                .addStop(3L, "C", null, null, null, null)
+                .addStop(4L, "D", null, null, null, null)
+                .addRoute(10L, "1", "C")
+                .addRoute(20L, "2", "D")
+                .addRoute(30L, "3", "D");
+        builder.addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 10))
+                .addDeparture(100L, 3L, LocalTime.of(8, 20));
+        // Leaves C one minute after line 1 arrives: too tight for a 2-minute transfer
+        builder.addTrip(200L, 20L, "WORKDAYS")
+                .addDeparture(200L, 3L, LocalTime.of(8, 21))
+                .addDeparture(200L, 4L, LocalTime.of(8, 30));
+        builder.addTrip(201L, 20L, "WORKDAYS")
+                .addDeparture(201L, 3L, LocalTime.of(8, 25))
+                .addDeparture(201L, 4L, LocalTime.of(8, 35));
+        builder.addTrip(300L, 30L, "WORKDAYS")
+                .addDeparture(300L, 1L, LocalTime.of(8, 5))
+                .addDeparture(300L, 4L, LocalTime.of(9, 30));
+        timetable = builder.build(1);
+        workdays = ServiceDay.of(timetable.calendarIndex("WORKDAYS"));
+    }
+
+    static Stream<JourneyEngine> engines() {
+        return Stream.of(new RaptorJourneyEngine(), new ConnectionScanJourneyEngine());
+    }
+
+    private List<JourneyDTO> plan(JourneyEngine engine, int maxTransfers, int minTransferMinutes) {
+        JourneyQuery query = new JourneyQuery(timetable.stopIndex(1L), timetable.stopIndex(4L), 7 * 60 + 50,
+                workdays, maxTransfers, minTransferMinutes);
+        return engine.plan(timetable, query)
+                .stream()
+                .map(journey -> journey.toDto(timetable))
+                .toList();
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    @DisplayName("Should return the Pareto set of direct and transfer journeys")
+    void shouldReturnParetoJourneys(JourneyEngine engine) {
+        List<JourneyDTO> journeys = plan(engine, 2, 2);
+
+        assertThat(journeys).hasSize(2);
+        assertThat(journeys.get(0).transfers()).isZero();
+        assertThat(journeys.get(0).arrivalTime()).isEqualTo(LocalTime.of(9, 30));
+
+        JourneyDTO withTransfer = journeys.get(1);
+        assertThat(withTransfer.transfers()).isEqualTo(1);
+        assertThat(withTransfer.departureTime()).isEqualTo(LocalTime.of(8, 0));
+        assertThat(withTransfer.arrivalTime()).isEqualTo(LocalTime.of(8, 35));
+        assertThat(withTransfer.legs()).extracting(leg -> leg.lineName()).containsExactly("1", "2");
+        assertThat(withTransfer.legs().get(0).toStopId()).isEqualTo(3L);
+        assertThat(withTransfer.legs().get(1).fromStopId()).isEqualTo(3L);
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    @DisplayName("Should catch the tight connection when no transfer time is required")
+    void shouldUseMinimumTransferTime(JourneyEngine engine) {
+        List<JourneyDTO> journeys = plan(engine, 2, 0);
+
+        assertThat(journeys.get(journeys.size() - 1).arrivalTime()).isEqualTo(LocalTime.of(8, 30));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    @DisplayName("Should respect the maximum number of transfers")
+    void shouldRespectMaxTransfers(JourneyEngine engine) {
+        List<JourneyDTO> journeys = plan(engine, 0, 2);
+
+        assertThat(journeys).hasSize(1);
+        assertThat(journeys.get(0).legs()).hasSize(1);
+        assertThat(journeys.get(0).legs().get(0).lineName()).isEqualTo("3");
+    }
+}
@@ -0,0 +1,62 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.ConnectionDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatternTripStorageTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+
+    // Line 241: A(0) -> B(+15) -> C(+25), stored as start times only
+    private TimetableBuilder network() {
+        return new TimetableBuilder()
+                .addStop(1L, "A", "X", null, null, null)
+                .addStop(2L, "B", "X", null, null, null)
+                .addStop(3L, "C", "X", null, null, null)
+                .addRoute(10L, "241", "C")
+                .addRouteStop(10L, 3L, 3, 25)
+                .addRouteStop(10L, 1L, 1, 0)
+                .addRouteStop(10L, 2L, 2, 15)
+                .addTrip(100L, 10L, "WORKDAYS", LocalTime.of(7, 0))
+                .addTrip(101L, 10L, "WORKDAYS", LocalTime.of(14, 15));
+    }
+
+    @Test
+    @DisplayName("Should derive stop times from the route offsets and keep one offset row per pattern")
+    void shouldDeriveStopTimesFromOffsets() {
+        Timetable timetable = network().build(1);
+
+        assertThat(timetable.patternCount()).isEqualTo(1);
+        TripPattern pattern = timetable.pattern(0);
+        assertThat(pattern.isCompact()).isTrue();
+        assertThat(pattern.time(1, 2)).isEqualTo(Timetable.toMinute(LocalTime.of(14, 40)));
+
+        List<ConnectionDTO> results = DirectConnectionSearch.find(timetable,
+                timetable.stopIndex(1L), timetable.stopIndex(3L), LocalTime.of(6, 0), timetable.serviceDay(MONDAY));
+        assertThat(results).extracting(ConnectionDTO::arrivalTime)
+                .containsExactly(LocalTime.of(7, 25), LocalTime.of(14, 40));
+    }
+
+    @Test
+    @DisplayName("Should apply departures of a pattern-stored trip as per-stop overrides")
+    void shouldApplyOverrides() {
+        Timetable timetable = network()
+                .addDeparture(101L, 2L, LocalTime.of(14, 35))
+                .build(1);
+
+        List<ConnectionDTO> results = DirectConnectionSearch.find(timetable,
+                timetable.stopIndex(1L), timetable.stopIndex(2L), LocalTime.of(8, 0), timetable.serviceDay(MONDAY));
+        assertThat(results).extracting(ConnectionDTO::arrivalTime).containsExactly(LocalTime.of(14, 35));
+        // Offsets now differ between the two trips, so the pattern falls back to a full time table
+        assertThat(timetable.patternCount()).isEqualTo(1);
+        assertThat(timetable.pattern(0).isCompact()).isFalse();
+        assertThat(timetable.pattern(0).time(0, 2)).isEqualTo(Timetable.toMinute(LocalTime.of(7, 25)));
+    }
+}
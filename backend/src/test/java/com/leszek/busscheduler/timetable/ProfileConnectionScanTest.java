@@ -0,0 +1,99 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.JourneyDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileConnectionScanTest {
+
+    private Timetable timetable;
+    private ServiceDay workdays;
+
+    @BeforeEach
+    void setUp() {
+        // Line 1: A -> B -> C, line 2: C -> D, line 3: A -> D (direct but slow, the later trip overtakes)
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", null, null, null, null)
+                .addStop(2L, "B", null, null, null, null)
+                .addStop(3L, "C", null, null, null, null)
+                .addStop(4L, "D", null, null, null, null)
+                .addRoute(10L, "1", "C")
+                .addRoute(20L, "2", "D")
+                .addRoute(30L, "3", "D");
+        builder.addTrip(100L, 10L, "WORKDAYS")
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 10))
+                .addDeparture(100L, 3L, LocalTime.of(8, 20));
+        builder.addTrip(200L, 20L, "WORKDAYS")
+                .addDeparture(200L, 3L, LocalTime.of(8, 21))
+                .addDeparture(200L, 4L, LocalTime.of(8, 30));
+        builder.addTrip(201L, 20L, "WORKDAYS")
+                .addDeparture(201L, 3L, LocalTime.of(8, 25))
+                .addDeparture(201L, 4L, LocalTime.of(8, 35));
+        builder.addTrip(300L, 30L, "WORKDAYS")
+                .addDeparture(300L, 1L, LocalTime.of(8, 5))
+                .addDeparture(300L, 4L, LocalTime.of(9, 30));
+        builder.addTrip(301L, 30L, "WORKDAYS")
+                .addDeparture(301L, 1L, LocalTime.of(8, 6))
+                .addDeparture(301L, 4L, LocalTime.of(9, 20));
+        timetable = builder.build(1);
+        workdays = ServiceDay.of(timetable.calendarIndex("WORKDAYS"));
+    }
+
+    private List<JourneyDTO> profile(LocalTime timeFrom, LocalTime timeTo, int maxTransfers, int minTransferMinutes) {
+        ProfileQuery query = new ProfileQuery(timetable.stopIndex(1L), timetable.stopIndex(4L),
+                Timetable.toMinute(timeFrom), Timetable.toMinute(timeTo), workdays, maxTransfers, minTransferMinutes);
+        return ProfileConnectionScan.find(timetable, query)
+                .stream()
+                .map(journey -> journey.toDto(timetable))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("Should return every Pareto-optimal journey in the window ordered by departure")
+    void shouldReturnParetoJourneysInWindow() {
+        List<JourneyDTO> journeys = profile(LocalTime.of(7, 50), LocalTime.of(8, 10), 2, 2);
+
+        // 08:05 direct is dominated by 08:06 direct, which leaves later and arrives earlier
+        assertThat(journeys).extracting(JourneyDTO::departureTime)
+                .containsExactly(LocalTime.of(8, 0), LocalTime.of(8, 6));
+        assertThat(journeys.get(0).transfers()).isEqualTo(1);
+        assertThat(journeys.get(0).arrivalTime()).isEqualTo(LocalTime.of(8, 35));
+        assertThat(journeys.get(0).legs()).extracting(leg -> leg.lineName()).containsExactly("1", "2");
+        assertThat(journeys.get(1).transfers()).isZero();
+        assertThat(journeys.get(1).arrivalTime()).isEqualTo(LocalTime.of(9, 20));
+    }
+
+    @Test
+    @DisplayName("Should catch the tight connection when no transfer time is required")
+    void shouldUseMinimumTransferTime() {
+        List<JourneyDTO> journeys = profile(LocalTime.of(7, 50), LocalTime.of(8, 10), 2, 0);
+
+        assertThat(journeys.get(0).arrivalTime()).isEqualTo(LocalTime.of(8, 30));
+    }
+
+    @Test
+    @DisplayName("Should only return journeys departing inside the window")
+    void shouldRespectTimeWindow() {
+        List<JourneyDTO> journeys = profile(LocalTime.of(8, 1), LocalTime.of(8, 5), 2, 2);
+
+        assertThat(journeys).hasSize(1);
+        assertThat(journeys.get(0).departureTime()).isEqualTo(LocalTime.of(8, 5));
+        assertThat(journeys.get(0).arrivalTime()).isEqualTo(LocalTime.of(9, 30));
+    }
+
+    @Test
+    @DisplayName("Should respect the maximum number of transfers")
+    void shouldRespectMaxTransfers() {
+        List<JourneyDTO> journeys = profile(LocalTime.of(7, 50), LocalTime.of(8, 10), 0, 2);
+
+        assertThat(journeys).hasSize(1);
+        assertThat(journeys.get(0).legs()).extracting(leg -> leg.lineName()).containsExactly("3");
+    }
+}
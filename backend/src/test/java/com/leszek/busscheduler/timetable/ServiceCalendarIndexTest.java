@@ -0,0 +1,72 @@
+package com.leszek.busscheduler.timetable;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServiceCalendarIndexTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+    private static final LocalDate EPIPHANY = MONDAY;
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+    private static final LocalDate SUNDAY = MONDAY.minusDays(1);
+
+    private static TimetableBuilder network() {
+        return new TimetableBuilder()
+                .addStop(1L, "A", null, null, null, null)
+                .addStop(2L, "B", null, null, null, null)
+                .addRoute(10L, "1", "B")
+                .addTrip(100L, 10L, CalendarTypes.WORKDAYS)
+                .addDeparture(100L, 1L, LocalTime.of(8, 0))
+                .addDeparture(100L, 2L, LocalTime.of(8, 10))
+                .addTrip(101L, 10L, CalendarTypes.SUNDAYS_HOLIDAYS)
+                .addDeparture(101L, 1L, LocalTime.of(9, 0))
+                .addDeparture(101L, 2L, LocalTime.of(9, 10))
+                .addTrip(102L, 10L, "SCHOOL_DAYS")
+                .addDeparture(102L, 1L, LocalTime.of(7, 0))
+                .addDeparture(102L, 2L, LocalTime.of(7, 10))
+                .serviceHorizon(MONDAY.minusDays(7), 30);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the weekday rule of built-in calendar types")
+    void shouldUseBuiltInWeekdays() {
+        Timetable timetable = network().build(1);
+
+        assertThat(timetable.calendarTypes(timetable.serviceDay(TUESDAY))).containsExactly(CalendarTypes.WORKDAYS);
+        assertThat(timetable.calendarTypes(timetable.serviceDay(SUNDAY))).containsExactly(CalendarTypes.SUNDAYS_HOLIDAYS);
+    }
+
+    @Test
+    @DisplayName("Should let exception dates turn a holiday workday into a Sunday service")
+    void shouldApplyExceptions() {
+        Timetable timetable = network()
+                .addCalendarException(CalendarTypes.WORKDAYS, EPIPHANY, false)
+                .addCalendarException(CalendarTypes.SUNDAYS_HOLIDAYS, EPIPHANY, true)
+                .build(1);
+
+        assertThat(timetable.calendarTypes(timetable.serviceDay(EPIPHANY))).containsExactly(CalendarTypes.SUNDAYS_HOLIDAYS);
+        assertThat(timetable.calendarTypes(timetable.serviceDay(TUESDAY))).containsExactly(CalendarTypes.WORKDAYS);
+    }
+
+    @Test
+    @DisplayName("Should run several calendars on one day within their date range, also outside the horizon")
+    void shouldCombineCalendarsWithinDateRange() {
+        Timetable timetable = network()
+                .addServiceCalendar("SCHOOL_DAYS", LocalDate.of(2024, 9, 1), LocalDate.of(2025, 6, 27),
+                        CalendarTypes.MONDAY_TO_FRIDAY)
+                .build(1);
+
+        ServiceDay tuesday = timetable.serviceDay(TUESDAY);
+        assertThat(timetable.calendarTypes(tuesday)).containsExactlyInAnyOrder(CalendarTypes.WORKDAYS, "SCHOOL_DAYS");
+        assertThat(DirectConnectionSearch.find(timetable, timetable.stopIndex(1L), timetable.stopIndex(2L),
+                LocalTime.of(6, 0), tuesday)).hasSize(2);
+        // Summer break, far past the compiled horizon
+        assertThat(timetable.calendarTypes(timetable.serviceDay(LocalDate.of(2025, 7, 1))))
+                .containsExactly(CalendarTypes.WORKDAYS);
+    }
+}
@@ -0,0 +1,70 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.repository.ServiceCalendarRepository;
+import com.leszek.busscheduler.repository.TripRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServiceCalendarResolverTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+    private static final LocalDate SATURDAY = LocalDate.of(2025, 1, 11);
+
+    @Mock
+    private ServiceCalendarRepository serviceCalendarRepository;
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @InjectMocks
+    private ServiceCalendarResolver resolver;
+
+    private record CalendarRow(String getCalendarType, LocalDate getStartDate, LocalDate getEndDate, int getWeekdays)
+            implements ServiceCalendarRepository.CalendarRow {}
+
+    private record ExceptionRow(String getCalendarType, LocalDate getDate, Boolean getAdded)
+            implements ServiceCalendarRepository.ExceptionRow {}
+
+    @Test
+    @DisplayName("Should resolve built-in codes, calendar rows and exceptions from the tables")
+    void shouldResolveFromTables() {
+        when(tripRepository.findDistinctCalendarTypes()).thenReturn(List.of("WORKDAYS", "SATURDAYS", "SCHOOL"));
+        when(serviceCalendarRepository.findAllRows()).thenReturn(List.of(
+                new CalendarRow("SCHOOL", null, null, CalendarTypes.MONDAY_TO_FRIDAY)));
+        when(serviceCalendarRepository.findAllExceptionRows()).thenReturn(List.of(
+                new ExceptionRow("SCHOOL", MONDAY, false),
+                new ExceptionRow("SCHOOL", SATURDAY, true)));
+
+        assertThat(resolver.calendarTypes(MONDAY)).containsExactly("WORKDAYS");
+        assertThat(resolver.calendarTypes(SATURDAY)).containsExactly("SATURDAYS", "SCHOOL");
+        assertThat(resolver.calendarTypes(MONDAY.plusDays(1))).containsExactly("SCHOOL", "WORKDAYS");
+        verify(tripRepository, times(1)).findDistinctCalendarTypes();
+    }
+
+    @Test
+    @DisplayName("Should recompile the calendars after a timetable change")
+    void shouldRecompileAfterChange() {
+        when(tripRepository.findDistinctCalendarTypes())
+                .thenReturn(List.of("SATURDAYS"))
+                .thenReturn(List.of("SATURDAYS", "WORKDAYS"));
+
+        assertThat(resolver.calendarTypes(MONDAY)).isEmpty();
+        resolver.onTimetableChanged(new TimetableChangedEvent("trip 1 created"));
+
+        assertThat(resolver.calendarTypes(MONDAY)).containsExactly("WORKDAYS");
+        verify(tripRepository, times(2)).findDistinctCalendarTypes();
+    }
+}
@@ -0,0 +1,37 @@
+package com.leszek.busscheduler.timetable;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StopAreaIndexTest {
+
+    @Test
+    @DisplayName("Should group nearby platforms sharing name and city into one area")
+    void shouldGroupNearbyPlatforms() {
+        Timetable timetable = new TimetableBuilder()
+                .addStop(7L, "Rynek", "Police", 53.5500, 14.5700, "Centrum")
+                .addStop(3L, "rynek ", "Police", 53.5505, 14.5702, "Dworzec")
+                .addStop(9L, "Rynek", "Police", null, null, null)
+                .build(1);
+        StopAreaIndex areas = timetable.stopAreas();
+
+        assertThat(areas.areaCount()).isEqualTo(1);
+        assertThat(areas.areaId(areas.area(timetable.stopIndex(9L)))).isEqualTo(3L);
+        assertThat(areas.stops(0)).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Should keep same-named stops apart when they are in another city or far away")
+    void shouldSeparateDistantNamesakes() {
+        Timetable timetable = new TimetableBuilder()
+                .addStop(1L, "Szkoła", "Police", 53.55, 14.57, null)
+                .addStop(2L, "Szkoła", "Szczecin", 53.55, 14.57, null)
+                .addStop(3L, "Szkoła", "Police", 53.60, 14.57, null)
+                .build(1);
+        StopAreaIndex areas = timetable.stopAreas();
+
+        assertThat(areas.areaCount()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,54 @@
+package com.leszek.busscheduler.timetable;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class StopClusterIndexTest {
+
+    @Test
+    @DisplayName("Should account for every stop in the viewport at every cluster zoom")
+    void shouldKeepCountsAcrossLevels() {
+        Random random = new Random(7);
+        TimetableBuilder builder = new TimetableBuilder();
+        for (long id = 1; id <= 300; id++) {
+            builder.addStop(id, "S" + id, "X", 52.5 + random.nextDouble() * 0.6, 14.8 + random.nextDouble() * 0.8, null);
+        }
+        builder.addStop(301L, "No coordinates", "X", null, null, null);
+        StopClusterIndex index = builder.build(1).stopClusters();
+
+        for (int zoom = 0; zoom <= StopClusterIndex.MAX_CLUSTER_ZOOM; zoom++) {
+            List<StopClusterIndex.Cluster> clusters = index.viewport(-85, -180, 85, 180, zoom);
+            assertThat(clusters.stream().mapToInt(StopClusterIndex.Cluster::count).sum()).isEqualTo(300);
+        }
+        assertThat(index.viewport(-85, -180, 85, 180, 0)).hasSize(1);
+        assertThat(index.viewport(-85, -180, 85, 180, StopClusterIndex.MAX_CLUSTER_ZOOM + 1)).hasSize(300);
+    }
+
+    @Test
+    @DisplayName("Should merge nearby stops into a centroid at low zoom and list them at high zoom")
+    void shouldClusterByZoom() {
+        Timetable timetable = new TimetableBuilder()
+                .addStop(1L, "Rynek A", "X", 52.7900, 15.2100, null)
+                .addStop(2L, "Rynek B", "X", 52.7902, 15.2104, null)
+                .addStop(3L, "Pętla", "X", 52.9000, 15.5000, null)
+                .build(1);
+        StopClusterIndex index = timetable.stopClusters();
+
+        List<StopClusterIndex.Cluster> regional = index.viewport(52.7, 15.1, 52.95, 15.6, 9);
+        assertThat(regional).extracting(StopClusterIndex.Cluster::count).containsExactlyInAnyOrder(2, 1);
+        StopClusterIndex.Cluster town = regional.stream().filter(c -> c.count() == 2).findFirst().orElseThrow();
+        assertThat(town.stop()).isEqualTo(-1);
+        assertThat(town.latitude()).isCloseTo(52.7901, within(1e-9));
+        assertThat(town.longitude()).isCloseTo(15.2102, within(1e-9));
+
+        List<StopClusterIndex.Cluster> street = index.viewport(52.789, 15.209, 52.791, 15.211, 18);
+        assertThat(street).extracting(StopClusterIndex.Cluster::stop)
+                .containsExactlyInAnyOrder(timetable.stopIndex(1L), timetable.stopIndex(2L));
+    }
+}
@@ -0,0 +1,63 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.geo.GeoUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StopSpatialIndexTest {
+
+    @Test
+    @DisplayName("Should return the same k nearest stops as a full scan")
+    void shouldMatchFullScan() {
+        Random random = new Random(42);
+        TimetableBuilder builder = new TimetableBuilder();
+        for (long id = 1; id <= 500; id++) {
+            // A dense town plus scattered rural stops
+            double spread = id <= 400 ? 0.05 : 1.0;
+            builder.addStop(id, "S" + id, "X", 53.4 + random.nextDouble() * spread, 14.5 + random.nextDouble() * spread, null);
+        }
+        builder.addStop(501L, "No coordinates", "X", null, null, null);
+        Timetable timetable = builder.build(1);
+        StopSpatialIndex index = timetable.spatialIndex();
+
+        for (int query = 0; query < 50; query++) {
+            double lat = 53.3 + random.nextDouble() * 1.2;
+            double lon = 14.4 + random.nextDouble() * 1.2;
+            List<Integer> expected = IntStream.range(0, 500).boxed()
+                    .sorted(Comparator.comparingDouble(stop -> GeoUtils.haversineKm(lat, lon,
+                            timetable.latitude(stop), timetable.longitude(stop))))
+                    .limit(5)
+                    .toList();
+
+            assertThat(index.nearest(lat, lon, 5, Double.POSITIVE_INFINITY))
+                    .extracting(StopSpatialIndex.Hit::stop)
+                    .containsExactlyElementsOf(expected);
+        }
+        assertThat(index.size()).isEqualTo(500);
+    }
+
+    @Test
+    @DisplayName("Should find a remote stop with no radius and respect the radius when given")
+    void shouldHonourRadius() {
+        Timetable timetable = new TimetableBuilder()
+                .addStop(1L, "Village", "X", 54.0, 16.0, null)
+                .addStop(2L, "Town", "X", 53.0, 14.0, null)
+                .build(1);
+        StopSpatialIndex index = timetable.spatialIndex();
+
+        assertThat(index.nearest(54.2, 16.0, 1, Double.POSITIVE_INFINITY))
+                .extracting(StopSpatialIndex.Hit::stop)
+                .containsExactly(timetable.stopIndex(1L));
+        assertThat(index.nearest(54.2, 16.0, 1, 5.0)).isEmpty();
+        assertThat(index.withinRadius(53.0, 14.0, 1.0))
+                .extracting(StopSpatialIndex.Hit::stop)
+                .containsExactly(timetable.stopIndex(2L));
+    }
+}
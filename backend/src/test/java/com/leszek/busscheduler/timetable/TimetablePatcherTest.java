@@ -0,0 +1,164 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.ConnectionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimetablePatcherTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+
+    private Timetable base;
+
+    @BeforeEach
+    void setUp() {
+        // Line 241: A -> B -> C at 07:00 and 14:15; line 300: C -> D at 08:00
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, "A", "X", null, null, null)
+                .addStop(2L, "B", "X", null, null, null)
+                .addStop(3L, "C", "X", null, null, null)
+                .addStop(4L, "D", "X", null, null, null)
+                .addRoute(10L, "241", "C")
+                .addRoute(20L, "300", "D");
+        addTrip(builder, 100L, 10L, LocalTime.of(7, 0));
+        addTrip(builder, 101L, 10L, LocalTime.of(14, 15));
+        builder.addTrip(200L, 20L, "WORKDAYS")
+                .addDeparture(200L, 3L, LocalTime.of(8, 0))
+                .addDeparture(200L, 4L, LocalTime.of(8, 10));
+        base = builder.build(1);
+    }
+
+    private static void addTrip(TimetableBuilder builder, long tripId, long routeId, LocalTime start) {
+        builder.addTrip(tripId, routeId, "WORKDAYS")
+                .addDeparture(tripId, 1L, start)
+                .addDeparture(tripId, 2L, start.plusMinutes(15))
+                .addDeparture(tripId, 3L, start.plusMinutes(25));
+    }
+
+    // The trip on its own, as the loader compiles it from the trip's rows
+    private static Timetable tripAlone(long tripId, LocalTime start) {
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, null, null, null, null, null)
+                .addStop(2L, null, null, null, null, null)
+                .addStop(3L, null, null, null, null, null)
+                .addRoute(10L, null, null);
+        addTrip(builder, tripId, 10L, start);
+        return builder.build(2);
+    }
+
+    private List<LocalTime> departuresFromA(Timetable timetable) {
+        List<ConnectionDTO> results = DirectConnectionSearch.find(timetable,
+                timetable.stopIndex(1L), timetable.stopIndex(3L), LocalTime.MIDNIGHT, timetable.serviceDay(MONDAY));
+        return results.stream().map(ConnectionDTO::departureTime).toList();
+    }
+
+    @Test
+    @DisplayName("Should retime a trip by recompiling only its route and keep the other patterns")
+    void shouldRetimeTrip() {
+        Timetable patched = TimetablePatcher.replaceTrip(base, 2, 101L, 10L, "WORKDAYS",
+                tripAlone(101L, LocalTime.of(6, 30)));
+
+        assertThat(patched.version()).isEqualTo(2);
+        assertThat(departuresFromA(patched)).containsExactly(LocalTime.of(6, 30), LocalTime.of(7, 0));
+        assertThat(departuresFromA(base)).containsExactly(LocalTime.of(7, 0), LocalTime.of(14, 15));
+        assertThat(patched.patternCount()).isEqualTo(base.patternCount());
+        // The recompiled route keeps its slot and the untouched pattern is shared as is
+        assertThat(patched.pattern(0).lineNumber()).isEqualTo("241");
+        assertThat(patched.pattern(1)).isSameAs(base.pattern(1));
+        assertSameDirectConnections(patched);
+    }
+
+    @Test
+    @DisplayName("Should append a pattern for an overtaking trip and leave an emptied slot behind on removal")
+    void shouldAppendAndEmptySlots() {
+        // 07:05 with a 5-minute run to C overtakes the 07:00 trip, so it needs a pattern of its own
+        TimetableBuilder builder = new TimetableBuilder()
+                .addStop(1L, null, null, null, null, null)
+                .addStop(2L, null, null, null, null, null)
+                .addStop(3L, null, null, null, null, null)
+                .addRoute(10L, null, null);
+        builder.addTrip(102L, 10L, "WORKDAYS")
+                .addDeparture(102L, 1L, LocalTime.of(7, 5))
+                .addDeparture(102L, 2L, LocalTime.of(7, 10))
+                .addDeparture(102L, 3L, LocalTime.of(7, 15));
+        Timetable added = TimetablePatcher.replaceTrip(base, 2, 102L, 10L, "WORKDAYS", builder.build(2));
+
+        assertThat(added.patternCount()).isEqualTo(base.patternCount() + 1);
+        assertThat(added.pattern(2).routeId()).isEqualTo(10L);
+        assertThat(added.pattern(1)).isSameAs(base.pattern(1));
+        assertThat(added.patternsAt(added.stopIndex(1L))).containsExactly(0, 2);
+        assertThat(departuresFromA(added))
+                .containsExactly(LocalTime.of(7, 0), LocalTime.of(7, 5), LocalTime.of(14, 15));
+        assertSameDirectConnections(added);
+
+        Timetable removed = TimetablePatcher.removeTrip(added, 3, 102L);
+        assertThat(removed.patternCount()).isEqualTo(added.patternCount());
+        assertThat(removed.pattern(2).tripCount()).isZero();
+        assertThat(removed.patternsAt(removed.stopIndex(1L))).containsExactly(0);
+        assertThat(departuresFromA(removed)).containsExactly(LocalTime.of(7, 0), LocalTime.of(14, 15));
+        assertSameDirectConnections(removed);
+    }
+
+    @Test
+    @DisplayName("Should ignore the removal of a trip the timetable does not hold")
+    void shouldIgnoreUnknownTripRemoval() {
+        Timetable patched = TimetablePatcher.removeTrip(base, 2, 999L);
+
+        assertThat(patched.version()).isEqualTo(2);
+        assertThat(departuresFromA(patched)).containsExactly(LocalTime.of(7, 0), LocalTime.of(14, 15));
+        assertSameDirectConnections(patched);
+    }
+
+    @Test
+    @DisplayName("Should add and remove trips of an existing route")
+    void shouldAddAndRemoveTrips() {
+        Timetable added = TimetablePatcher.replaceTrip(base, 2, 102L, 10L, "WORKDAYS",
+                tripAlone(102L, LocalTime.of(9, 0)));
+        assertThat(departuresFromA(added))
+                .containsExactly(LocalTime.of(7, 0), LocalTime.of(9, 0), LocalTime.of(14, 15));
+
+        Timetable removed = TimetablePatcher.removeTrip(added, 3, 100L);
+        assertThat(departuresFromA(removed)).containsExactly(LocalTime.of(9, 0), LocalTime.of(14, 15));
+        assertThat(removed.pattern(routePatternIndex(removed, 10L)).lineNumber()).isEqualTo("241");
+    }
+
+    @Test
+    @DisplayName("Should refuse to patch a trip on an unknown calendar type")
+    void shouldRefuseUnknownCalendar() {
+        assertThat(TimetablePatcher.replaceTrip(base, 2, 101L, 10L, "HOLIDAYS",
+                tripAlone(101L, LocalTime.of(6, 30)))).isNull();
+    }
+
+    // The patched index must hold exactly what a full build over the patched patterns would
+    private static void assertSameDirectConnections(Timetable patched) {
+        DirectConnectionIndex expected = DirectConnectionIndex.build(patched);
+        DirectConnectionIndex actual = patched.directConnections();
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int from = 0; from < patched.stopCount(); from++) {
+            for (int to = 0; to < patched.stopCount(); to++) {
+                int[] want = expected.departingAtOrAfter(from, to, 0, 0);
+                int[] got = actual.departingAtOrAfter(from, to, 0, 0);
+                assertThat(got[1] - got[0]).isEqualTo(want[1] - want[0]);
+                for (int i = 0; i < want[1] - want[0]; i++) {
+                    assertThat(actual.departure(got[0] + i)).isEqualTo(expected.departure(want[0] + i));
+                    assertThat(actual.arrival(got[0] + i)).isEqualTo(expected.arrival(want[0] + i));
+                    assertThat(actual.pattern(got[0] + i)).isEqualTo(expected.pattern(want[0] + i));
+                }
+            }
+        }
+    }
+
+    private static int routePatternIndex(Timetable timetable, long routeId) {
+        for (int i = 0; i < timetable.patternCount(); i++) {
+            if (timetable.pattern(i).routeId() == routeId) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,106 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.config.TimetableProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TimetableProviderTest {
+
+    @Mock
+    private TimetableLoader timetableLoader;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TimetableProvider provider;
+    private final CountDownLatch rebuildStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseRebuild = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        provider = new TimetableProvider(timetableLoader, new TimetableProperties(), eventPublisher);
+        // Version 1 loads at once; later versions wait until the test lets them finish
+        when(timetableLoader.load(anyLong())).thenAnswer(invocation -> {
+            long version = invocation.getArgument(0);
+            if (version > 1) {
+                rebuildStarted.countDown();
+                releaseRebuild.await(5, TimeUnit.SECONDS);
+            }
+            return new TimetableBuilder().build(version);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseRebuild.countDown();
+        provider.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should keep serving the previous timetable while a rebuild runs, then swap it in")
+    void shouldSwapAfterBackgroundRebuild() throws InterruptedException {
+        assertThat(provider.get().version()).isEqualTo(1);
+
+        provider.onTimetableChanged(new TimetableChangedEvent("test"));
+        assertThat(rebuildStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(provider.get().version()).isEqualTo(1);
+
+        releaseRebuild.countDown();
+        verify(eventPublisher, timeout(5000)).publishEvent(new TimetableReplacedEvent(2));
+        assertThat(provider.get().version()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should coalesce changes arriving during a rebuild into one follow-up rebuild")
+    void shouldCoalesceChanges() throws InterruptedException {
+        provider.get();
+
+        provider.onTimetableChanged(new TimetableChangedEvent("first"));
+        assertThat(rebuildStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        provider.onTimetableChanged(new TimetableChangedEvent("second"));
+        provider.onTimetableChanged(new TimetableChangedEvent("third"));
+        releaseRebuild.countDown();
+
+        verify(eventPublisher, timeout(5000)).publishEvent(new TimetableReplacedEvent(3));
+        verify(timetableLoader, times(3)).load(anyLong());
+        assertThat(provider.get().version()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should serve the snapshot at startup and replace it with the database copy")
+    void shouldReloadAfterSnapshot(@TempDir Path directory) throws Exception {
+        Path snapshot = Files.write(directory.resolve("timetable.bin"), new byte[]{1});
+        TimetableProperties properties = new TimetableProperties();
+        properties.setSnapshotPath(snapshot.toString());
+        provider.shutdown();
+        provider = new TimetableProvider(timetableLoader, properties, eventPublisher);
+        when(timetableLoader.loadSnapshot(snapshot, 1)).thenReturn(new TimetableBuilder().build(1));
+
+        assertThat(provider.get().version()).isEqualTo(1);
+        assertThat(rebuildStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        releaseRebuild.countDown();
+
+        verify(eventPublisher, timeout(5000)).publishEvent(new TimetableReplacedEvent(2));
+        assertThat(provider.get().version()).isEqualTo(2);
+    }
+}
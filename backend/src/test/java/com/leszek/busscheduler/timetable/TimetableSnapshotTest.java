@@ -0,0 +1,108 @@
+package com.leszek.busscheduler.timetable;
+
+import com.leszek.busscheduler.dto.ConnectionDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimetableSnapshotTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 1, 6);
+
+    @TempDir
+    Path directory;
+
+    // Line 241: A(0) -> B(+15) -> C(+25); one row-stored and one pattern-stored trip, C has no coordinates
+    private static void network(TimetableSink sink) {
+        sink.addStop(1L, "Dworzec", "Kraków", 50.06, 19.94, "Centrum")
+                .addStop(2L, "Rynek", "Kraków", 50.07, 19.95, null)
+                .addStop(3L, "Pętla", "Kraków", null, null, null)
+                .addRoute(10L, "241", "Pętla")
+                .addRouteStop(10L, 1L, 1, 0)
+                .addRouteStop(10L, 2L, 2, 15)
+                .addRouteStop(10L, 3L, 3, null)
+                .addTrip(100L, 10L, "WORKDAYS", null)
+                .addDeparture(100L, 1L, LocalTime.of(7, 0))
+                .addDeparture(100L, 2L, LocalTime.of(7, 15))
+                .addDeparture(100L, 3L, LocalTime.of(7, 25))
+                .addTrip(101L, 10L, "WORKDAYS", LocalTime.of(14, 15))
+                .addDeparture(101L, 3L, LocalTime.of(14, 40))
+                .addServiceCalendar("WORKDAYS", LocalDate.of(2025, 1, 1), null, CalendarTypes.MONDAY_TO_FRIDAY)
+                .addCalendarException("WORKDAYS", MONDAY, false);
+    }
+
+    @Test
+    @DisplayName("Should compile the same timetable from a snapshot as from the original rows")
+    void shouldRoundTrip() throws IOException {
+        Path file = directory.resolve("timetable.bin");
+        TimetableSnapshot.Writer writer = new TimetableSnapshot.Writer();
+        network(writer);
+        TimetableSnapshot.Info written = writer.write(file);
+
+        TimetableBuilder direct = new TimetableBuilder().serviceHorizon(MONDAY.minusDays(7), 30);
+        network(direct);
+        TimetableBuilder mapped = new TimetableBuilder().serviceHorizon(MONDAY.minusDays(7), 30);
+        TimetableSnapshot.Info read = TimetableSnapshot.read(file, mapped);
+        Timetable expected = direct.build(1);
+        Timetable actual = mapped.build(1);
+
+        assertThat(read).isEqualTo(written);
+        assertThat(read.departures()).isEqualTo(4);
+        assertThat(actual.stopName(actual.stopIndex(3L))).isEqualTo("Pętla");
+        assertThat(actual.latitude(actual.stopIndex(3L))).isNaN();
+        assertThat(actual.stopDirection(actual.stopIndex(1L))).isEqualTo("Centrum");
+        assertThat(actual.serviceDay(MONDAY).isEmpty()).isTrue();
+
+        LocalDate tuesday = MONDAY.plusDays(1);
+        List<ConnectionDTO> fromSnapshot = DirectConnectionSearch.find(actual,
+                actual.stopIndex(1L), actual.stopIndex(3L), LocalTime.of(6, 0), actual.serviceDay(tuesday));
+        assertThat(fromSnapshot).isEqualTo(DirectConnectionSearch.find(expected,
+                expected.stopIndex(1L), expected.stopIndex(3L), LocalTime.of(6, 0), expected.serviceDay(tuesday)));
+        assertThat(fromSnapshot).extracting(ConnectionDTO::arrivalTime)
+                .containsExactly(LocalTime.of(7, 25), LocalTime.of(14, 40));
+    }
+
+    @Test
+    @DisplayName("Should reject a file that is not a timetable snapshot")
+    void shouldRejectForeignFile() throws IOException {
+        Path file = Files.write(directory.resolve("other.bin"), new byte[64]);
+
+        assertThatThrownBy(() -> TimetableSnapshot.read(file, new TimetableBuilder()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a timetable snapshot");
+    }
+
+    @Test
+    @DisplayName("Should report a corrupt header as an unreadable file rather than crash")
+    void shouldRejectCorruptHeader() throws IOException {
+        TimetableSnapshot.Writer writer = new TimetableSnapshot.Writer();
+        network(writer);
+        Path file = directory.resolve("corrupt.bin");
+        writer.write(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // Negative string count, then a departure count far beyond the file
+        ByteBuffer.wrap(bytes).putInt(16, -3);
+        Files.write(file, bytes);
+        assertThatThrownBy(() -> TimetableSnapshot.read(file, new TimetableBuilder()))
+                .isInstanceOf(IOException.class);
+
+        writer.write(file);
+        bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(16 + 4 * 5, Integer.MAX_VALUE);
+        Files.write(file, bytes);
+        assertThatThrownBy(() -> TimetableSnapshot.read(file, new TimetableBuilder()))
+                .isInstanceOf(IOException.class);
+    }
+}
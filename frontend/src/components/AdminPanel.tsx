@@ -98,9 +98,13 @@ const AdminPanel: React.FC = () => {
   const backToRoutes = () => { setSelectedRoute(null); setRouteTrips([]); };
 
   // ── Atomic departure PATCH ────────────────────────────────────────────────
-  const handleDepartureBlur = async (dep: Departure, newTime: string) => {
-    if (!dep.id) return;
-    if (dep.departureTime.substring(0, 5) === newTime) return;
+  const handleDepartureBlur = async (dep: Departure, newTime: string, tripId: number | null) => {
+    if (!newTime || dep.departureTime.substring(0, 5) === newTime) return;
+    if (!dep.id) {
+      // Derived from the trip's start time (pattern storage): the edit is stored as an override for this stop
+      if (tripId) await handleCreateDeparture(tripId, dep.busStop.id, newTime, dep);
+      return;
+    }
     setSavingIds(prev => new Set(prev).add(dep.id!));
     try {
       await apiClient.patch(`${ADMIN_API}/departures/${dep.id}`, { departureTime: newTime });
@@ -117,7 +121,7 @@ const AdminPanel: React.FC = () => {
   };
 
   // ── Create missing departure (POST) ──────────────────────────────────────
-  const handleCreateDeparture = async (tripId: number, busStopId: number, newTime: string) => {
+  const handleCreateDeparture = async (tripId: number, busStopId: number, newTime: string, replaces?: Departure) => {
     if (!newTime) return;
     try {
       const res = await apiClient.post(`${ADMIN_API}/departures`, {
@@ -127,7 +131,7 @@ const AdminPanel: React.FC = () => {
       });
       const created: Departure = res.data;
       setRouteTrips(prev => prev.map(t =>
-        t.id === tripId ? { ...t, departures: [...t.departures, created] } : t
+        t.id === tripId ? { ...t, departures: [...t.departures.filter(d => d !== replaces), created] } : t
       ));
     } catch { setError('Błąd dodawania odjazdu.'); }
   };
@@ -369,7 +373,7 @@ const AdminPanel: React.FC = () => {
                                       <input
                                         type="time"
                                         defaultValue={dep.departureTime.substring(0, 5)}
-                                        onBlur={e => handleDepartureBlur(dep, e.target.value)}
+                                        onBlur={e => handleDepartureBlur(dep, e.target.value, trip.id)}
                                         className={`w-[4.2rem] text-center font-mono font-bold text-[13px] rounded-lg border transition-all focus:outline-none px-1 py-1 [&::-webkit-calendar-picker-indicator]:hidden [&::-webkit-calendar-picker-indicator]:appearance-none [&::-webkit-inner-spin-button]:hidden ${
                                           savingIds.has(dep.id!)
                                             ? 'bg-amber-50 border-amber-300 ring-1 ring-amber-400 text-amber-700'
@@ -1,9 +1,10 @@
-import React, { useEffect, useState } from 'react';
-import { MapContainer, TileLayer, Marker, Popup } from 'react-leaflet';
+import React, { useCallback, useEffect, useRef, useState } from 'react';
+import { MapContainer, TileLayer, Marker, Popup, useMap, useMapEvents } from 'react-leaflet';
 import L from 'leaflet';
 import 'leaflet/dist/leaflet.css';
-import { fetchBusStops } from '../api/busStopsCache';
+import apiClient from '../api/axiosConfig';
 import { Map as MapIcon, Loader2, AlertCircle } from 'lucide-react';
+import type { StopClusterDTO } from '../types';
 
 // Fix for default marker icons in React
 import markerIcon from 'leaflet/dist/images/marker-icon.png';
@@ -19,36 +20,61 @@ let DefaultIcon = L.icon({
 });
 L.Marker.prototype.options.icon = DefaultIcon;
 
-interface BusStop {
-  id: number;
-  name: string;
-  city: string;
-  latitude: number | null;
-  longitude: number | null;
-}
+const API_URL = `${API_BASE_URL}/busstops/viewport`;
 
-const API_URL = `${API_BASE_URL}/busstops`;
+const clusterIcon = (count: number) => L.divIcon({
+  html: `<div class="w-10 h-10 rounded-full bg-blue-600 text-white font-black text-xs flex items-center justify-center border-4 border-white shadow-lg">${count}</div>`,
+  className: '',
+  iconSize: [40, 40],
+  iconAnchor: [20, 20]
+});
+
+// Pobiera punkty (skupiska albo przystanki) dla widocznego obszaru po każdym przesunięciu lub zmianie zoomu
+const ViewportLoader: React.FC<{ onLoad: (points: StopClusterDTO[]) => void; onError: () => void }> = ({ onLoad, onError }) => {
+  const request = useRef(0);
+  const load = useCallback((map: L.Map) => {
+    const bounds = map.getBounds();
+    const bbox = [bounds.getWest(), bounds.getSouth(), bounds.getEast(), bounds.getNorth()].join(',');
+    const current = ++request.current;
+    apiClient
+      .get<StopClusterDTO[]>(API_URL, { params: { bbox, zoom: map.getZoom() } })
+      .then((res) => { if (current === request.current) onLoad(res.data); })
+      .catch(() => onError());
+  }, [onLoad, onError]);
+
+  const map = useMapEvents({ moveend: () => load(map) });
+  useEffect(() => { load(map); }, [load, map]);
+  return null;
+};
+
+// Kliknięcie skupiska przybliża mapę na jego środek
+const ClusterMarker: React.FC<{ point: StopClusterDTO }> = ({ point }) => {
+  const map = useMap();
+  return (
+    <Marker
+      position={[point.latitude, point.longitude]}
+      icon={clusterIcon(point.count)}
+      eventHandlers={{ click: () => map.setView([point.latitude, point.longitude], map.getZoom() + 2) }}
+    />
+  );
+};
 
 const StopMap: React.FC = () => {
-  const [stops, setStops] = useState<BusStop[]>([]);
+  const [points, setPoints] = useState<StopClusterDTO[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
 
-  useEffect(() => {
-    const loadStops = async () => {
-      try {
-        const data = await fetchBusStops();
-        setStops(data.filter((s) => s.latitude && s.longitude));
-      } catch (err) {
-        setError('Błąd ładowania mapy.');
-      } finally {
-        setLoading(false);
-      }
-    };
-    loadStops();
+  const handleLoad = useCallback((data: StopClusterDTO[]) => {
+    setPoints(data);
+    setError(null);
+    setLoading(false);
+  }, []);
+  const handleError = useCallback(() => {
+    setError('Błąd ładowania mapy.');
+    setLoading(false);
   }, []);
 
-  if (loading) return <div className="py-20 flex justify-center"><Loader2 className="animate-spin text-blue-600" size={40} /></div>;
+  const visibleStops = points.reduce((sum, point) => sum + point.count, 0);
 
   return (
     <div className="space-y-6 text-left">
@@ -61,7 +87,7 @@ const StopMap: React.FC = () => {
           </div>
         </div>
         <div className="bg-slate-100 dark:bg-slate-800 px-4 py-2 rounded-full text-[10px] font-black uppercase text-slate-500">
-          Aktywne punkty: {stops.length}
+          {loading ? <Loader2 className="animate-spin" size={12} /> : <>Widoczne przystanki: {visibleStops}</>}
         </div>
       </div>
 
@@ -75,26 +101,34 @@ const StopMap: React.FC = () => {
             attribution='&copy; <a href="https://www.openstreetmap.org/copyright">OpenStreetMap</a> contributors'
             url="https://{s}.tile.openstreetmap.org/{z}/{x}/{y}.png"
           />
-          {stops.map(stop => (
-            <Marker key={stop.id} position={[stop.latitude!, stop.longitude!]}>
+          <ViewportLoader onLoad={handleLoad} onError={handleError} />
+          {points.map(point => point.id !== null ? (
+            <Marker key={`s${point.id}`} position={[point.latitude, point.longitude]}>
               <Popup>
                 <div className="p-2 text-left">
-                  <p className="font-black text-blue-600 mb-0 leading-none">{stop.name}</p>
-                  <p className="text-[10px] text-slate-400 font-bold uppercase mt-1">{stop.city}</p>
+                  <p className="font-black text-blue-600 mb-0 leading-none">{point.name}</p>
+                  <p className="text-[10px] text-slate-400 font-bold uppercase mt-1">{point.city}</p>
                   <hr className="my-2" />
-                  <p className="text-[9px] font-mono text-slate-500 mb-0">{stop.latitude}, {stop.longitude}</p>
+                  <p className="text-[9px] font-mono text-slate-500 mb-0">{point.latitude}, {point.longitude}</p>
                 </div>
               </Popup>
             </Marker>
+          ) : (
+            <ClusterMarker key={`c${point.latitude},${point.longitude}`} point={point} />
           ))}
         </MapContainer>
       </div>
 
+      {error && (
+        <p className="text-xs font-bold text-red-500 text-left">{error}</p>
+      )}
+
       <div className="p-6 bg-blue-50 dark:bg-blue-900/20 rounded-3xl border border-blue-100 dark:border-blue-800 flex items-start gap-4 text-left">
         <AlertCircle className="text-blue-500 shrink-0" size={20} />
         <p className="text-xs font-medium text-blue-700 dark:text-blue-300 leading-relaxed text-left">
           Mapa wyświetla tylko te przystanki, które mają uzupełnione współrzędne w zakładce <b>PRZYSTANKI</b>.
-          Kliknij na marker, aby zobaczyć szczegóły lokalizacji.
+          Przy małym przybliżeniu bliskie przystanki są łączone w skupiska z liczbą punktów — kliknij skupisko, aby je przybliżyć,
+          a marker, aby zobaczyć szczegóły lokalizacji.
         </p>
       </div>
     </div>
@@ -16,6 +16,16 @@ export interface BusStopDTO {
   directions?: string[];
 }
 
+// Punkt mapy z /busstops/viewport: pojedynczy przystanek (count 1) albo środek skupiska count przystanków
+export interface StopClusterDTO {
+  latitude: number;
+  longitude: number;
+  count: number;
+  id: number | null;
+  name: string | null;
+  city: string | null;
+}
+
 
 export interface StopDepartureDTO {
     lineName: string;